@@ -0,0 +1,44 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.domain.price.Price;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures looking up the price of a vehicle, both known and unknown to the service.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingServiceBenchmark {
+
+    private Long knownVehicleId = 7L;
+    private Long unknownVehicleId = 404L;
+
+    @Benchmark
+    public Price getPrice() throws PriceException {
+        return PricingService.getPrice(knownVehicleId);
+    }
+
+    @Benchmark
+    public PriceException getUnknownPrice() {
+        try {
+            PricingService.getPrice(unknownVehicleId);
+            throw new IllegalStateException("Vehicle " + unknownVehicleId + " has a price");
+        } catch (PriceException e) {
+            return e;
+        }
+    }
+}
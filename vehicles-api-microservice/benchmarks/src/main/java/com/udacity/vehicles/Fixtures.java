@@ -0,0 +1,78 @@
+package com.udacity.vehicles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.Details;
+import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+
+/**
+ * Builds the objects shared by the vehicles API benchmarks.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /**
+     * Creates a fully populated car, as returned by GET /cars, with its address
+     * resolved. Each car is parked in a different geohash cell, so their addresses
+     * are cached separately.
+     * @param id the ID of the car
+     * @return the car
+     */
+    public static Car car(long id) {
+        Car car = new Car();
+        car.setId(id);
+        car.setCreatedAt(LocalDateTime.of(2019, 6, 1, 12, 0));
+        car.setModifiedAt(LocalDateTime.of(2019, 6, 2, 12, 0));
+        car.setCondition(Condition.USED);
+        Details details = new Details();
+        details.setManufacturer(new Manufacturer(101, "Chevrolet"));
+        details.setModel("Impala");
+        details.setMileage(32280);
+        details.setExternalColor("white");
+        details.setBody("sedan");
+        details.setEngine("3.6L V6");
+        details.setFuelType("Gasoline");
+        details.setModelYear(2018);
+        details.setProductionYear(2018);
+        details.setNumberOfDoors(4);
+        car.setDetails(details);
+        Location location = new Location(40.730610 + id * 0.001, -73.935242);
+        location.setAddress("777 Brockton Avenue");
+        location.setCity("Abington");
+        location.setState("MA");
+        location.setZip("2351");
+        location.markResolved(LocalDateTime.of(2019, 6, 2, 12, 0));
+        car.setLocation(location);
+        car.setPrice("USD 10000.55");
+        return car;
+    }
+
+    /**
+     * Creates an ObjectMapper configured like the application's.
+     * @return the ObjectMapper
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    /**
+     * Creates an ObjectMapper rendering HATEOAS resources as HAL, like the application's.
+     * @return the ObjectMapper
+     */
+    public static ObjectMapper halObjectMapper() {
+        ObjectMapper objectMapper = objectMapper();
+        objectMapper.registerModule(new Jackson2HalModule());
+        objectMapper.setHandlerInstantiator(
+                new Jackson2HalModule.HalHandlerInstantiator(new DefaultRelProvider(), null, null));
+        return objectMapper;
+    }
+}
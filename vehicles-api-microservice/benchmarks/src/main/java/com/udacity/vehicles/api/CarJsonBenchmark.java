@@ -0,0 +1,71 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.vehicles.Fixtures;
+import com.udacity.vehicles.domain.car.Car;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.Resource;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON serialization and deserialization of a car, as a plain
+ * request body and as the HAL resource returned by the API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarJsonBenchmark {
+
+    private final ObjectMapper objectMapper = Fixtures.objectMapper();
+    private final ObjectMapper halObjectMapper = Fixtures.halObjectMapper();
+    private final JavaType resourceType = halObjectMapper.getTypeFactory()
+            .constructParametricType(Resource.class, Car.class);
+
+    private Car car;
+    private Resource<Car> resource;
+    private byte[] carJson;
+    private byte[] resourceJson;
+
+    @Setup
+    public void setup() throws IOException {
+        car = Fixtures.car(1);
+        resource = new CarResourceAssembler().toResource(car, "http://localhost/cars");
+        carJson = objectMapper.writeValueAsBytes(car);
+        resourceJson = halObjectMapper.writeValueAsBytes(resource);
+    }
+
+    @Benchmark
+    public byte[] writeCar() throws IOException {
+        return objectMapper.writeValueAsBytes(car);
+    }
+
+    @Benchmark
+    public Car readCar() throws IOException {
+        return objectMapper.readValue(carJson, Car.class);
+    }
+
+    @Benchmark
+    public byte[] writeResource() throws IOException {
+        return halObjectMapper.writeValueAsBytes(resource);
+    }
+
+    @Benchmark
+    public Resource<Car> readResource() throws IOException {
+        return halObjectMapper.readValue(resourceJson, resourceType);
+    }
+}
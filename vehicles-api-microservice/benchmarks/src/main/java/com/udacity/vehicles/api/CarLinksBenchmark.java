@@ -0,0 +1,107 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.vehicles.Fixtures;
+import com.udacity.vehicles.domain.car.Car;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+
+/**
+ * Compares rendering a page of cars with {@code linkTo(methodOn(...))} for every
+ * link, as {@link CarResourceAssembler} used to, with expanding the links from a
+ * collection URI resolved once per page. The JSON variants include serializing
+ * the page as HAL, where the per-car collection links also cost output size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarLinksBenchmark {
+
+    @Param({"1", "100"})
+    private int pageSize;
+
+    private final CarResourceAssembler assembler = new CarResourceAssembler();
+    private final ObjectMapper halObjectMapper = Fixtures.halObjectMapper();
+    private List<Car> cars;
+
+    @Setup
+    public void setup() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest("GET", "/cars")));
+        cars = new ArrayList<>();
+        for (long id = 1; id <= pageSize; id++) {
+            cars.add(Fixtures.car(id));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public Resources<Resource<Car>> linkToPerLink() {
+        return legacyPage(cars, null, pageSize);
+    }
+
+    @Benchmark
+    public Resources<Resource<Car>> expandedLinks() {
+        return assembler.toPage(cars, null, pageSize);
+    }
+
+    @Benchmark
+    public byte[] linkToPerLinkJson() throws JsonProcessingException {
+        return halObjectMapper.writeValueAsBytes(legacyPage(cars, null, pageSize));
+    }
+
+    @Benchmark
+    public byte[] expandedLinksJson() throws JsonProcessingException {
+        return halObjectMapper.writeValueAsBytes(assembler.toPage(cars, null, pageSize));
+    }
+
+    /**
+     * Renders a page the way CarResourceAssembler did before links were expanded
+     * from a collection URI: two proxied controller invocations per car.
+     */
+    private static Resources<Resource<Car>> legacyPage(List<Car> cars, Long after, int limit) {
+        List<Resource<Car>> resources = cars.stream()
+                .map(car -> new Resource<>(car,
+                        linkTo(methodOn(CarController.class).get(car.getId(), null, null)).withSelfRel(),
+                        linkTo(methodOn(CarController.class).list(null, null, null, null)).withRel("cars")))
+                .collect(Collectors.toList());
+        List<Link> links = new ArrayList<>();
+        links.add(linkTo(methodOn(CarController.class).list(after, limit, null, null)).withSelfRel());
+        if (cars.size() == limit) {
+            Long last = cars.get(cars.size() - 1).getId();
+            links.add(linkTo(methodOn(CarController.class).list(last, limit, null, null)).withRel("next"));
+        }
+        return new Resources<>(resources, links);
+    }
+}
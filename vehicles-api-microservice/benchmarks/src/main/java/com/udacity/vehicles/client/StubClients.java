@@ -0,0 +1,137 @@
+package com.udacity.vehicles.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.client.resilience.DownstreamGuard;
+import com.udacity.vehicles.client.resilience.DownstreamSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Builds price and Maps clients backed by in-memory stubs of the pricing and
+ * Maps services, so the client code, its caches and the JSON codecs run without
+ * any network I/O.
+ */
+public final class StubClients {
+
+    private static final String ADDRESS =
+            "{\"address\":\"777 Brockton Avenue\",\"city\":\"Abington\",\"state\":\"MA\",\"zip\":\"2351\"}";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final ExchangeStrategies strategies = ExchangeStrategies.withDefaults();
+
+    private StubClients() {
+    }
+
+    /**
+     * Creates a price client whose pricing service knows a price for every vehicle.
+     * @param cacheTtl how long prices stay cached; a tiny TTL makes every lookup a miss
+     * @return the price client
+     */
+    public static PriceClient priceClient(Duration cacheTtl) {
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            String path = request.url().getPath();
+            if (request.method() == HttpMethod.POST && path.equals("/prices/batch")) {
+                List<Long> vehicleIds = read(request, new TypeReference<List<Long>>() { });
+                StringBuilder body = new StringBuilder("{\"prices\":[");
+                for (int i = 0; i < vehicleIds.size(); i++) {
+                    body.append(i == 0 ? "" : ",").append(price(vehicleIds.get(i)));
+                }
+                return json(body.append("],\"missing\":[]}").toString());
+            }
+            if (request.method() == HttpMethod.GET && path.startsWith("/prices/")) {
+                return json(price(Long.valueOf(path.substring("/prices/".length()))));
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+        }).build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DownstreamGuard guard = new DownstreamGuard("pricing-service", new DownstreamSettings(), meterRegistry);
+        PriceClient priceClient = new PriceClient(webClient, meterRegistry, guard,
+                100000, cacheTtl, Duration.ofDays(1));
+        ReflectionTestUtils.setField(priceClient, "pricingApplicationBaseURL", "http://pricing-service");
+        return priceClient;
+    }
+
+    /**
+     * Creates a Maps client whose Maps service resolves every coordinate to the same address.
+     * @param cacheTtl how long addresses stay cached; a tiny TTL makes every lookup a miss
+     * @return the Maps client
+     */
+    public static MapsClient mapsClient(Duration cacheTtl) {
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            if (request.method() == HttpMethod.POST) {
+                int count = read(request, new TypeReference<List<JsonNode>>() { }).size();
+                return json("[" + String.join(",", Collections.nCopies(count, ADDRESS)) + "]");
+            }
+            return json(ADDRESS);
+        }).build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DownstreamGuard guard = new DownstreamGuard("boogle-maps", new DownstreamSettings(), meterRegistry);
+        return new MapsClient(webClient, new ModelMapper(), meterRegistry, guard,
+                100000, cacheTtl, Duration.ofDays(7), 9);
+    }
+
+    private static String price(Long vehicleId) {
+        return "{\"currency\":\"USD\",\"price\":10000.55,\"vehicleId\":" + vehicleId + "}";
+    }
+
+    private static Mono<ClientResponse> json(String body) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build());
+    }
+
+    /**
+     * Serializes the body of a request with the default codecs and reads it back.
+     */
+    private static <T> T read(ClientRequest request, TypeReference<T> type) {
+        MockClientHttpRequest written = new MockClientHttpRequest(request.method(), request.url());
+        request.body().insert(written, new BodyInserter.Context() {
+            @Override
+            public List<HttpMessageWriter<?>> messageWriters() {
+                return strategies.messageWriters();
+            }
+
+            @Override
+            public Optional<ServerHttpRequest> serverRequest() {
+                return Optional.empty();
+            }
+
+            @Override
+            public Map<String, Object> hints() {
+                return Collections.emptyMap();
+            }
+        }).block();
+        try {
+            return objectMapper.readValue(written.getBodyAsString().block(), type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
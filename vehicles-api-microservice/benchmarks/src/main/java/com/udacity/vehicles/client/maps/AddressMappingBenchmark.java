@@ -0,0 +1,56 @@
+package com.udacity.vehicles.client.maps;
+
+import com.udacity.vehicles.domain.Location;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures copying an address returned by the Maps service onto a car location
+ * with ModelMapper, as {@link MapsClient} does, against plain setters as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressMappingBenchmark {
+
+    private final ModelMapper mapper = new ModelMapper();
+    private final Address address = new Address();
+    private final Location location = new Location(40.730610, -73.935242);
+
+    @Setup
+    public void setup() {
+        address.setAddress("777 Brockton Avenue");
+        address.setCity("Abington");
+        address.setState("MA");
+        address.setZip("2351");
+    }
+
+    @Benchmark
+    public Location modelMapper() {
+        mapper.map(address, location);
+        return location;
+    }
+
+    @Benchmark
+    public Location setters() {
+        location.setAddress(address.getAddress());
+        location.setCity(address.getCity());
+        location.setState(address.getState());
+        location.setZip(address.getZip());
+        return location;
+    }
+}
@@ -0,0 +1,42 @@
+package com.udacity.vehicles.client.prices;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures converting prices between the "currency amount" strings stored on
+ * cars and the {@link Price} objects exchanged with the pricing service.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceBenchmark {
+
+    private String text = "USD 10000.55";
+    private Long vehicleId = 1L;
+    private String currency = "USD";
+    private BigDecimal amount = new BigDecimal("10000.55");
+
+    @Benchmark
+    public Price parse() {
+        return new Price(text, vehicleId);
+    }
+
+    @Benchmark
+    public String format() {
+        return String.format("%s %s", currency, amount);
+    }
+}
@@ -0,0 +1,110 @@
+package com.udacity.vehicles.domain.car;
+
+import com.udacity.vehicles.VehiclesApiApplication;
+import com.udacity.vehicles.domain.GeoHash;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CarRepository#findNear} against the application's H2 database
+ * holding a million cars, spread either over the continental United States
+ * ({@code spread=country}) or over a 50 km square around New York ({@code spread=city}).
+ * Each call searches around a different point among the cars' own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CarNearBenchmark {
+
+    private static final int CARS = 1_000_000;
+    private static final int LIMIT = 20;
+    private static final int POINTS = 1024;
+
+    @Param({"country", "city"})
+    private String spread;
+
+    @Param({"5", "50"})
+    private double radiusKm;
+
+    private ConfigurableApplicationContext context;
+    private CarRepository repository;
+    private double[][] points;
+    private int next;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(VehiclesApiApplication.class)
+                .properties("spring.main.web-application-type=none", "spring.main.banner-mode=off",
+                        "spring.cloud.config.enabled=false", "eureka.client.enabled=false",
+                        "logging.level.root=warn", "spring.datasource.url=jdbc:h2:mem:car-near")
+                .run();
+        repository = context.getBean(CarRepository.class);
+        insertCars(context.getBean(JdbcTemplate.class));
+
+        Random random = new Random(7);
+        points = new double[POINTS][];
+        for (int i = 0; i < POINTS; i++) {
+            points[i] = position(random);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Car> findNear() {
+        double[] point = points[next++ & (POINTS - 1)];
+        return repository.findNear(point[0], point[1], radiusKm, LIMIT);
+    }
+
+    private double[] position(Random random) {
+        if (spread.equals("city")) {
+            return new double[]{40.5 + random.nextDouble() * 0.45, -74.2 + random.nextDouble() * 0.6};
+        }
+        return new double[]{25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57};
+    }
+
+    /**
+     * Inserts a million cars at random positions, with the geohash the application
+     * would store, in batches straight through JDBC.
+     */
+    private void insertCars(JdbcTemplate jdbc) {
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (long id = 1; id <= CARS; id++) {
+            double[] position = position(random);
+            batch.add(new Object[]{id, position[0], position[1],
+                    GeoHash.encode(position[0], position[1], GeoHash.MAX_PRECISION)});
+            if (batch.size() == 10_000 || id == CARS) {
+                jdbc.batchUpdate("insert into car (id, version, condition, body, model, manufacturer_code, "
+                        + "lat, lon, geohash, price_version) values (?, 0, 'USED', 'sedan', 'Model 1', 101, ?, ?, ?, 0)",
+                        batch);
+                batch.clear();
+            }
+        }
+        jdbc.execute("analyze");
+    }
+}
@@ -0,0 +1,148 @@
+package com.udacity.vehicles.domain.car;
+
+import com.udacity.vehicles.VehiclesApiApplication;
+import com.udacity.vehicles.domain.Condition;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Measures a page of {@link CarRepository#search} against the application's H2
+ * database holding a million cars, with the indexes declared on {@link Car}.
+ * Each {@code query} pairs criteria with an order, and is read at the first page
+ * and at a cursor halfway through its results ({@code page=deep}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CarSearchBenchmark {
+
+    private static final int CARS = 1_000_000;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] BODIES = {"sedan", "hatchback", "suv", "coupe", "convertible", "van", "pickup"};
+    private static final String[] FUEL_TYPES = {"Gasoline", "Diesel", "Hybrid", "Electric"};
+    private static final String[] COLORS = {"white", "black", "silver", "red", "blue", "grey", "green", "yellow"};
+
+    @Param({"manufacturer", "model", "body+fuelType", "modelYearRange", "mileage,desc", "color+mileage"})
+    private String query;
+
+    @Param({"first", "deep"})
+    private String page;
+
+    private ConfigurableApplicationContext context;
+    private CarRepository repository;
+    private CarSearch search;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(VehiclesApiApplication.class)
+                .properties("spring.main.web-application-type=none", "spring.main.banner-mode=off",
+                        "spring.cloud.config.enabled=false", "eureka.client.enabled=false",
+                        "logging.level.root=warn", "spring.datasource.url=jdbc:h2:mem:car-search")
+                .run();
+        repository = context.getBean(CarRepository.class);
+        insertCars(context.getBean(JdbcTemplate.class));
+
+        search = newSearch();
+        if (page.equals("deep")) {
+            List<Car> cars = repository.search(newSearch(), CARS);
+            search.startAfter(cars.get(cars.size() / 2));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Car> search() {
+        return repository.search(search, PAGE_SIZE);
+    }
+
+    private CarSearch newSearch() {
+        CarSearch search = new CarSearch();
+        switch (query) {
+            case "manufacturer":
+                search.setManufacturer(101);
+                break;
+            case "model":
+                search.setManufacturer(101);
+                search.setModel("Model 7");
+                break;
+            case "body+fuelType":
+                search.setBody("suv");
+                search.setFuelType("Hybrid");
+                search.setCondition(Condition.USED);
+                break;
+            case "modelYearRange":
+                search.setMinModelYear(2015);
+                search.setMaxModelYear(2017);
+                search.orderBy(CarSearch.SortKey.MODEL_YEAR, false);
+                break;
+            case "mileage,desc":
+                search.orderBy(CarSearch.SortKey.MILEAGE, true);
+                break;
+            case "color+mileage":
+                search.setExternalColor("red");
+                search.setMaxMileage(50000);
+                search.orderBy(CarSearch.SortKey.MILEAGE, false);
+                break;
+            default:
+                throw new IllegalArgumentException(query);
+        }
+        return search;
+    }
+
+    /**
+     * Inserts a million cars with evenly spread details, a thousandth of them
+     * without a mileage, in batches straight through JDBC.
+     */
+    private static void insertCars(JdbcTemplate jdbc) {
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        Consumer<List<Object[]>> flush = rows -> {
+            jdbc.batchUpdate("insert into car (id, version, condition, body, model, manufacturer_code, fuel_type, "
+                    + "mileage, model_year, external_color, lat, lon, price_version) "
+                    + "values (?, 0, ?, ?, ?, ?, ?, ?, ?, ?, 0, 0, 0)", rows);
+            rows.clear();
+        };
+        for (long id = 1; id <= CARS; id++) {
+            batch.add(new Object[]{id,
+                    random.nextBoolean() ? Condition.USED.name() : Condition.NEW.name(),
+                    BODIES[random.nextInt(BODIES.length)],
+                    "Model " + random.nextInt(200),
+                    100 + random.nextInt(5),
+                    FUEL_TYPES[random.nextInt(FUEL_TYPES.length)],
+                    random.nextInt(1000) == 0 ? null : random.nextInt(250_000),
+                    1995 + random.nextInt(25),
+                    COLORS[random.nextInt(COLORS.length)]});
+            if (batch.size() == 10_000) {
+                flush.accept(batch);
+            }
+        }
+        flush.accept(batch);
+        jdbc.execute("analyze");
+    }
+}
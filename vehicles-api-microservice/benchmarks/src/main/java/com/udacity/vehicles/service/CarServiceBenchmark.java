@@ -0,0 +1,90 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.Fixtures;
+import com.udacity.vehicles.client.StubClients;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import com.udacity.vehicles.domain.car.PriceSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures listing a page of cars, including their enrichment with prices, against
+ * an in-memory repository and a stubbed pricing service. Addresses are stored with
+ * the cars, so the Maps service is never called.
+ * With {@code cache=snapshot} every price is served from the fresh local copy of
+ * its car; with {@code cache=hit} the copies are stale and every price is served
+ * from the client cache; with {@code cache=miss} every lookup goes through a batch
+ * request to the stub. Stale copies are refreshed in the background after each lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarServiceBenchmark {
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    @Param({"snapshot", "hit", "miss"})
+    private String cache;
+
+    private CarService carService;
+
+    @Setup
+    public void setup() {
+        List<Car> cars = new ArrayList<>();
+        for (long id = 1; id <= pageSize; id++) {
+            Car car = Fixtures.car(id);
+            car.setPriceSnapshot(new PriceSnapshot(car.getPrice(), LocalDateTime.now(), 1));
+            cars.add(car);
+        }
+        Duration cacheTtl = cache.equals("miss") ? Duration.ofNanos(1) : Duration.ofDays(1);
+        Duration priceFreshness = cache.equals("snapshot") ? Duration.ofDays(1) : Duration.ZERO;
+        carService = new CarService(repository(cars), StubClients.mapsClient(cacheTtl),
+                StubClients.priceClient(cacheTtl), new SimpleMeterRegistry(), priceFreshness);
+        carService.list(null, pageSize);
+    }
+
+    @Benchmark
+    public List<Car> list() {
+        return carService.list(null, pageSize);
+    }
+
+    /**
+     * Creates a repository that only supports the keyset query used by
+     * {@link CarService#list(Long, int)}, always returning the given cars,
+     * and the price snapshot refreshes, which it ignores.
+     */
+    private static CarRepository repository(List<Car> cars) {
+        return (CarRepository) Proxy.newProxyInstance(CarRepository.class.getClassLoader(),
+                new Class<?>[]{CarRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findByIdGreaterThanOrderByIdAsc")) {
+                        return new ArrayList<>(cars);
+                    }
+                    if (method.getName().equals("refreshPriceSnapshot")) {
+                        return 1;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
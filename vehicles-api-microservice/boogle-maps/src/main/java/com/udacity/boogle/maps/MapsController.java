@@ -1,13 +1,42 @@
 package com.udacity.boogle.maps;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/maps")
 public class MapsController {
 
+    @Value("${maps.batch.max-size:1000}")
+    private int maxBatchSize;
+
     @GetMapping
     public Address get(@RequestParam Double lat, @RequestParam Double lon) {
         return MockAddressRepository.getRandom();
     }
+
+    /**
+     * Gets the addresses of many coordinates at once. Coordinates repeated
+     * within the batch are resolved only once and share the same address.
+     * @param coordinates latitude and longitude pairs to resolve
+     * @return the address of each pair, in the order they were given
+     */
+    @PostMapping("/batch")
+    public List<Address> getBatch(@RequestBody List<Coordinates> coordinates) {
+        if (coordinates.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " coordinates can be resolved at once");
+        }
+        Map<Coordinates, Address> resolved = new HashMap<>();
+        return coordinates.stream()
+                .map(c -> resolved.computeIfAbsent(c, k -> get(k.getLat(), k.getLon())))
+                .collect(Collectors.toList());
+    }
 }
@@ -2,15 +2,43 @@ package com.udacity.boogle.maps;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@AutoConfigureMockMvc
 public class BoogleMapsApplicationTests {
 
+	@Autowired
+	private MockMvc mvc;
+
 	@Test
 	public void contextLoads() {
 	}
 
+	@Test
+	public void recordsSpansOfSampledTraces() throws Exception {
+		mvc.perform(get("/maps?lat=40.0&lon=-73.0")
+				.header("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"))
+				.andExpect(status().isOk())
+				.andExpect(header().string("traceresponse", startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-")));
+
+		mvc.perform(get("/actuator/traces/4bf92f3577b34da6a3ce929d0e0e4736"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].service", is("boggle-maps")))
+				.andExpect(jsonPath("$[0].name", is("GET /maps")))
+				.andExpect(jsonPath("$[0].parentId", is("00f067aa0ba902b7")));
+	}
+
 }
@@ -0,0 +1,47 @@
+package com.udacity.boogle.maps;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Implements testing of the MapsController class.
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(MapsController.class)
+public class MapsControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    /**
+     * Tests that a batch returns one address per coordinate pair,
+     * and that repeated coordinates resolve to the same address.
+     */
+    @Test
+    public void getBatch() throws Exception {
+        String body = "[{\"lat\":40.0,\"lon\":-73.0},{\"lat\":41.0,\"lon\":-74.0},{\"lat\":40.0,\"lon\":-73.0}]";
+        MvcResult result = mvc.perform(post("/maps/batch")
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andReturn();
+
+        String json = result.getResponse().getContentAsString();
+        assertEquals(JsonPath.<Object>read(json, "$[0]"),
+                JsonPath.<Object>read(json, "$[2]"));
+    }
+}
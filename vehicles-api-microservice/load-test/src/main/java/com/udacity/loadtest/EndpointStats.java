@@ -0,0 +1,105 @@
+package com.udacity.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and outcomes of the requests to one endpoint.
+ *
+ * Two latencies are recorded per request, in microseconds. The response time
+ * runs from the moment the request was scheduled to be sent, so requests that
+ * queue up behind a stalled server are charged for the wait (the measurement
+ * does not suffer from coordinated omission). The service time runs from the
+ * moment the request was actually sent, and hides such stalls.
+ */
+class EndpointStats {
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+
+    private final String endpoint;
+    private final Histogram responseTimes = new ConcurrentHistogram(3);
+    private final Histogram serviceTimes = new ConcurrentHistogram(3);
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong clientErrors = new AtomicLong();
+    private final AtomicLong serverErrors = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Records a completed request.
+     * @param intendedStart when the request was scheduled to be sent, from {@link System#nanoTime()}
+     * @param start when the request was sent
+     * @param end when the response was received, or the request failed
+     * @param status the HTTP status, or 0 if the request failed without a response
+     */
+    void record(long intendedStart, long start, long end, int status) {
+        responseTimes.recordValue(TimeUnit.NANOSECONDS.toMicros(end - intendedStart));
+        serviceTimes.recordValue(TimeUnit.NANOSECONDS.toMicros(end - start));
+        if (status == 0) {
+            failures.incrementAndGet();
+        } else if (status >= 500) {
+            serverErrors.incrementAndGet();
+        } else if (status >= 400) {
+            clientErrors.incrementAndGet();
+        } else {
+            successes.incrementAndGet();
+        }
+    }
+
+    long getCount() {
+        return responseTimes.getTotalCount();
+    }
+
+    /**
+     * Prints the throughput, outcomes and main percentiles of the endpoint.
+     * @param out where to print
+     * @param elapsedNanos the duration of the measurement
+     */
+    void printSummary(PrintStream out, long elapsedNanos) {
+        out.printf("%s%n", endpoint);
+        out.printf("  %d requests, %.1f req/s: %d 2xx/3xx, %d 4xx, %d 5xx, %d failed%n",
+                getCount(), getCount() * 1e9 / elapsedNanos,
+                successes.get(), clientErrors.get(), serverErrors.get(), failures.get());
+        printPercentiles(out, "response time", responseTimes);
+        printPercentiles(out, "service time ", serviceTimes);
+    }
+
+    /**
+     * Writes the full response and service time histograms, in milliseconds,
+     * in the .hgrm format understood by the HdrHistogram plotter.
+     * @param directory where to write the files
+     * @param name the file name prefix
+     * @throws IOException if a file cannot be written
+     */
+    void writeHistograms(Path directory, String name) throws IOException {
+        write(responseTimes, directory.resolve(name + ".response.hgrm"));
+        write(serviceTimes, directory.resolve(name + ".service.hgrm"));
+    }
+
+    private static void printPercentiles(PrintStream out, String label, Histogram histogram) {
+        out.printf("  %s (ms): p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, p99.99 %.2f, max %.2f%n", label,
+                percentile(histogram, 50), percentile(histogram, 90), percentile(histogram, 99),
+                percentile(histogram, 99.9), percentile(histogram, 99.99),
+                histogram.getMaxValue() / MICROS_PER_MILLI);
+    }
+
+    private static double percentile(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    private static void write(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+}
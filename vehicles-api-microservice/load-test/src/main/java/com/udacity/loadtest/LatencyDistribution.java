@@ -0,0 +1,110 @@
+package com.udacity.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribution of the latencies added by a stub server to each response.
+ *
+ * Parsed from one of:
+ * <ul>
+ *     <li>{@code none}: answer immediately</li>
+ *     <li>{@code fixed:20ms}: always the same latency</li>
+ *     <li>{@code uniform:10ms-50ms}: uniformly distributed between two latencies</li>
+ *     <li>{@code exponential:20ms}: exponentially distributed with the given mean</li>
+ *     <li>{@code lognormal:20ms-200ms}: log-normally distributed with the given median and 99th percentile,
+ *     a long-tailed shape typical of real services</li>
+ * </ul>
+ */
+abstract class LatencyDistribution {
+
+    private static final double Z_99 = 2.3263;
+
+    private final String spec;
+
+    private LatencyDistribution(String spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * Samples the distribution.
+     * @return the latency of one response
+     */
+    abstract Duration next();
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    /**
+     * Parses a distribution.
+     * @param spec the distribution, e.g. {@code lognormal:20ms-200ms}
+     * @return the distribution
+     * @throws IllegalArgumentException if the distribution cannot be parsed
+     */
+    static LatencyDistribution parse(String spec) {
+        String[] kindAndArgs = spec.trim().split(":", 2);
+        String kind = kindAndArgs[0];
+        if (kind.equals("none")) {
+            return fixed(spec, Duration.ZERO);
+        }
+        if (kindAndArgs.length < 2) {
+            throw new IllegalArgumentException("Missing parameters for latency distribution " + spec);
+        }
+        String[] args = kindAndArgs[1].split("-");
+        switch (kind) {
+            case "fixed":
+                return fixed(spec, duration(args[0]));
+            case "uniform": {
+                long min = duration(args[0]).toNanos();
+                long max = duration(args[args.length - 1]).toNanos();
+                return new LatencyDistribution(spec) {
+                    @Override
+                    Duration next() {
+                        return Duration.ofNanos(min + (long) (ThreadLocalRandom.current().nextDouble() * (max - min)));
+                    }
+                };
+            }
+            case "exponential": {
+                double mean = duration(args[0]).toNanos();
+                return new LatencyDistribution(spec) {
+                    @Override
+                    Duration next() {
+                        return Duration.ofNanos((long) (-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble())));
+                    }
+                };
+            }
+            case "lognormal": {
+                if (args.length < 2) {
+                    throw new IllegalArgumentException("Expected lognormal:<median>-<p99>, got " + spec);
+                }
+                double mu = Math.log(duration(args[0]).toNanos());
+                double sigma = (Math.log(duration(args[1]).toNanos()) - mu) / Z_99;
+                return new LatencyDistribution(spec) {
+                    @Override
+                    Duration next() {
+                        return Duration.ofNanos((long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution " + spec);
+        }
+    }
+
+    private static LatencyDistribution fixed(String spec, Duration latency) {
+        return new LatencyDistribution(spec) {
+            @Override
+            Duration next() {
+                return latency;
+            }
+        };
+    }
+
+    private static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value.trim());
+    }
+}
@@ -0,0 +1,133 @@
+package com.udacity.loadtest;
+
+import com.udacity.loadtest.Workload.Operation;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the requests of a workload at a constant rate (an open model).
+ *
+ * Requests are scheduled at fixed intervals from the start of the run and sent
+ * asynchronously, so a slow response never delays the requests that follow it.
+ * If the generator itself falls behind, it sends the late requests at once and
+ * their latency is still measured from their scheduled time.
+ */
+class LoadGenerator {
+
+    private final HttpClient client;
+    private final Workload workload;
+    private final Duration timeout;
+
+    LoadGenerator(Workload workload, Duration timeout) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.workload = workload;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Creates cars for the workload to read, update and delete.
+     * @param cars the number of cars to create
+     * @return the number of cars created
+     */
+    int seed(int cars) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < cars; i++) {
+            responses.add(client.sendAsync(workload.request(Operation.POST), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        if (response != null) {
+                            workload.onResponse(Operation.POST, response);
+                        }
+                    }));
+        }
+        int created = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            if (response.handle((r, error) -> r != null && r.statusCode() == 201).join()) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Sends requests for a while and waits for all of them to complete.
+     * @param rate the number of requests to send per second
+     * @param duration how long to send requests for
+     * @return the outcomes per endpoint, and how long the run took
+     * @throws InterruptedException if interrupted while waiting for responses
+     */
+    Result run(double rate, Duration duration) throws InterruptedException {
+        Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new EndpointStats(operation.getEndpoint()));
+        }
+        AtomicInteger inFlight = new AtomicInteger();
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intendedStart = start + (long) (i * intervalNanos);
+            if (intendedStart >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intendedStart - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = workload.next();
+            HttpRequest request = workload.request(operation);
+            EndpointStats endpoint = stats.get(operation);
+            long sent = System.nanoTime();
+            inFlight.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        endpoint.record(intendedStart, sent, System.nanoTime(),
+                                response == null ? 0 : response.statusCode());
+                        if (response != null) {
+                            workload.onResponse(operation, response);
+                        }
+                        inFlight.decrementAndGet();
+                    });
+        }
+        long deadline = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return new Result(stats, System.nanoTime() - start);
+    }
+
+    /**
+     * The outcomes of a run.
+     */
+    static class Result {
+
+        private final Map<Operation, EndpointStats> stats;
+        private final long elapsedNanos;
+
+        Result(Map<Operation, EndpointStats> stats, long elapsedNanos) {
+            this.stats = stats;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        Map<Operation, EndpointStats> getStats() {
+            return stats;
+        }
+
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.udacity.loadtest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.udacity.loadtest.Workload.Operation;
+import com.udacity.vehicles.VehiclesApiApplication;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load tests the vehicles API on its own: starts stand-ins for the pricing and
+ * Maps services, starts the vehicles API against them, seeds it with cars and
+ * sends it a mix of requests to the car endpoints at a constant rate.
+ *
+ * Options, with their defaults:
+ * <ul>
+ *     <li>{@code --load.rate=100}: requests per second</li>
+ *     <li>{@code --load.duration=60s}, {@code --load.warmup=10s}: how long to measure, after warming up</li>
+ *     <li>{@code --load.mix=get:60,list:10,post:10,put:10,delete:10}: the weight of each operation</li>
+ *     <li>{@code --load.cars=100}: the number of cars created before warming up</li>
+ *     <li>{@code --load.timeout=30s}: the time after which a request is abandoned</li>
+ *     <li>{@code --load.output-dir=target/load-test}: where the full histograms are written</li>
+ *     <li>{@code --stub.pricing.latency=lognormal:5ms-50ms}, {@code --stub.pricing.error-rate=0}</li>
+ *     <li>{@code --stub.maps.latency=lognormal:10ms-100ms}, {@code --stub.maps.error-rate=0}</li>
+ * </ul>
+ * See {@link LatencyDistribution} for the latency distributions. All arguments
+ * are also passed on to the vehicles API, e.g.
+ * {@code --spring.main.web-application-type=reactive}.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        // Outside of Spring Boot, Logback logs everything at DEBUG until the application starts.
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        PropertySource<?> options = new SimpleCommandLinePropertySource(args);
+        double rate = Double.parseDouble(option(options, "load.rate", "100"));
+        Duration duration = DurationStyle.detectAndParse(option(options, "load.duration", "60s"));
+        Duration warmup = DurationStyle.detectAndParse(option(options, "load.warmup", "10s"));
+        String mix = option(options, "load.mix", "get:60,list:10,post:10,put:10,delete:10");
+        int cars = Integer.parseInt(option(options, "load.cars", "100"));
+        Duration timeout = DurationStyle.detectAndParse(option(options, "load.timeout", "30s"));
+        Path outputDir = Paths.get(option(options, "load.output-dir", "target/load-test"));
+
+        try (StubServer pricing = StubServer.pricing(
+                LatencyDistribution.parse(option(options, "stub.pricing.latency", "lognormal:5ms-50ms")),
+                Double.parseDouble(option(options, "stub.pricing.error-rate", "0")));
+             StubServer maps = StubServer.maps(
+                LatencyDistribution.parse(option(options, "stub.maps.latency", "lognormal:10ms-100ms")),
+                Double.parseDouble(option(options, "stub.maps.error-rate", "0")));
+             ConfigurableApplicationContext vehiclesApi = start(args, pricing, maps)) {
+
+            URI carsUri = URI.create("http://127.0.0.1:"
+                    + vehiclesApi.getEnvironment().getProperty("local.server.port") + "/cars");
+            Workload workload = new Workload(carsUri, mix, timeout);
+            LoadGenerator generator = new LoadGenerator(workload, timeout);
+
+            System.out.printf("%s%n%s%n", pricing, maps);
+            System.out.printf("created %d of %d cars%n", generator.seed(cars), cars);
+            System.out.printf("warming up for %s at %.0f req/s%n", warmup, rate);
+            generator.run(rate, warmup);
+            System.out.printf("measuring for %s at %.0f req/s, mix %s%n%n", duration, rate, mix);
+            long pricingRequests = pricing.getRequests();
+            long mapsRequests = maps.getRequests();
+            LoadGenerator.Result result = generator.run(rate, duration);
+
+            report(result, outputDir);
+            System.out.printf("%s served %d requests, %s served %d requests%n",
+                    pricing.getName(), pricing.getRequests() - pricingRequests,
+                    maps.getName(), maps.getRequests() - mapsRequests);
+        }
+    }
+
+    /**
+     * Starts the vehicles API on a random port, discovering the stubs instead of
+     * registering with Eureka.
+     */
+    private static ConfigurableApplicationContext start(String[] args, StubServer... stubs) {
+        // System properties, so that they also reach the bootstrap context, and
+        // take precedence over the application.properties of the vehicles API.
+        System.setProperty("server.port", "0");
+        System.setProperty("eureka.client.enabled", "false");
+        System.setProperty("spring.cloud.config.enabled", "false");
+        System.setProperty("spring.main.banner-mode", "off");
+        System.setProperty("logging.level.root", "WARN");
+        // Tomcat mistakes the event loops of the stubs for threads leaked by the application.
+        System.setProperty("logging.level.org.apache.catalina.loader.WebappClassLoaderBase", "ERROR");
+        for (StubServer stub : stubs) {
+            System.setProperty("spring.cloud.discovery.client.simple.instances." + stub.getName() + "[0].uri",
+                    stub.getUri());
+        }
+        return new SpringApplicationBuilder(VehiclesApiApplication.class).run(args);
+    }
+
+    private static void report(LoadGenerator.Result result, Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        long total = 0;
+        for (Map.Entry<Operation, EndpointStats> entry : result.getStats().entrySet()) {
+            EndpointStats stats = entry.getValue();
+            if (stats.getCount() == 0) {
+                continue;
+            }
+            total += stats.getCount();
+            stats.printSummary(System.out, result.getElapsedNanos());
+            stats.writeHistograms(outputDir, entry.getKey().name().toLowerCase(Locale.ROOT));
+        }
+        System.out.printf("%ntotal: %d requests, %.1f req/s%n", total, total * 1e9 / result.getElapsedNanos());
+        System.out.printf("full histograms written to %s%n", outputDir.toAbsolutePath());
+    }
+
+    private static String option(PropertySource<?> options, String name, String defaultValue) {
+        Object value = options.getProperty(name);
+        return value == null ? defaultValue : value.toString();
+    }
+}
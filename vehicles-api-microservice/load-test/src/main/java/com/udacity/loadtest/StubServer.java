@@ -0,0 +1,175 @@
+package com.udacity.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.http.server.HttpServerRoutes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Stands in for the pricing service or the Maps service: answers the endpoints
+ * the vehicles API calls after a latency drawn from a distribution, failing a
+ * share of the requests with 503 Service Unavailable.
+ */
+final class StubServer implements AutoCloseable {
+
+    private static final String ADDRESS =
+            "{\"address\":\"777 Brockton Avenue\",\"city\":\"Abington\",\"state\":\"MA\",\"zip\":\"2351\"}";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String name;
+    private final LatencyDistribution latency;
+    private final double errorRate;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final DisposableServer server;
+
+    private StubServer(String name, LatencyDistribution latency, double errorRate, Routes routes) {
+        this.name = name;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(r -> routes.configure(this, r))
+                .bindNow();
+    }
+
+    /**
+     * Starts a stand-in for the pricing service, which knows a price for every vehicle.
+     * @param latency the latency of each response
+     * @param errorRate the share of requests failed with 503, between 0 and 1
+     * @return the running server
+     */
+    static StubServer pricing(LatencyDistribution latency, double errorRate) {
+        return new StubServer("pricing-service", latency, errorRate, (stub, routes) -> routes
+                .get("/services/price", (request, response) -> stub.respond(response,
+                        Mono.fromCallable(() -> price(Long.valueOf(queryParam(request, "vehicleId"))))))
+                .get("/prices/{id}", (request, response) -> stub.respond(response,
+                        Mono.fromCallable(() -> price(Long.valueOf(request.param("id"))))))
+                .post("/prices/batch", (request, response) -> stub.respond(response,
+                        body(request).map(body -> {
+                            List<Long> vehicleIds = read(body, new TypeReference<List<Long>>() { });
+                            return vehicleIds.stream().map(StubServer::price)
+                                    .collect(Collectors.joining(",", "{\"prices\":[", "],\"missing\":[]}"));
+                        })))
+                .post("/prices", (request, response) -> stub.respond(response, body(request)))
+                .delete("/prices/{id}", (request, response) -> stub.respond(response, Mono.just(""))));
+    }
+
+    /**
+     * Starts a stand-in for the Maps service, which resolves every coordinate to the same address.
+     * @param latency the latency of each response
+     * @param errorRate the share of requests failed with 503, between 0 and 1
+     * @return the running server
+     */
+    static StubServer maps(LatencyDistribution latency, double errorRate) {
+        return new StubServer("boggle-maps", latency, errorRate, (stub, routes) -> routes
+                .get("/maps", (request, response) -> stub.respond(response, Mono.just(ADDRESS)))
+                .post("/maps/batch", (request, response) -> stub.respond(response,
+                        body(request).map(body -> {
+                            int count = read(body, new TypeReference<List<JsonNode>>() { }).size();
+                            return "[" + String.join(",", Collections.nCopies(count, ADDRESS)) + "]";
+                        }))));
+    }
+
+    /**
+     * @return the service ID the vehicles API looks this service up by
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return the base URI of the server
+     */
+    String getUri() {
+        return "http://127.0.0.1:" + server.port();
+    }
+
+    long getRequests() {
+        return requests.get();
+    }
+
+    long getErrors() {
+        return errors.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: latency %s, error rate %.2f%%", name, latency, errorRate * 100);
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+    }
+
+    /**
+     * Sends the body once the request has been read and the drawn latency has
+     * elapsed, or fails the request instead.
+     */
+    private Publisher<Void> respond(HttpServerResponse response, Mono<String> body) {
+        requests.incrementAndGet();
+        boolean fail = ThreadLocalRandom.current().nextDouble() < errorRate;
+        return body.delayUntil(ignored -> Mono.delay(latency.next()))
+                .flatMap(content -> {
+                    if (fail) {
+                        errors.incrementAndGet();
+                        return response.status(HttpResponseStatus.SERVICE_UNAVAILABLE).send().then();
+                    }
+                    return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                            .sendString(Mono.just(content))
+                            .then();
+                });
+    }
+
+    private static Mono<String> body(HttpServerRequest request) {
+        return request.receive().aggregate().asString().defaultIfEmpty("");
+    }
+
+    private static String queryParam(HttpServerRequest request, String name) {
+        List<String> values = new QueryStringDecoder(request.uri()).parameters().get(name);
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("Missing query parameter " + name);
+        }
+        return values.get(0);
+    }
+
+    private static String price(Long vehicleId) {
+        return "{\"currency\":\"USD\",\"price\":" + (5000 + vehicleId % 20000) + ".55,\"vehicleId\":" + vehicleId + "}";
+    }
+
+    private static <T> T read(String json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Declares the endpoints of a stub, answered through {@link #respond}.
+     */
+    @FunctionalInterface
+    private interface Routes {
+        HttpServerRoutes configure(StubServer stub, HttpServerRoutes routes);
+    }
+}
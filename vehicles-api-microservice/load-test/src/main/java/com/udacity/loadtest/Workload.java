@@ -0,0 +1,190 @@
+package com.udacity.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A mix of requests to the car endpoints, drawn at random in fixed proportions.
+ *
+ * The workload keeps track of the cars it created, so that reads, updates and
+ * deletes target existing cars. Each car is deleted at most once; reads and
+ * updates racing with a delete may still find the car gone.
+ */
+class Workload {
+
+    /**
+     * An endpoint of the vehicles API exercised by the workload.
+     */
+    enum Operation {
+        GET("GET /cars/{id}"),
+        LIST("GET /cars"),
+        POST("POST /cars"),
+        PUT("PUT /cars/{id}"),
+        DELETE("DELETE /cars/{id}");
+
+        private final String endpoint;
+
+        Operation(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        String getEndpoint() {
+            return endpoint;
+        }
+    }
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final URI cars;
+    private final Duration timeout;
+    private final Operation[] operations;
+    private final double[] cumulativeWeights;
+    private final List<Long> ids = new ArrayList<>();
+
+    /**
+     * Creates a workload.
+     * @param cars the URI of the car collection, e.g. {@code http://127.0.0.1:8080/cars}
+     * @param mix the weight of each operation, e.g. {@code get:60,list:10,post:10,put:10,delete:10}
+     * @param timeout the time after which a request is abandoned
+     */
+    Workload(URI cars, String mix, Duration timeout) {
+        this.cars = cars;
+        this.timeout = timeout;
+        Map<Operation, Double> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] operationAndWeight = entry.trim().split(":");
+            if (operationAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected <operation>:<weight>, got " + entry);
+            }
+            weights.put(Operation.valueOf(operationAndWeight[0].trim().toUpperCase(Locale.ROOT)),
+                    Double.valueOf(operationAndWeight[1]));
+        }
+        this.operations = weights.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new double[operations.length];
+        double total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("The workload mix " + mix + " has no positive weight");
+        }
+    }
+
+    /**
+     * Draws the next operation. Operations on an existing car become creations
+     * while no car is known.
+     * @return the operation
+     */
+    Operation next() {
+        double draw = ThreadLocalRandom.current().nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int i = 0;
+        while (cumulativeWeights[i] <= draw && i < cumulativeWeights.length - 1) {
+            i++;
+        }
+        Operation operation = operations[i];
+        if (operation != Operation.POST && operation != Operation.LIST && size() == 0) {
+            return Operation.POST;
+        }
+        return operation;
+    }
+
+    /**
+     * Builds a request for an operation.
+     * @param operation the operation
+     * @return the request
+     */
+    HttpRequest request(Operation operation) {
+        switch (operation) {
+            case GET:
+                return builder(item(randomId())).GET().build();
+            case LIST:
+                return builder(URI.create(cars + "?limit=20")).GET().build();
+            case POST:
+                return builder(cars).header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(randomCar())).build();
+            case PUT:
+                return builder(item(randomId())).header("Content-Type", "application/json")
+                        .PUT(HttpRequest.BodyPublishers.ofString(randomCar())).build();
+            case DELETE:
+                return builder(item(removeRandomId())).DELETE().build();
+            default:
+                throw new IllegalArgumentException("Unknown operation " + operation);
+        }
+    }
+
+    /**
+     * Remembers the cars created by the workload.
+     * @param operation the operation that was sent
+     * @param response the response to it
+     */
+    void onResponse(Operation operation, HttpResponse<String> response) {
+        if (operation == Operation.POST && response.statusCode() == 201) {
+            try {
+                JsonNode id = objectMapper.readTree(response.body()).get("id");
+                if (id != null) {
+                    add(id.asLong());
+                }
+            } catch (IOException e) {
+                // The response is still recorded, the car is just never reused.
+            }
+        }
+    }
+
+    private HttpRequest.Builder builder(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(timeout).header("Accept", "application/json");
+    }
+
+    private URI item(long id) {
+        return URI.create(cars + "/" + id);
+    }
+
+    private synchronized void add(long id) {
+        ids.add(id);
+    }
+
+    private synchronized int size() {
+        return ids.size();
+    }
+
+    private synchronized long randomId() {
+        return ids.isEmpty() ? 0 : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private synchronized long removeRandomId() {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int i = ThreadLocalRandom.current().nextInt(ids.size());
+        long id = ids.get(i);
+        ids.set(i, ids.get(ids.size() - 1));
+        ids.remove(ids.size() - 1);
+        return id;
+    }
+
+    /**
+     * Creates a car somewhere around Abington, MA, so that most cars need a new address.
+     */
+    private static String randomCar() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.format(Locale.ROOT, "{\"condition\":\"USED\","
+                        + "\"details\":{\"body\":\"sedan\",\"model\":\"Impala\","
+                        + "\"manufacturer\":{\"code\":101,\"name\":\"Chevrolet\"},\"numberOfDoors\":4,"
+                        + "\"fuelType\":\"Gasoline\",\"engine\":\"3.6L V6\",\"mileage\":%d,"
+                        + "\"modelYear\":2018,\"productionYear\":2018,\"externalColor\":\"white\"},"
+                        + "\"location\":{\"lat\":%.6f,\"lon\":%.6f}}",
+                random.nextInt(100000), 42.1 + random.nextDouble() * 0.1, -70.95 + random.nextDouble() * 0.1);
+    }
+}
@@ -0,0 +1,46 @@
+package com.udacity.pricing.api;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Caps the number of items a batch request may carry at {@code pricing.batch.max-size}.
+ */
+@Component
+class BatchLimit {
+
+    @Value("${pricing.batch.max-size:1000}")
+    private int maxBatchSize = 1000;
+
+    /**
+     * Gets the distinct vehicle IDs of a batch lookup, in the order requested.
+     * @param vehicleIds the requested IDs, possibly repeated or null
+     * @return the distinct IDs, without null
+     * @throws ResponseStatusException with 400 if there are more than the maximum
+     */
+    Set<Long> vehicleIds(List<Long> vehicleIds) {
+        Set<Long> requested = new LinkedHashSet<>(vehicleIds);
+        requested.remove(null);
+        check(requested.size(), "vehicle IDs can be requested");
+        return requested;
+    }
+
+    /**
+     * Rejects a batch of more than the maximum number of items.
+     * @param size the number of items in the batch
+     * @param action what can be done with the items, e.g. "prices can be stored"
+     * @throws ResponseStatusException with 400 if there are more than the maximum
+     */
+    void check(int size, String action) {
+        if (size > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " " + action + " at once");
+        }
+    }
+}
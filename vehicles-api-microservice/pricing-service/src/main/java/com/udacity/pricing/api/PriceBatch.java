@@ -0,0 +1,39 @@
+package com.udacity.pricing.api;
+
+import com.udacity.pricing.domain.price.Price;
+
+import java.util.List;
+
+/**
+ * Holds the result of a batch price lookup: the prices that were found,
+ * and the vehicle IDs for which no price is stored.
+ */
+public class PriceBatch {
+
+    private List<Price> prices;
+    private List<Long> missing;
+
+    public PriceBatch() {
+    }
+
+    public PriceBatch(List<Price> prices, List<Long> missing) {
+        this.prices = prices;
+        this.missing = missing;
+    }
+
+    public List<Price> getPrices() {
+        return prices;
+    }
+
+    public void setPrices(List<Price> prices) {
+        this.prices = prices;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<Long> missing) {
+        this.missing = missing;
+    }
+}
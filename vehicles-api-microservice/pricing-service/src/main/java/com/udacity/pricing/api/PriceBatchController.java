@@ -0,0 +1,60 @@
+package com.udacity.pricing.api;
+
+import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implements a REST-based controller to look up or store many prices in one request.
+ */
+@RestController
+@RequestMapping("/prices/batch")
+public class PriceBatchController {
+
+    private final PriceRepository repository;
+    private final BatchLimit limit;
+
+    public PriceBatchController(PriceRepository repository, BatchLimit limit) {
+        this.repository = repository;
+        this.limit = limit;
+    }
+
+    /**
+     * Gets the stored prices of the requested vehicles.
+     * @param vehicleIds ID numbers of the vehicles for which prices are requested
+     * @return the prices that were found, and the IDs that have no price
+     */
+    @PostMapping
+    public PriceBatch get(@RequestBody List<Long> vehicleIds) {
+        Set<Long> requested = limit.vehicleIds(vehicleIds);
+
+        List<Price> prices = new ArrayList<>(requested.size());
+        repository.findAllById(requested).forEach(prices::add);
+        prices.forEach(price -> requested.remove(price.getVehicleId()));
+
+        return new PriceBatch(prices, new ArrayList<>(requested));
+    }
+
+    /**
+     * Stores the prices of many vehicles, replacing any they already have.
+     * @param prices the prices to store, each with the ID of its vehicle
+     * @return the stored prices
+     */
+    @PutMapping
+    public List<Price> put(@RequestBody List<Price> prices) {
+        limit.check(prices.size(), "prices can be stored");
+        if (prices.stream().anyMatch(price -> price == null || price.getVehicleId() == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every price needs a vehicle ID");
+        }
+
+        List<Price> stored = new ArrayList<>(prices.size());
+        repository.saveAll(prices).forEach(stored::add);
+        return stored;
+    }
+}
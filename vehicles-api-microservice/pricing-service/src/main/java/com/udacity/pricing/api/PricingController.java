@@ -7,6 +7,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 /**
  * Implements a REST-based controller for the pricing service.
  */
@@ -14,6 +18,12 @@ import org.springframework.web.server.ResponseStatusException;
 @RequestMapping("/services/price")
 public class PricingController {
 
+    private final BatchLimit limit;
+
+    public PricingController(BatchLimit limit) {
+        this.limit = limit;
+    }
+
     /**
      * Gets the price for a requested vehicle.
      * @param vehicleId ID number of the vehicle for which the price is requested
@@ -29,4 +39,25 @@ public class PricingController {
         }
 
     }
+
+    /**
+     * Gets the prices for many vehicles in one request.
+     * @param vehicleIds ID numbers of the vehicles for which prices are requested
+     * @return the prices that were found, and the IDs that have none
+     */
+    @PostMapping("/batch")
+    public PriceBatch getAll(@RequestBody List<Long> vehicleIds) {
+        Set<Long> requested = limit.vehicleIds(vehicleIds);
+
+        List<Price> prices = new ArrayList<>(requested.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long vehicleId : requested) {
+            try {
+                prices.add(PricingService.getPrice(vehicleId));
+            } catch (PriceException ex) {
+                missing.add(vehicleId);
+            }
+        }
+        return new PriceBatch(prices, missing);
+    }
 }
@@ -1,6 +1,8 @@
 package com.udacity.pricing;
 
+import com.udacity.pricing.api.PriceBatch;
 import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceRepository;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -9,17 +11,26 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"eureka.client.enabled=false", "pricing.batch.max-size=3"})
 @AutoConfigureMockMvc
 public class PricingServiceApplicationTests {
 
@@ -29,6 +40,8 @@ public class PricingServiceApplicationTests {
 	@Autowired
 	private TestRestTemplate restTemplate;
 
+	@Autowired
+	private PriceRepository priceRepository;
 
 	@Test
 	public void getPrice() {
@@ -40,4 +53,76 @@ public class PricingServiceApplicationTests {
 		Assert.assertEquals(true, response.getBody().getPrice().compareTo(BigDecimal.ZERO) > 0);
 	}
 
+	@Test
+	public void getPriceBatch() {
+		priceRepository.save(new Price("USD", new BigDecimal("12345.67"), 1001L));
+		priceRepository.save(new Price("USD", new BigDecimal("7654.32"), 1002L));
+
+		ResponseEntity<PriceBatch> response = this.restTemplate.postForEntity("http://localhost:" +
+				port + "/prices/batch", Arrays.asList(1001L, 1002L, 1003L), PriceBatch.class);
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(response.getBody().getPrices().size(), equalTo(2));
+		assertThat(response.getBody().getMissing(), equalTo(Collections.singletonList(1003L)));
+	}
+
+	@Test
+	public void getPriceQuoteBatch() {
+		ResponseEntity<PriceBatch> response = this.restTemplate.postForEntity("http://localhost:" +
+				port + "/services/price/batch", Arrays.asList(1L, 2L, 5000L), PriceBatch.class);
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(response.getBody().getPrices().size(), equalTo(2));
+		assertThat(response.getBody().getPrices().get(1).getVehicleId(), equalTo(2L));
+		assertThat(response.getBody().getMissing(), equalTo(Collections.singletonList(5000L)));
+	}
+
+	@Test
+	public void putPriceBatch() {
+		List<Price> prices = Arrays.asList(new Price("USD", new BigDecimal("1000.00"), 2001L),
+				new Price("USD", new BigDecimal("2000.00"), 2002L));
+
+		ResponseEntity<Price[]> response = this.restTemplate.exchange("http://localhost:" +
+				port + "/prices/batch", HttpMethod.PUT, new HttpEntity<>(prices), Price[].class);
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(response.getBody().length, equalTo(2));
+		assertThat(priceRepository.findById(2002L).get().getPrice(), equalTo(new BigDecimal("2000.00")));
+	}
+
+	@Test
+	public void rejectsBatchesOverMaxSize() {
+		List<Long> vehicleIds = Arrays.asList(1L, 2L, 3L, 4L, 4L);
+		assertThat(this.restTemplate.postForEntity("http://localhost:" + port + "/prices/batch",
+				vehicleIds, String.class).getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(this.restTemplate.postForEntity("http://localhost:" + port + "/services/price/batch",
+				vehicleIds, String.class).getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(this.restTemplate.postForEntity("http://localhost:" + port + "/services/price/batch",
+				Arrays.asList(1L, 2L, 2L, 3L), String.class).getStatusCode(), equalTo(HttpStatus.OK));
+
+		List<Price> prices = Arrays.asList(new Price("USD", BigDecimal.ONE, 3001L),
+				new Price("USD", BigDecimal.ONE, 3002L), new Price("USD", BigDecimal.ONE, 3003L),
+				new Price("USD", BigDecimal.ONE, 3004L));
+		ResponseEntity<String> response = this.restTemplate.exchange("http://localhost:" +
+				port + "/prices/batch", HttpMethod.PUT, new HttpEntity<>(prices), String.class);
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+		assertThat(priceRepository.existsById(3001L), equalTo(false));
+	}
+
+	@Test
+	public void recordsSpansOfSampledTraces() {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+		ResponseEntity<String> response = this.restTemplate.exchange("http://localhost:" +
+				port + "/services/price?vehicleId=1", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+		assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+		assertThat(response.getHeaders().getFirst("traceresponse"),
+				startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-"));
+
+		ResponseEntity<List> spans = this.restTemplate.getForEntity("http://localhost:" +
+				port + "/actuator/traces/4bf92f3577b34da6a3ce929d0e0e4736", List.class);
+		assertThat(spans.getBody().size(), equalTo(1));
+		Map<?, ?> span = (Map<?, ?>) spans.getBody().get(0);
+		assertThat(span.get("service"), equalTo("pricing-service"));
+		assertThat(span.get("parentId"), equalTo("00f067aa0ba902b7"));
+		assertThat(span.get("name"), equalTo("GET /services/price"));
+	}
+
 }
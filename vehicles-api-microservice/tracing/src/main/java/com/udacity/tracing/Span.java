@@ -0,0 +1,97 @@
+package com.udacity.tracing;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * A finished span: one request handled by this service ({@code SERVER}),
+ * or one request it sent to another service ({@code CLIENT}).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Span {
+
+    public enum Kind {
+        SERVER, CLIENT
+    }
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentId;
+    private final String service;
+    private final Kind kind;
+    private final String name;
+    private final String remote;
+    private final Instant start;
+    private final long durationMicros;
+    private final int status;
+    private final String error;
+
+    public Span(TraceContext context, String parentId, String service, Kind kind, String name,
+                String remote, Instant start, long durationMicros, int status, String error) {
+        this.traceId = context.getTraceId();
+        this.spanId = context.getSpanId();
+        this.parentId = parentId;
+        this.service = service;
+        this.kind = kind;
+        this.name = name;
+        this.remote = remote;
+        this.start = start;
+        this.durationMicros = durationMicros;
+        this.status = status;
+        this.error = error;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public String getParentId() {
+        return parentId;
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the client address for a server span, or the instance called for a client span.
+     */
+    public String getRemote() {
+        return remote;
+    }
+
+    public Instant getStart() {
+        return start;
+    }
+
+    public long getDurationMicros() {
+        return durationMicros;
+    }
+
+    /**
+     * Gets the HTTP status of the response, or 0 if none was received.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the error that ended the span, if any.
+     */
+    public String getError() {
+        return error;
+    }
+}
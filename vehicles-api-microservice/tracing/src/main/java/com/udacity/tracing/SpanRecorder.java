@@ -0,0 +1,87 @@
+package com.udacity.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps the most recent sampled spans in a fixed-size ring buffer, overwriting
+ * the oldest ones once it is full. Recording a span is a single array write,
+ * so tracing adds next to nothing to the requests it follows.
+ *
+ * Only a fraction of new traces, set by {@code tracing.sample-rate}, is sampled;
+ * traces started by another service follow the sampling decision it made.
+ */
+public class SpanRecorder {
+
+    private final String service;
+    private final double sampleRate;
+    private final AtomicReferenceArray<Span> spans;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * Creates a recorder for the spans of a service.
+     * @param service the name of the service, as recorded with each span
+     * @param sampleRate the fraction of new traces sampled, between 0 and 1
+     * @param bufferSize the number of spans kept
+     */
+    public SpanRecorder(String service, double sampleRate, int bufferSize) {
+        this.service = service;
+        this.sampleRate = sampleRate;
+        this.spans = new AtomicReferenceArray<>(bufferSize);
+    }
+
+    public String getService() {
+        return service;
+    }
+
+    /**
+     * Decides whether a new trace is sampled.
+     */
+    public boolean sample() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * Records a finished span. Callers only create spans of sampled traces.
+     * @param span the span
+     */
+    public void record(Span span) {
+        spans.set((int) (next.getAndIncrement() % spans.length()), span);
+    }
+
+    /**
+     * Gets the most recently recorded spans, newest first.
+     * @param limit the maximum number of spans to return
+     */
+    public List<Span> recent(int limit) {
+        List<Span> recent = new ArrayList<>();
+        long last = next.get() - 1;
+        for (long i = last; i >= 0 && i > last - spans.length() && recent.size() < limit; i--) {
+            Span span = spans.get((int) (i % spans.length()));
+            if (span != null) {
+                recent.add(span);
+            }
+        }
+        return recent;
+    }
+
+    /**
+     * Gets the recorded spans of a trace, in the order they started.
+     * @param traceId the id of the trace
+     */
+    public List<Span> trace(String traceId) {
+        List<Span> trace = new ArrayList<>();
+        for (int i = 0; i < spans.length(); i++) {
+            Span span = spans.get(i);
+            if (span != null && span.getTraceId().equals(traceId)) {
+                trace.add(span);
+            }
+        }
+        trace.sort(Comparator.comparing(Span::getStart));
+        return trace;
+    }
+}
@@ -0,0 +1,136 @@
+package com.udacity.tracing;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Identifies a span within a trace, as carried by the W3C {@code traceparent} header:
+ * {@code 00-<32 hex trace id>-<16 hex span id>-<2 hex flags>}.
+ *
+ * The context of the request being handled is kept in a thread local, so that
+ * requests a service sends while handling it can join the same trace.
+ */
+public final class TraceContext {
+
+    public static final String TRACEPARENT = "traceparent";
+    public static final String TRACERESPONSE = "traceresponse";
+
+    private static final Pattern TRACEPARENT_PATTERN =
+            Pattern.compile("[0-9a-f]{2}-[0-9a-f]{32}-[0-9a-f]{16}-[0-9a-f]{2}(-.*)?");
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+
+    private static final ThreadLocal<TraceContext> CURRENT = new ThreadLocal<>();
+
+    private final String traceId;
+    private final String spanId;
+    private final boolean sampled;
+
+    private TraceContext(String traceId, String spanId, boolean sampled) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.sampled = sampled;
+    }
+
+    /**
+     * Starts a new trace.
+     * @param sampled whether the spans of the trace are recorded
+     * @return the context of the root span
+     */
+    public static TraceContext root(boolean sampled) {
+        return new TraceContext(randomHex(2), randomHex(1), sampled);
+    }
+
+    /**
+     * Parses a {@code traceparent} header.
+     * @param traceparent the header value, may be null
+     * @return the context it carries, or empty if it is missing or malformed
+     */
+    public static Optional<TraceContext> parse(String traceparent) {
+        if (traceparent == null) {
+            return Optional.empty();
+        }
+        String value = traceparent.trim();
+        if (!TRACEPARENT_PATTERN.matcher(value).matches() || value.startsWith("ff")) {
+            return Optional.empty();
+        }
+        String traceId = value.substring(3, 35);
+        String spanId = value.substring(36, 52);
+        if (traceId.equals(INVALID_TRACE_ID) || spanId.equals(INVALID_SPAN_ID)) {
+            return Optional.empty();
+        }
+        boolean sampled = (Integer.parseInt(value.substring(53, 55), 16) & 1) == 1;
+        return Optional.of(new TraceContext(traceId, spanId, sampled));
+    }
+
+    /**
+     * Gets the context of the span in progress on this thread.
+     */
+    public static Optional<TraceContext> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Makes a context the current one on this thread.
+     * @param context the new context, or null to clear it
+     * @return the context it replaces, to be restored afterwards
+     */
+    public static TraceContext makeCurrent(TraceContext context) {
+        TraceContext previous = CURRENT.get();
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+        return previous;
+    }
+
+    /**
+     * Creates the context of a new span within the same trace.
+     */
+    public TraceContext child() {
+        return new TraceContext(traceId, randomHex(1), sampled);
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getSpanId() {
+        return spanId;
+    }
+
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * Formats this context as a {@code traceparent} header value.
+     */
+    public String toTraceparent() {
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+
+    @Override
+    public String toString() {
+        return toTraceparent();
+    }
+
+    private static String randomHex(int longs) {
+        StringBuilder hex = new StringBuilder(longs * 16);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < longs; i++) {
+            long value;
+            do {
+                value = random.nextLong();
+            } while (value == 0);
+            String digits = Long.toHexString(value);
+            for (int pad = digits.length(); pad < 16; pad++) {
+                hex.append('0');
+            }
+            hex.append(digits);
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,42 @@
+package com.udacity.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * Exposes the spans kept by the {@link SpanRecorder} at {@code /actuator/traces}:
+ * the most recent spans, or all spans of one trace at {@code /actuator/traces/{traceId}}.
+ */
+@Endpoint(id = "traces")
+public class TracesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final SpanRecorder recorder;
+
+    public TracesEndpoint(SpanRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Gets the most recently recorded spans, newest first.
+     * @param limit the maximum number of spans to return, 100 by default
+     */
+    @ReadOperation
+    public List<Span> recent(@Nullable Integer limit) {
+        return recorder.recent(limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    /**
+     * Gets the recorded spans of a trace, in the order they started.
+     * @param traceId the id of the trace, as found in a {@code traceresponse} header
+     */
+    @ReadOperation
+    public List<Span> trace(@Selector String traceId) {
+        return recorder.trace(traceId);
+    }
+}
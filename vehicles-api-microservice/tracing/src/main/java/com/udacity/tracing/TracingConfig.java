@@ -0,0 +1,34 @@
+package com.udacity.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sets up tracing in every service depending on this module: the {@link SpanRecorder},
+ * the {@link TracesEndpoint}, and the {@link TracingFilter} in front of every request.
+ * The filter applies to the servlet stack only.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public SpanRecorder spanRecorder(@Value("${spring.application.name}") String service,
+                                     @Value("${tracing.sample-rate:0.1}") double sampleRate,
+                                     @Value("${tracing.buffer-size:10000}") int bufferSize) {
+        return new SpanRecorder(service, sampleRate, bufferSize);
+    }
+
+    @Bean
+    public TracesEndpoint tracesEndpoint(SpanRecorder recorder) {
+        return new TracesEndpoint(recorder);
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public TracingFilter tracingFilter(SpanRecorder recorder,
+                                       @Value("${management.endpoints.web.base-path:/actuator}") String actuatorPath) {
+        return new TracingFilter(recorder, actuatorPath);
+    }
+}
@@ -0,0 +1,94 @@
+package com.udacity.tracing;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records a {@code SERVER} span for every request handled within a sampled trace.
+ *
+ * A request carrying a valid {@code traceparent} header joins the trace of the
+ * caller; any other request starts a new trace, sampled at {@code tracing.sample-rate}.
+ * The context is made current while the request is handled, and returned to the
+ * caller in a {@code traceresponse} header so that the trace can be looked up.
+ * Requests to the actuator endpoints are not traced.
+ */
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final SpanRecorder recorder;
+    private final String actuatorPath;
+
+    public TracingFilter(SpanRecorder recorder, String actuatorPath) {
+        this.recorder = recorder;
+        this.actuatorPath = actuatorPath;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + actuatorPath);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Optional<TraceContext> parent = TraceContext.parse(request.getHeader(TraceContext.TRACEPARENT));
+        TraceContext context = parent.map(TraceContext::child).orElseGet(() -> TraceContext.root(recorder.sample()));
+        response.setHeader(TraceContext.TRACERESPONSE, context.toTraceparent());
+        Instant start = Instant.now();
+        long startNanos = System.nanoTime();
+        TraceContext previous = TraceContext.makeCurrent(context);
+        String error = null;
+        try {
+            chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            error = e.toString();
+            throw e;
+        } finally {
+            TraceContext.makeCurrent(previous);
+            if (context.isSampled()) {
+                String parentId = parent.map(TraceContext::getSpanId).orElse(null);
+                if (isAsyncStarted(request)) {
+                    request.getAsyncContext().addListener(new AsyncListener() {
+                        @Override
+                        public void onComplete(AsyncEvent event) {
+                            record(context, parentId, request, response, start, startNanos, null);
+                        }
+
+                        @Override
+                        public void onTimeout(AsyncEvent event) {
+                        }
+
+                        @Override
+                        public void onError(AsyncEvent event) {
+                        }
+
+                        @Override
+                        public void onStartAsync(AsyncEvent event) {
+                        }
+                    });
+                } else {
+                    record(context, parentId, request, response, start, startNanos, error);
+                }
+            }
+        }
+    }
+
+    private void record(TraceContext context, String parentId, HttpServletRequest request,
+                        HttpServletResponse response, Instant start, long startNanos, String error) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String name = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        recorder.record(new Span(context, parentId, recorder.getService(), Span.Kind.SERVER, name,
+                request.getRemoteAddr(), start, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos),
+                error == null ? response.getStatus() : 0, error));
+    }
+}
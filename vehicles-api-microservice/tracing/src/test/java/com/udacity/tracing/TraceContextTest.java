@@ -0,0 +1,61 @@
+package com.udacity.tracing;
+
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Implements testing of the TraceContext class.
+ */
+public class TraceContextTest {
+
+    /**
+     * Tests that a traceparent header is parsed and formatted back unchanged.
+     */
+    @Test
+    public void parsesTraceparent() {
+        String traceparent = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+        TraceContext context = TraceContext.parse(traceparent).get();
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", context.getTraceId());
+        assertEquals("00f067aa0ba902b7", context.getSpanId());
+        assertTrue(context.isSampled());
+        assertEquals(traceparent, context.toTraceparent());
+        assertFalse(TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00").get().isSampled());
+    }
+
+    /**
+     * Tests that malformed or invalid headers are ignored.
+     */
+    @Test
+    public void ignoresInvalidTraceparent() {
+        assertEquals(Optional.empty(), TraceContext.parse(null));
+        assertEquals(Optional.empty(), TraceContext.parse("garbage"));
+        assertEquals(Optional.empty(), TraceContext.parse("00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01"));
+        assertEquals(Optional.empty(), TraceContext.parse("00-00000000000000000000000000000000-00f067aa0ba902b7-01"));
+        assertEquals(Optional.empty(), TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01"));
+        assertEquals(Optional.empty(), TraceContext.parse("ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"));
+    }
+
+    /**
+     * Tests that a child span stays in the trace and keeps its sampling decision.
+     */
+    @Test
+    public void childJoinsTrace() {
+        TraceContext root = TraceContext.root(true);
+        TraceContext child = root.child();
+
+        assertEquals(32, root.getTraceId().length());
+        assertEquals(16, root.getSpanId().length());
+        assertEquals(root.getTraceId(), child.getTraceId());
+        assertNotEquals(root.getSpanId(), child.getSpanId());
+        assertTrue(child.isSampled());
+        assertEquals(child.getTraceId(), TraceContext.parse(child.toTraceparent()).get().getTraceId());
+    }
+}
@@ -1,14 +1,14 @@
 package com.udacity.vehicles;
 
+import com.udacity.vehicles.client.DownstreamMetrics;
+import com.udacity.vehicles.client.DownstreamTracing;
+import com.udacity.vehicles.client.loadbalancer.LatencyAwareLoadBalancer;
 import com.udacity.vehicles.domain.manufacturer.Manufacturer;
 import com.udacity.vehicles.domain.manufacturer.ManufacturerRepository;
 import org.modelmapper.ModelMapper;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.cloud.client.loadbalancer.LoadBalanced;
-import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
-import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancerExchangeFilterFunction;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
@@ -50,14 +50,16 @@ public class VehiclesApiApplication {
     }
 
     /**
-     * Web Client for the maps (location) API
+     * Web Client for the maps (location) and pricing APIs, balancing requests
+     * across the discovered instances of each service, timing each request
+     * sent to an instance and passing the current trace on to it.
      *
      * @return created maps endpoint
      */
-    @LoadBalanced
     @Bean
-    public WebClient loadBalancedWebClient(LoadBalancerClient loadBalancerClient) {
-        return (WebClient.builder().filter(new LoadBalancerExchangeFilterFunction(loadBalancerClient)).build());
+    public WebClient loadBalancedWebClient(LatencyAwareLoadBalancer loadBalancer, DownstreamMetrics metrics,
+                                           DownstreamTracing tracing) {
+        return WebClient.builder().filter(loadBalancer).filter(metrics).filter(tracing).build();
     }
 
 
@@ -1,60 +1,222 @@
 package com.udacity.vehicles.api;
 
 
-import com.netflix.discovery.EurekaClient;
 import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarSearch;
 import com.udacity.vehicles.service.CarService;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Implements a REST-based controller for the Vehicles API.
+ *
+ * Vehicles and pages of vehicles whose prices are fresh carry a strong
+ * {@code ETag}; a conditional {@code GET} matching it is answered with 304
+ * before the vehicles are enriched or rendered.
+ *
+ * Reads can be restricted to some fields with {@code fields}, e.g.
+ * {@code fields=condition,details.model}: only those fields are rendered, the
+ * price is only looked up if it is one of them, and the {@code ETag} depends on them.
+ *
+ * Vehicles can be searched by their details and condition on {@code /cars/search},
+ * with the same paging, fields and conditional requests as the list of all vehicles,
+ * and by their distance to a point on {@code /cars/near}.
+ *
+ * Many vehicles can be created at once on {@code /cars/bulk}, and the whole fleet
+ * exported as CSV or newline delimited JSON on {@code /cars/export}.
  */
 @RestController
 @RequestMapping("/cars")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 class CarController {
 
-    @Autowired
-    EurekaClient discoveryClient;
+    @Value("${cars.page.default-limit:100}")
+    private int defaultPageLimit = 100;
+
+    @Value("${cars.page.max-limit:1000}")
+    private int maxPageLimit = 1000;
+
+    @Value("${cars.near.max-radius-km:100}")
+    private double maxNearRadiusKm = 100;
 
     private final CarService carService;
     private final CarResourceAssembler assembler;
+    private final CarStreamWriter streamWriter;
+    private final CarProjector projector;
+    private final CarImportReader importReader;
+    private final CarExportWriter exportWriter;
 
-    CarController(CarService carService, CarResourceAssembler assembler) {
+    CarController(CarService carService, CarResourceAssembler assembler, CarStreamWriter streamWriter,
+            CarProjector projector, CarImportReader importReader, CarExportWriter exportWriter) {
         this.carService = carService;
         this.assembler = assembler;
+        this.streamWriter = streamWriter;
+        this.projector = projector;
+        this.importReader = importReader;
+        this.exportWriter = exportWriter;
     }
 
     /**
-     * Creates a list to store any vehicles.
-     * @return list of vehicles
+     * Creates a list to store a page of vehicles, ordered by ID.
+     * @param after the ID of the last vehicle of the previous page, if any
+     * @param limit the maximum number of vehicles on the page
+     * @param fields the fields of each vehicle to render, comma separated; all if absent
+     * @param request the request, checked against the entity tag of the page
+     * @return page of vehicles, linking to the next page when there may be one,
+     *   or 304 if the client already holds it
      */
     @GetMapping
-    ResponseEntity<?> list() {
-        String url = discoveryClient.getNextServerFromEureka("PRICING-SERVICE", false).getHomePageUrl();
-        System.out.println(url);
-        List<Resource<Car>> resources = carService.list().stream().map(assembler::toResource)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(resources);
+    ResponseEntity<Resources<? extends ResourceSupport>> list(@RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String fields,
+            WebRequest request) {
+        int pageLimit = limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+        FieldSelection selection = projector.select(fields);
+        return carService.listIfModified(after, pageLimit, selection.enrichments(),
+                tag -> request.checkNotModified(selection.tag(tag)))
+                .<ResponseEntity<Resources<? extends ResourceSupport>>>map(cars -> ResponseEntity.ok(selection.isWhole()
+                        ? assembler.toPage(cars, after, pageLimit)
+                        : assembler.toPage(cars, car -> projector.project(car, selection), after, pageLimit,
+                                selection.toParameter(), CarResourceAssembler.collectionUri())))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+    }
+
+    /**
+     * Searches vehicles by their details and condition, one page at a time.
+     * @param search the criteria of the search, e.g. {@code manufacturer=101&minModelYear=2015}
+     * @param sort the order of the vehicles, e.g. {@code mileage,desc}; by ID if absent
+     * @param after the cursor of the page, as linked from the previous page, if any
+     * @param limit the maximum number of vehicles on the page
+     * @param fields the fields of each vehicle to render, comma separated; all if absent
+     * @param request the request, checked against the entity tag of the page
+     * @return page of matching vehicles, linking to the next page when there may be one,
+     *   or 304 if the client already holds it
+     */
+    @GetMapping("/search")
+    ResponseEntity<Resources<? extends ResourceSupport>> search(CarSearch search,
+            @RequestParam(required = false) String sort, @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String fields,
+            WebRequest request) {
+        int pageLimit = limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+        FieldSelection selection = projector.select(fields);
+        SearchParameters.apply(search, sort, after);
+        return carService.searchIfModified(search, pageLimit, selection.enrichments(),
+                tag -> request.checkNotModified(selection.tag(tag)))
+                .<ResponseEntity<Resources<? extends ResourceSupport>>>map(cars -> ResponseEntity.ok(
+                        assembler.toSearchPage(cars, car -> projector.toResource(car, selection), pageLimit,
+                                ServletUriComponentsBuilder.fromCurrentRequest(),
+                                car -> SearchParameters.cursor(search, car), CarResourceAssembler.collectionUri())))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+    }
+
+    /**
+     * Finds the vehicles nearest to a point, within a radius.
+     * @param lat latitude of the point
+     * @param lon longitude of the point
+     * @param radiusKm the maximum distance of a vehicle to the point, in kilometers,
+     *   up to {@code cars.near.max-radius-km}
+     * @param limit the maximum number of vehicles to return
+     * @param fields the fields of each vehicle to render, comma separated; all if absent
+     * @param request the request, checked against the entity tag of the vehicles
+     * @return the vehicles within the radius, nearest first, or 304 if the client already holds them
+     */
+    @GetMapping("/near")
+    ResponseEntity<Resources<? extends ResourceSupport>> near(@RequestParam double lat, @RequestParam double lon,
+            @RequestParam double radiusKm, @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields, WebRequest request) {
+        int pageLimit = limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+        FieldSelection selection = projector.select(fields);
+        SearchParameters.checkNear(lat, lon, radiusKm, maxNearRadiusKm);
+        return carService.nearIfModified(lat, lon, radiusKm, pageLimit, selection.enrichments(),
+                tag -> request.checkNotModified(selection.tag(tag)))
+                .<ResponseEntity<Resources<? extends ResourceSupport>>>map(cars -> ResponseEntity.ok(
+                        assembler.toResources(cars, car -> projector.toResource(car, selection),
+                                ServletUriComponentsBuilder.fromCurrentRequest(), CarResourceAssembler.collectionUri())))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+    }
+
+    /**
+     * Streams every vehicle, ordered by ID, as newline delimited JSON.
+     * @param after the ID to start after, if any
+     * @return stream of vehicles, one JSON document per line
+     */
+    @GetMapping(produces = {CarStreamWriter.NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) Long after) {
+        return ResponseEntity.ok().contentType(CarStreamWriter.NDJSON).body(streamWriter.ndjson(after));
+    }
+
+    /**
+     * Streams every vehicle, ordered by ID, as Server-Sent Events.
+     * @param after the ID to start after, if any
+     * @param lastEventId the ID of the last vehicle received before reconnecting, if any
+     * @return stream of vehicle events
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    ResponseEntity<StreamingResponseBody> events(@RequestParam(required = false) Long after,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(streamWriter.events(lastEventId != null ? lastEventId : after));
+    }
+
+    /**
+     * Exports every vehicle, ordered by ID, read through a database cursor.
+     * @param format {@code csv} or {@code ndjson}
+     * @param include the data owned by other services to look up and include,
+     *   comma separated: {@code address}, {@code price} or both; none if absent
+     * @param after the ID to start after, if any
+     * @param acceptEncoding the encodings the client accepts; the body is gzip
+     *   compressed if gzip is one of them
+     * @return stream of vehicles, one row or JSON document per line
+     */
+    @GetMapping("/export")
+    ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String include, @RequestParam(required = false) Long after,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CarExportWriter.Format exportFormat = CarExportWriter.Format.parse(format);
+        List<String> columns = CarExportWriter.columns(include);
+        boolean gzip = CarExportWriter.acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=cars." + exportFormat.getExtension())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(exportWriter.export(exportFormat, columns, after, gzip));
     }
 
     /**
      * Gets information of a specific car by ID.
      * @param id the id number of the given vehicle
-     * @return all information for the requested vehicle
+     * @param fields the fields of the vehicle to render, comma separated; all if absent
+     * @param request the request, checked against the entity tag of the vehicle
+     * @return all information for the requested vehicle, or 304 if the client already holds it
      */
     @GetMapping("/{id}")
-    ResponseEntity<Car> get(@PathVariable Long id) {
-        Car car = carService.findById(id);
-        return ResponseEntity.ok(car);
+    ResponseEntity<?> get(@PathVariable Long id, @RequestParam(required = false) String fields,
+            WebRequest request) {
+        FieldSelection selection = projector.select(fields);
+        return carService.findIfModified(id, selection.enrichments(),
+                tag -> request.checkNotModified(selection.tag(tag)))
+                .<ResponseEntity<?>>map(car -> ResponseEntity.ok(selection.isWhole() ? car : projector.project(car, selection)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
     }
 
     /**
@@ -70,6 +232,20 @@ class CarController {
         return ResponseEntity.created(new URI(resource.getId().expand().getHref())).body(resource);
     }
 
+    /**
+     * Creates many new vehicles at once. The whole batch is validated before any
+     * vehicle is stored; the vehicles are then stored and priced a chunk at a time.
+     * @param body the vehicles, as a JSON array or as newline delimited JSON
+     * @return stream of the result of each vehicle, one JSON document per line,
+     *   written as each chunk is stored
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, CarStreamWriter.NDJSON_VALUE})
+    ResponseEntity<StreamingResponseBody> importCars(InputStream body) throws IOException {
+        List<Car> cars = importReader.read(body);
+        return ResponseEntity.ok().contentType(CarStreamWriter.NDJSON).body(streamWriter.imported(cars));
+    }
+
     /**
      * Updates the information of a vehicle in the system.
      * @param id The ID number for which to update vehicle information.
@@ -0,0 +1,257 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.service.CarService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the whole fleet for export, as CSV or as newline delimited JSON, and
+ * gzip compressed if asked for. Cars are read through a database cursor a window
+ * at a time (see {@link CarService#export}), and each window is written and
+ * flushed before the next one is read, so memory use does not grow with the size
+ * of the fleet.
+ *
+ * Both formats carry the same properties of each car: those of {@link #COLUMNS},
+ * followed by the address and the price when included. CSV columns are named
+ * after the property paths, e.g. {@code details.model}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class CarExportWriter {
+
+    /**
+     * The formats a fleet can be exported in.
+     */
+    enum Format {
+        CSV(MediaType.parseMediaType("text/csv;charset=UTF-8"), "\r\n"),
+        NDJSON(CarStreamWriter.NDJSON, "\n");
+
+        private final MediaType mediaType;
+        private final String lineEnd;
+
+        Format(MediaType mediaType, String lineEnd) {
+            this.mediaType = mediaType;
+            this.lineEnd = lineEnd;
+        }
+
+        MediaType getMediaType() {
+            return mediaType;
+        }
+
+        String getExtension() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Parses the value of a {@code format} parameter, ignoring case.
+         * @throws InvalidExportException if the format is unknown
+         */
+        static Format parse(String format) {
+            for (Format value : values()) {
+                if (value.name().equalsIgnoreCase(format.trim())) {
+                    return value;
+                }
+            }
+            throw new InvalidExportException("Unknown format: " + format);
+        }
+    }
+
+    static final List<String> COLUMNS = Arrays.asList("id", "createdAt", "modifiedAt", "condition",
+            "details.body", "details.model", "details.manufacturer.code", "details.manufacturer.name",
+            "details.numberOfDoors", "details.fuelType", "details.engine", "details.mileage",
+            "details.modelYear", "details.productionYear", "details.externalColor",
+            "location.lat", "location.lon");
+
+    private static final List<String> ADDRESS_COLUMNS = Arrays.asList("location.address", "location.city",
+            "location.state", "location.zip");
+
+    private static final String PRICE_COLUMN = "price";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CarService carService;
+    private final CarProjector projector;
+    private final ObjectMapper objectMapper;
+
+    @Value("${cars.export.window-size:1000}")
+    private int windowSize = 1000;
+
+    CarExportWriter(CarService carService, CarProjector projector, ObjectMapper objectMapper) {
+        this.carService = carService;
+        this.projector = projector;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Gets the columns of an export.
+     * @param include the data owned by other services to include, comma separated:
+     *   {@code address}, {@code price} or both; none if null
+     * @return the property paths of the columns, in order
+     * @throws InvalidExportException if an included name is unknown
+     */
+    static List<String> columns(String include) {
+        List<String> columns = new ArrayList<>(COLUMNS);
+        if (include == null) {
+            return columns;
+        }
+        boolean address = false;
+        boolean price = false;
+        for (String name : include.split(",")) {
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "address":
+                    address = true;
+                    break;
+                case "price":
+                    price = true;
+                    break;
+                case "":
+                    break;
+                default:
+                    throw new InvalidExportException("Unknown include: " + name.trim());
+            }
+        }
+        if (address) {
+            columns.addAll(ADDRESS_COLUMNS);
+        }
+        if (price) {
+            columns.add(PRICE_COLUMN);
+        }
+        return columns;
+    }
+
+    /**
+     * Tells whether a client accepts gzip compressed responses.
+     * @param acceptEncoding the value of its {@code Accept-Encoding} header, or null
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")
+                    && !(parts.length > 1 && parts[1].replace(" ", "").matches("q=0(\\.0*)?"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exports the cars following the given ID.
+     * @param format the format to write the cars in
+     * @param columns the property paths to write, from {@link #columns}
+     * @param after the ID to start after, if any
+     * @param gzip whether to compress the body with gzip
+     * @return body writing the cars, preceded by a header row for CSV
+     */
+    StreamingResponseBody export(Format format, List<String> columns, Long after, boolean gzip) {
+        FieldSelection selection = projector.select(String.join(",", columns));
+        List<String[]> paths = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            paths.add(column.split("\\."));
+        }
+        return CarStreamWriter.traced(out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE, true) : out;
+            Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), BUFFER_SIZE);
+            if (format == Format.CSV) {
+                writeCsv(writer, columns);
+                writer.write(format.lineEnd);
+            }
+            try {
+                carService.export(after, windowSize, selection.enrichments(), window -> {
+                    try {
+                        for (Car car : window) {
+                            Map<String, Object> projection = projector.project(car, selection);
+                            if (format == Format.CSV) {
+                                writeCsv(writer, cells(projection, paths));
+                            } else {
+                                writer.write(objectMapper.writeValueAsString(projection));
+                            }
+                            writer.write(format.lineEnd);
+                        }
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        });
+    }
+
+    private List<String> cells(Map<String, Object> projection, List<String[]> paths) {
+        List<String> cells = new ArrayList<>(paths.size());
+        for (String[] path : paths) {
+            Object value = projection;
+            for (String name : path) {
+                value = value instanceof Map ? ((Map<?, ?>) value).get(name) : null;
+            }
+            cells.add(cell(value));
+        }
+        return cells;
+    }
+
+    /**
+     * Formats a value as Jackson writes it in JSON, without the quotes of a string.
+     */
+    private String cell(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        if (value instanceof LocalDateTime) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format((LocalDateTime) value);
+        }
+        JsonNode node = objectMapper.valueToTree(value);
+        return node.isValueNode() ? node.asText() : node.toString();
+    }
+
+    private static void writeCsv(Writer writer, List<String> cells) throws IOException {
+        for (int i = 0; i < cells.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String cell = cells.get(i);
+            if (cell.indexOf(',') < 0 && cell.indexOf('"') < 0 && cell.indexOf('\n') < 0 && cell.indexOf('\r') < 0) {
+                writer.write(cell);
+            } else {
+                writer.write('"');
+                writer.write(cell.replace("\"", "\"\""));
+                writer.write('"');
+            }
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.vehicles.domain.car.Car;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the vehicles of a bulk import, given either as a JSON array or as newline
+ * delimited JSON, and validates all of them before any is stored. A batch holding
+ * an invalid vehicle is rejected as a whole, listing the errors of every vehicle.
+ * A price given with a vehicle must be one the pricing service can store.
+ */
+@Component
+class CarImportReader {
+
+    private static final String VALIDATION_FAILED_MESSAGE = "Validation failed";
+
+    /**
+     * The form of a price the pricing service can store, e.g. {@code USD 12345.67}.
+     */
+    private static final Pattern PRICE = Pattern.compile("[A-Z]{3} \\d+(\\.\\d+)?");
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${cars.import.max-size:100000}")
+    private int maxSize = 100000;
+
+    CarImportReader(ObjectMapper objectMapper, Validator validator) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    /**
+     * Reads and validates the vehicles of a bulk import.
+     * @param body the request body, a JSON array or one JSON document per line
+     * @return the vehicles, in order
+     * @throws InvalidImportException if the body is malformed, holds no vehicle or
+     *   more than {@code cars.import.max-size}, or any vehicle is invalid
+     */
+    List<Car> read(InputStream body) throws IOException {
+        List<Car> cars = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        try (MappingIterator<Car> values = objectMapper.readerFor(Car.class).readValues(body)) {
+            while (values.hasNextValue()) {
+                if (cars.size() == maxSize) {
+                    throw new InvalidImportException("At most " + maxSize + " vehicles can be imported at once", null);
+                }
+                Car car = values.nextValue();
+                int index = cars.size();
+                if (car.getId() != null) {
+                    errors.add("[" + index + "].id: must not be set for a new vehicle");
+                }
+                if (car.getPrice() != null && !PRICE.matcher(car.getPrice()).matches()) {
+                    errors.add("[" + index + "].price: must be a currency code and an amount, e.g. USD 12345.67");
+                }
+                for (ConstraintViolation<Car> violation : validator.validate(car)) {
+                    errors.add("[" + index + "]." + violation.getPropertyPath() + ": " + violation.getMessage());
+                }
+                cars.add(car);
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidImportException("Malformed vehicle at index " + cars.size() + ": "
+                    + e.getOriginalMessage(), null);
+        }
+        if (cars.isEmpty()) {
+            throw new InvalidImportException("No vehicles to import", null);
+        }
+        if (!errors.isEmpty()) {
+            throw new InvalidImportException(VALIDATION_FAILED_MESSAGE, errors);
+        }
+        return cars;
+    }
+}
@@ -0,0 +1,26 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.annotation.JsonAnyGetter;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.hateoas.core.Relation;
+
+import java.util.Map;
+
+/**
+ * A car restricted to the fields asked for, as embedded in a page of cars.
+ * It is embedded under the same relation as whole cars.
+ */
+@Relation(collectionRelation = "carList")
+class CarProjection extends ResourceSupport {
+
+    private final Map<String, Object> fields;
+
+    CarProjection(Map<String, Object> fields) {
+        this.fields = fields;
+    }
+
+    @JsonAnyGetter
+    public Map<String, Object> getFields() {
+        return fields;
+    }
+}
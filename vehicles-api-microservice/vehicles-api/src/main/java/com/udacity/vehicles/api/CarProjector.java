@@ -0,0 +1,113 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.udacity.vehicles.domain.car.Car;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders cars restricted to a {@link FieldSelection}. Only the selected
+ * properties are read from the car and written to the response; the properties
+ * and their names are those Jackson serializes the car with.
+ */
+@Component
+class CarProjector {
+
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, Map<String, BeanPropertyDefinition>> properties = new ConcurrentHashMap<>();
+
+    CarProjector(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Parses and checks the value of a {@code fields} parameter.
+     * @param fields comma separated property paths, e.g. {@code condition,details.model}, or null
+     * @return the selection
+     * @throws InvalidFieldsException if a path does not name a property of a car
+     */
+    FieldSelection select(String fields) {
+        FieldSelection selection = FieldSelection.parse(fields);
+        check(Car.class, selection, "");
+        return selection;
+    }
+
+    /**
+     * Renders the selected properties of a car.
+     * @param car the car
+     * @param selection the selection, not {@link FieldSelection#ALL}
+     * @return the selected properties by name, in the order Jackson writes them
+     */
+    Map<String, Object> project(Car car, FieldSelection selection) {
+        return project((Object) car, selection);
+    }
+
+    /**
+     * Wraps a car for a page of cars, whole or restricted to a selection.
+     * @param car the car
+     * @param selection the selection
+     * @return the car, or its projection if only some of its properties are selected
+     */
+    ResourceSupport toResource(Car car, FieldSelection selection) {
+        return selection.isWhole() ? new Resource<>(car) : new CarProjection(project(car, selection));
+    }
+
+    private Map<String, Object> project(Object bean, FieldSelection selection) {
+        Map<String, Object> projection = new LinkedHashMap<>();
+        for (BeanPropertyDefinition property : properties(bean.getClass()).values()) {
+            FieldSelection selected = selection.get(property.getName());
+            if (selected != null) {
+                Object value = property.getAccessor().getValue(bean);
+                projection.put(property.getName(),
+                        selected.isWhole() || value == null ? value : project(value, selected));
+            }
+        }
+        return projection;
+    }
+
+    private void check(Class<?> type, FieldSelection selection, String prefix) {
+        Map<String, BeanPropertyDefinition> known = properties(type);
+        for (String name : selection.names()) {
+            BeanPropertyDefinition property = known.get(name);
+            if (property == null) {
+                throw new InvalidFieldsException("Unknown field: " + prefix + name);
+            }
+            check(property.getRawPrimaryType(), selection.get(name), prefix + name + ".");
+        }
+    }
+
+    /**
+     * Gets the properties Jackson serializes objects of the given type with,
+     * or none if it does not serialize them as beans (e.g. strings or dates).
+     */
+    private Map<String, BeanPropertyDefinition> properties(Class<?> type) {
+        return properties.computeIfAbsent(type, this::introspect);
+    }
+
+    private Map<String, BeanPropertyDefinition> introspect(Class<?> type) {
+        try {
+            if (!(objectMapper.getSerializerProviderInstance().findValueSerializer(type) instanceof BeanSerializerBase)) {
+                return Collections.emptyMap();
+            }
+        } catch (JsonMappingException e) {
+            return Collections.emptyMap();
+        }
+        Map<String, BeanPropertyDefinition> byName = new LinkedHashMap<>();
+        for (BeanPropertyDefinition property : objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(type)).findProperties()) {
+            if (property.couldSerialize()) {
+                byName.put(property.getName(), property);
+            }
+        }
+        return byName;
+    }
+}
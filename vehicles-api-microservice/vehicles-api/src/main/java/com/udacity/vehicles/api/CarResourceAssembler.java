@@ -1,23 +1,169 @@
 package com.udacity.vehicles.api;
 
 import com.udacity.vehicles.domain.car.Car;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceAssembler;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.hateoas.Resources;
 import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
 
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 
 /**
- * Maps the CarController to the Car class using HATEOAS
+ * Maps the CarController to the Car class using HATEOAS.
+ *
+ * The URI of the car collection is resolved once per response; every other link
+ * is expanded from it by plain string concatenation, rather than by building a
+ * {@code methodOn} proxy and re-reading the request for each link. Cars in a
+ * page only link to themselves, and the page links to the collection once.
  */
 @Component
 public class CarResourceAssembler implements ResourceAssembler<Car, Resource<Car>> {
 
+    static final String CARS_REL = "cars";
+
     @Override
     public Resource<Car> toResource(Car car) {
-        return new Resource<>(car,
-                linkTo(methodOn(CarController.class).get(car.getId())).withSelfRel(),
-                linkTo(methodOn(CarController.class).list()).withRel("cars"));
+        return toResource(car, collectionUri());
+    }
+
+    /**
+     * Wraps a single car, linking to itself and to the car collection.
+     * @param car the car to wrap
+     * @param collectionUri the URI of the car collection, e.g. {@code http://localhost/cars}
+     * @return the car with self and collection links
+     */
+    public Resource<Car> toResource(Car car, String collectionUri) {
+        return new Resource<>(car, selfLink(car, collectionUri), new Link(collectionUri, CARS_REL));
+    }
+
+    /**
+     * Wraps a page of cars, linking to the next page if the current one is full.
+     * @param cars the cars on the page, in ascending ID order
+     * @param after the ID the page starts after, if any
+     * @param limit the maximum number of cars on the page
+     * @return the page of cars, with self, collection and next links
+     */
+    public Resources<Resource<Car>> toPage(List<Car> cars, Long after, int limit) {
+        return toPage(cars, after, limit, collectionUri());
+    }
+
+    /**
+     * Wraps a page of cars, linking to the next page if the current one is full.
+     * @param cars the cars on the page, in ascending ID order
+     * @param after the ID the page starts after, if any
+     * @param limit the maximum number of cars on the page
+     * @param collectionUri the URI of the car collection, e.g. {@code http://localhost/cars}
+     * @return the page of cars, with self, collection and next links
+     */
+    public Resources<Resource<Car>> toPage(List<Car> cars, Long after, int limit, String collectionUri) {
+        return wrapPage(cars, car -> new Resource<>(car), after, limit, null, collectionUri);
+    }
+
+    /**
+     * Wraps a page of cars restricted to some of their fields, linking to the next
+     * page if the current one is full. The page links carry the same fields.
+     * @param cars the cars on the page, in ascending ID order
+     * @param projection renders the selected fields of a car
+     * @param after the ID the page starts after, if any
+     * @param limit the maximum number of cars on the page
+     * @param fields the value of the {@code fields} parameter
+     * @param collectionUri the URI of the car collection, e.g. {@code http://localhost/cars}
+     * @return the page of car projections, with self, collection and next links
+     */
+    Resources<CarProjection> toPage(List<Car> cars, Function<Car, Map<String, Object>> projection,
+            Long after, int limit, String fields, String collectionUri) {
+        return wrapPage(cars, car -> new CarProjection(projection.apply(car)), after, limit, fields, collectionUri);
+    }
+
+    /**
+     * Wraps a page of search results, linking to the next page if the current one is full.
+     * The page links repeat the query of the search, with the cursor of their page as {@code after}.
+     * @param cars the cars on the page, in the order of the search
+     * @param wrap wraps each car, whole or restricted to some of its fields
+     * @param limit the maximum number of cars on the page
+     * @param searchUri the URI of the search, including its query
+     * @param cursor writes the cursor of the page following a car
+     * @param collectionUri the URI of the car collection, e.g. {@code http://localhost/cars}
+     * @return the page of cars, with self, collection and next links
+     */
+    <T extends ResourceSupport> Resources<T> toSearchPage(List<Car> cars, Function<Car, T> wrap, int limit,
+            UriComponentsBuilder searchUri, Function<Car, String> cursor, String collectionUri) {
+        String nextUri = cars.size() == limit
+                ? searchUri.cloneBuilder().replaceQueryParam("after", cursor.apply(cars.get(cars.size() - 1)))
+                        .build(true).toUriString()
+                : null;
+        return wrapPage(cars, wrap, searchUri.build(true).toUriString(), nextUri, collectionUri);
+    }
+
+    /**
+     * Wraps a list of cars that is not paged, such as the cars nearest to a point.
+     * @param cars the cars
+     * @param wrap wraps each car, whole or restricted to some of its fields
+     * @param requestUri the URI of the request, including its query
+     * @param collectionUri the URI of the car collection, e.g. {@code http://localhost/cars}
+     * @return the cars, with self and collection links
+     */
+    <T extends ResourceSupport> Resources<T> toResources(List<Car> cars, Function<Car, T> wrap,
+            UriComponentsBuilder requestUri, String collectionUri) {
+        return wrapPage(cars, wrap, requestUri.build(true).toUriString(), null, collectionUri);
+    }
+
+    private <T extends ResourceSupport> Resources<T> wrapPage(List<Car> cars, Function<Car, T> wrap,
+            Long after, int limit, String fields, String collectionUri) {
+        String nextUri = cars.size() == limit
+                ? pageUri(collectionUri, cars.get(cars.size() - 1).getId(), limit, fields)
+                : null;
+        return wrapPage(cars, wrap, pageUri(collectionUri, after, limit, fields), nextUri, collectionUri);
+    }
+
+    private <T extends ResourceSupport> Resources<T> wrapPage(List<Car> cars, Function<Car, T> wrap,
+            String selfUri, String nextUri, String collectionUri) {
+        List<T> resources = new ArrayList<>(cars.size());
+        for (Car car : cars) {
+            T resource = wrap.apply(car);
+            resource.add(selfLink(car, collectionUri));
+            resources.add(resource);
+        }
+        List<Link> links = new ArrayList<>(3);
+        links.add(new Link(selfUri));
+        links.add(new Link(collectionUri, CARS_REL));
+        if (nextUri != null) {
+            links.add(new Link(nextUri, Link.REL_NEXT));
+        }
+        return new Resources<>(resources, links);
+    }
+
+    /**
+     * Resolves the URI of the car collection from the current request.
+     * @return the absolute URI of the car collection, or its path if there is no current request
+     */
+    static String collectionUri() {
+        return linkTo(CarController.class).toUri().toString();
+    }
+
+    private static Link selfLink(Car car, String collectionUri) {
+        return new Link(collectionUri + "/" + car.getId());
+    }
 
+    private static String pageUri(String collectionUri, Long after, int limit, String fields) {
+        StringBuilder uri = new StringBuilder(collectionUri.length() + 32).append(collectionUri).append('?');
+        if (after != null) {
+            uri.append("after=").append(after).append('&');
+        }
+        uri.append("limit=").append(limit);
+        if (fields != null) {
+            uri.append("&fields=").append(UriUtils.encodeQueryParam(fields, StandardCharsets.UTF_8));
+        }
+        return uri.toString();
     }
 }
@@ -0,0 +1,143 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.tracing.TraceContext;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.service.CarImportResult;
+import com.udacity.vehicles.service.CarService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes the whole car list to the client as a stream, either as newline
+ * delimited JSON or as Server-Sent Events. Cars are read and enriched in
+ * bounded windows, and each window is flushed as soon as it is ready, so
+ * memory use does not grow with the size of the fleet. The results of a bulk
+ * import are streamed the same way, a chunk at a time.
+ *
+ * The body is written on an MVC async thread, in the trace of the request
+ * that asked for it.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class CarStreamWriter {
+
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    static final MediaType NDJSON = MediaType.parseMediaType(NDJSON_VALUE);
+
+    private static final byte[] NEWLINE = "\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_DATA = "data: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] EVENT_END = "\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final CarService carService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${cars.stream.window-size:100}")
+    private int windowSize = 100;
+
+    @Value("${cars.import.chunk-size:1000}")
+    private int importChunkSize = 1000;
+
+    CarStreamWriter(CarService carService, ObjectMapper objectMapper) {
+        this.carService = carService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Streams the cars following the given ID as one JSON document per line.
+     * @param after the ID to start after, if any
+     * @return body writing the cars
+     */
+    StreamingResponseBody ndjson(Long after) {
+        return traced(out -> write(after, out, (car, json) -> {
+            out.write(json);
+            out.write(NEWLINE);
+        }));
+    }
+
+    /**
+     * Streams the cars following the given ID as Server-Sent Events. Each event
+     * carries the car ID, so a reconnecting client resumes through Last-Event-ID.
+     * @param after the ID to start after, if any
+     * @return body writing the cars
+     */
+    StreamingResponseBody events(Long after) {
+        return traced(out -> write(after, out, (car, json) -> {
+            out.write(("id: " + car.getId() + "\n").getBytes(StandardCharsets.UTF_8));
+            out.write(EVENT_DATA);
+            out.write(json);
+            out.write(EVENT_END);
+        }));
+    }
+
+    /**
+     * Imports new cars, streaming the result of each as one JSON document per line.
+     * @param cars the cars to import, already validated
+     * @return body importing the cars and writing their results
+     */
+    StreamingResponseBody imported(List<Car> cars) {
+        return traced(out -> {
+            try {
+                carService.importCars(cars, importChunkSize, results -> {
+                    try {
+                        for (CarImportResult result : results) {
+                            out.write(objectMapper.writeValueAsBytes(result));
+                            out.write(NEWLINE);
+                        }
+                        out.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    /**
+     * Wraps a body so that it is written in the trace of the current request.
+     */
+    static StreamingResponseBody traced(StreamingResponseBody body) {
+        TraceContext context = TraceContext.current().orElse(null);
+        return out -> {
+            TraceContext previous = TraceContext.makeCurrent(context);
+            try {
+                body.writeTo(out);
+            } finally {
+                TraceContext.makeCurrent(previous);
+            }
+        };
+    }
+
+    private void write(Long after, OutputStream out, CarWriter writer) throws IOException {
+        try {
+            carService.forEachWindow(after, windowSize, window -> {
+                try {
+                    for (Car car : window) {
+                        writer.write(car, objectMapper.writeValueAsBytes(car));
+                    }
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    private interface CarWriter {
+        void write(Car car, byte[] json) throws IOException;
+    }
+}
@@ -2,22 +2,29 @@ package com.udacity.vehicles.api;
 
 import java.util.List;
 import java.util.stream.Collectors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.hateoas.VndErrors;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 /**
- * Implements the Error controller related to any errors handled by the Vehicles API
+ * Implements the Error controller related to any errors handled by the Vehicles API.
+ * Updates racing with another update of the same vehicle are answered with 409,
+ * and rejected bulk imports with 400.
  */
 @ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class ErrorController extends ResponseEntityExceptionHandler {
 
     private static final String DEFAULT_VALIDATION_FAILED_MESSAGE = "Validation failed";
+    private static final String CONCURRENT_MODIFICATION_MESSAGE = "Vehicle was modified concurrently";
 
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(
@@ -33,5 +40,17 @@ public class ErrorController extends ResponseEntityExceptionHandler {
         ApiError apiError = new ApiError(DEFAULT_VALIDATION_FAILED_MESSAGE, errors);
         return handleExceptionInternal(ex, apiError, headers, HttpStatus.BAD_REQUEST, request);
     }
+
+    @ExceptionHandler(InvalidImportException.class)
+    ResponseEntity<Object> handleInvalidImport(InvalidImportException ex, WebRequest request) {
+        ApiError apiError = new ApiError(ex.getMessage(), ex.getErrors());
+        return handleExceptionInternal(ex, apiError, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    ResponseEntity<Object> handleOptimisticLockingFailure(OptimisticLockingFailureException ex, WebRequest request) {
+        ApiError apiError = new ApiError(CONCURRENT_MODIFICATION_MESSAGE, null);
+        return handleExceptionInternal(ex, apiError, new HttpHeaders(), HttpStatus.CONFLICT, request);
+    }
 }
 
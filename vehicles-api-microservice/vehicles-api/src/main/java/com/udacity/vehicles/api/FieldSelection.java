@@ -0,0 +1,151 @@
+package com.udacity.vehicles.api;
+
+import com.udacity.vehicles.service.Enrichment;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The properties of a car asked for through the {@code fields} parameter, e.g.
+ * {@code fields=condition,details.model,details.manufacturer}, as a tree of
+ * property names. A property selected without any of its own properties is
+ * selected whole. The car's {@code id} is always selected.
+ */
+class FieldSelection {
+
+    static final FieldSelection ALL = new FieldSelection(null, null);
+
+    private static final Set<String> COORDINATES = new HashSet<>(Arrays.asList("lat", "lon"));
+
+    private final List<String> paths;
+
+    /**
+     * The selected properties by name, or null if selected whole.
+     */
+    private final Map<String, FieldSelection> children;
+
+    private FieldSelection(List<String> paths, Map<String, FieldSelection> children) {
+        this.paths = paths;
+        this.children = children;
+    }
+
+    /**
+     * Parses the value of a {@code fields} parameter.
+     * @param fields comma separated property paths, or null to select all properties
+     * @return the selection; {@link #ALL} if no property is given
+     */
+    static FieldSelection parse(String fields) {
+        if (fields == null) {
+            return ALL;
+        }
+        List<String> paths = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(path -> !path.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+        if (paths.isEmpty()) {
+            return ALL;
+        }
+        FieldSelection root = new FieldSelection(paths, new LinkedHashMap<>());
+        root.children.put("id", ALL);
+        for (String path : paths) {
+            String[] names = path.split("\\.", -1);
+            FieldSelection node = root;
+            for (int i = 0; i < names.length && !node.isWhole(); i++) {
+                FieldSelection child = node.children.get(names[i]);
+                if (i == names.length - 1) {
+                    child = ALL;
+                } else if (child == null) {
+                    child = new FieldSelection(null, new LinkedHashMap<>());
+                }
+                node.children.put(names[i], child);
+                node = child;
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Tells whether every property is selected, i.e. no {@code fields} were given
+     * or this property is selected whole.
+     */
+    boolean isWhole() {
+        return children == null;
+    }
+
+    /**
+     * Gets the selection of one property.
+     * @param name the name of the property
+     * @return the selection, or null if the property is not selected
+     */
+    FieldSelection get(String name) {
+        return isWhole() ? ALL : children.get(name);
+    }
+
+    /**
+     * Gets the names of the selected properties.
+     * @return the names, empty if selected whole
+     */
+    Set<String> names() {
+        return isWhole() ? Collections.emptySet() : children.keySet();
+    }
+
+    /**
+     * Gets the data owned by other services needed to render the selected properties:
+     * the price if it is selected, and the address if any location property other
+     * than the coordinates is selected.
+     */
+    Set<Enrichment> enrichments() {
+        if (isWhole()) {
+            return Enrichment.ALL;
+        }
+        Set<Enrichment> enrichments = EnumSet.noneOf(Enrichment.class);
+        if (children.containsKey("price")) {
+            enrichments.add(Enrichment.PRICE);
+        }
+        FieldSelection location = children.get("location");
+        if (location != null && (location.isWhole() || !COORDINATES.containsAll(location.names()))) {
+            enrichments.add(Enrichment.ADDRESS);
+        }
+        return enrichments;
+    }
+
+    /**
+     * Makes the entity tag of the representation of a car or page restricted to this
+     * selection, so that different selections of the same data never share a tag.
+     * Selections of the same properties, in whatever order, share their tags.
+     * @param tag the tag of the car or page as a whole
+     * @return the tag as is if all properties are selected, otherwise with the selection folded in
+     */
+    String tag(String tag) {
+        return isWhole() ? tag
+                : tag + "-" + DigestUtils.md5DigestAsHex(normalized().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Renders the selected properties in name order, e.g. {@code (condition,details(model),id)}.
+     */
+    private String normalized() {
+        return isWhole() ? "" : children.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(child -> child.getKey() + child.getValue().normalized())
+                .collect(Collectors.joining(",", "(", ")"));
+    }
+
+    /**
+     * Renders the selection as the value of a {@code fields} parameter.
+     * @return the comma separated property paths as given, or null if all are selected
+     */
+    String toParameter() {
+        return paths == null || paths.isEmpty() ? null : String.join(",", paths);
+    }
+}
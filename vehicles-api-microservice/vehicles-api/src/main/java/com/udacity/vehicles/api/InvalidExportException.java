@@ -0,0 +1,12 @@
+package com.udacity.vehicles.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+public class InvalidExportException extends RuntimeException {
+
+    public InvalidExportException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,23 @@
+package com.udacity.vehicles.api;
+
+import java.util.List;
+
+/**
+ * Thrown when a bulk import is rejected as a whole, before any vehicle is stored.
+ */
+class InvalidImportException extends RuntimeException {
+
+    private final List<String> errors;
+
+    InvalidImportException(String message, List<String> errors) {
+        super(message);
+        this.errors = errors;
+    }
+
+    /**
+     * Gets the errors of each invalid vehicle, prefixed with its index, or null.
+     */
+    List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,274 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarSearch;
+import com.udacity.vehicles.service.ReactiveCarService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * Implements the Vehicles API on WebFlux. It serves the same endpoints as
+ * {@link CarController}, and replaces it when the application is started with
+ * {@code spring.main.web-application-type=reactive}, including its conditional
+ * {@code GET}s, {@code fields} selection, search and bulk import.
+ */
+@RestController
+@RequestMapping("/cars")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveCarController {
+
+    @Value("${cars.page.default-limit:100}")
+    private int defaultPageLimit = 100;
+
+    @Value("${cars.page.max-limit:1000}")
+    private int maxPageLimit = 1000;
+
+    @Value("${cars.near.max-radius-km:100}")
+    private double maxNearRadiusKm = 100;
+
+    @Value("${cars.stream.window-size:100}")
+    private int windowSize = 100;
+
+    @Value("${cars.import.chunk-size:1000}")
+    private int importChunkSize = 1000;
+
+    private final ReactiveCarService carService;
+    private final CarResourceAssembler assembler;
+    private final ObjectMapper objectMapper;
+    private final CarProjector projector;
+    private final CarImportReader importReader;
+
+    ReactiveCarController(ReactiveCarService carService, CarResourceAssembler assembler, ObjectMapper objectMapper,
+            CarProjector projector, CarImportReader importReader) {
+        this.carService = carService;
+        this.assembler = assembler;
+        this.objectMapper = objectMapper;
+        this.projector = projector;
+        this.importReader = importReader;
+    }
+
+    /**
+     * Creates a list to store a page of vehicles, ordered by ID.
+     * @param after the ID of the last vehicle of the previous page, if any
+     * @param limit the maximum number of vehicles on the page
+     * @param fields the fields of each vehicle to render, comma separated; all if absent
+     * @param exchange the exchange, whose request is checked against the entity tag of the page
+     * @return page of vehicles, linking to the next page when there may be one,
+     *   or 304 if the client already holds it
+     */
+    @GetMapping
+    Mono<ResponseEntity<Resources<? extends ResourceSupport>>> list(@RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String fields,
+            ServerWebExchange exchange) {
+        int pageLimit = limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+        FieldSelection selection = projector.select(fields);
+        String collectionUri = collectionUri(exchange.getRequest());
+        return carService.listIfModified(after, pageLimit, selection.enrichments(),
+                tag -> exchange.checkNotModified(selection.tag(tag)))
+                .<ResponseEntity<Resources<? extends ResourceSupport>>>map(cars -> ResponseEntity.ok(selection.isWhole()
+                        ? assembler.toPage(cars, after, pageLimit, collectionUri)
+                        : assembler.toPage(cars, car -> projector.project(car, selection), after, pageLimit,
+                                selection.toParameter(), collectionUri)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+    }
+
+    /**
+     * Searches vehicles by their details and condition, one page at a time.
+     * @param search the criteria of the search, e.g. {@code manufacturer=101&minModelYear=2015}
+     * @param sort the order of the vehicles, e.g. {@code mileage,desc}; by ID if absent
+     * @param after the cursor of the page, as linked from the previous page, if any
+     * @param limit the maximum number of vehicles on the page
+     * @param fields the fields of each vehicle to render, comma separated; all if absent
+     * @param exchange the exchange, whose request is checked against the entity tag of the page
+     * @return page of matching vehicles, linking to the next page when there may be one,
+     *   or 304 if the client already holds it
+     */
+    @GetMapping("/search")
+    Mono<ResponseEntity<Resources<? extends ResourceSupport>>> search(CarSearch search,
+            @RequestParam(required = false) String sort, @RequestParam(required = false) String after,
+            @RequestParam(required = false) Integer limit, @RequestParam(required = false) String fields,
+            ServerWebExchange exchange) {
+        int pageLimit = limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+        FieldSelection selection = projector.select(fields);
+        SearchParameters.apply(search, sort, after);
+        String collectionUri = collectionUri(exchange.getRequest());
+        return carService.searchIfModified(search, pageLimit, selection.enrichments(),
+                tag -> exchange.checkNotModified(selection.tag(tag)))
+                .<ResponseEntity<Resources<? extends ResourceSupport>>>map(cars -> ResponseEntity.ok(
+                        assembler.toSearchPage(cars, car -> projector.toResource(car, selection), pageLimit,
+                                UriComponentsBuilder.fromHttpRequest(exchange.getRequest()),
+                                car -> SearchParameters.cursor(search, car), collectionUri)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+    }
+
+    /**
+     * Finds the vehicles nearest to a point, within a radius.
+     * @param lat latitude of the point
+     * @param lon longitude of the point
+     * @param radiusKm the maximum distance of a vehicle to the point, in kilometers,
+     *   up to {@code cars.near.max-radius-km}
+     * @param limit the maximum number of vehicles to return
+     * @param fields the fields of each vehicle to render, comma separated; all if absent
+     * @param exchange the exchange, whose request is checked against the entity tag of the vehicles
+     * @return the vehicles within the radius, nearest first, or 304 if the client already holds them
+     */
+    @GetMapping("/near")
+    Mono<ResponseEntity<Resources<? extends ResourceSupport>>> near(@RequestParam double lat,
+            @RequestParam double lon, @RequestParam double radiusKm, @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String fields, ServerWebExchange exchange) {
+        int pageLimit = limit == null ? defaultPageLimit : Math.max(1, Math.min(limit, maxPageLimit));
+        FieldSelection selection = projector.select(fields);
+        SearchParameters.checkNear(lat, lon, radiusKm, maxNearRadiusKm);
+        String collectionUri = collectionUri(exchange.getRequest());
+        return carService.nearIfModified(lat, lon, radiusKm, pageLimit, selection.enrichments(),
+                tag -> exchange.checkNotModified(selection.tag(tag)))
+                .<ResponseEntity<Resources<? extends ResourceSupport>>>map(cars -> ResponseEntity.ok(
+                        assembler.toResources(cars, car -> projector.toResource(car, selection),
+                                UriComponentsBuilder.fromHttpRequest(exchange.getRequest()), collectionUri)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+    }
+
+    /**
+     * Streams every vehicle, ordered by ID, as newline delimited JSON.
+     * @param after the ID to start after, if any
+     * @return stream of vehicles, one JSON document per line
+     */
+    @GetMapping(produces = {CarStreamWriter.NDJSON_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    ResponseEntity<Flux<String>> stream(@RequestParam(required = false) Long after) {
+        return ResponseEntity.ok().contentType(CarStreamWriter.NDJSON)
+                .body(carService.stream(after, windowSize).handle((car, sink) -> {
+                    try {
+                        sink.next(objectMapper.writeValueAsString(car) + "\n");
+                    } catch (JsonProcessingException e) {
+                        sink.error(e);
+                    }
+                }));
+    }
+
+    /**
+     * Streams every vehicle, ordered by ID, as Server-Sent Events.
+     * @param after the ID to start after, if any
+     * @param lastEventId the ID of the last vehicle received before reconnecting, if any
+     * @return stream of vehicle events
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<ServerSentEvent<Car>> events(@RequestParam(required = false) Long after,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return carService.stream(lastEventId != null ? lastEventId : after, windowSize)
+                .map(car -> ServerSentEvent.builder(car).id(String.valueOf(car.getId())).build());
+    }
+
+    /**
+     * Gets information of a specific car by ID.
+     * @param id the id number of the given vehicle
+     * @param fields the fields of the vehicle to render, comma separated; all if absent
+     * @param exchange the exchange, whose request is checked against the entity tag of the vehicle
+     * @return all information for the requested vehicle, or 304 if the client already holds it
+     */
+    @GetMapping("/{id}")
+    Mono<ResponseEntity<?>> get(@PathVariable Long id, @RequestParam(required = false) String fields,
+            ServerWebExchange exchange) {
+        FieldSelection selection = projector.select(fields);
+        return carService.findIfModified(id, selection.enrichments(),
+                tag -> exchange.checkNotModified(selection.tag(tag)))
+                .<ResponseEntity<?>>map(car -> ResponseEntity.ok(selection.isWhole() ? car : projector.project(car, selection)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+    }
+
+    /**
+     * Posts information to create a new vehicle in the system.
+     * @param car A new vehicle to add to the system.
+     * @return response that the new vehicle was added to the system
+     */
+    @PostMapping
+    Mono<ResponseEntity<Resource<Car>>> post(@Valid @RequestBody Car car, ServerHttpRequest request) {
+        return carService.save(car)
+                .map(savedCar -> assembler.toResource(savedCar, collectionUri(request)))
+                .map(resource -> ResponseEntity.created(URI.create(resource.getId().expand().getHref())).body(resource));
+    }
+
+    /**
+     * Creates many new vehicles at once. The whole batch is validated before any
+     * vehicle is stored; the vehicles are then stored and priced a chunk at a time.
+     * @param request the request, whose body holds the vehicles as a JSON array or
+     *   as newline delimited JSON
+     * @return stream of the result of each vehicle, one JSON document per line,
+     *   emitted as each chunk is stored
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, CarStreamWriter.NDJSON_VALUE})
+    Mono<ResponseEntity<Flux<String>>> importCars(ServerHttpRequest request) {
+        return DataBufferUtils.join(request.getBody())
+                .map(body -> body.asInputStream(true))
+                .defaultIfEmpty(new ByteArrayInputStream(new byte[0]))
+                .flatMap(body -> Mono.fromCallable(() -> {
+                    try (InputStream in = body) {
+                        return importReader.read(in);
+                    }
+                }))
+                .map(cars -> ResponseEntity.ok().contentType(CarStreamWriter.NDJSON)
+                        .body(carService.importCars(cars, importChunkSize).handle((result, sink) -> {
+                            try {
+                                sink.next(objectMapper.writeValueAsString(result) + "\n");
+                            } catch (JsonProcessingException e) {
+                                sink.error(e);
+                            }
+                        })));
+    }
+
+    /**
+     * Updates the information of a vehicle in the system.
+     * @param id The ID number for which to update vehicle information.
+     * @param car The updated information about the related vehicle.
+     * @return response that the vehicle was updated in the system
+     */
+    @PutMapping("/{id}")
+    Mono<ResponseEntity<Resource<Car>>> put(@PathVariable Long id, @Valid @RequestBody Car car,
+            ServerHttpRequest request) {
+        car.setId(id);
+        return carService.save(car)
+                .map(savedCar -> assembler.toResource(savedCar, collectionUri(request)))
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Removes a vehicle from the system.
+     * @param id The ID number of the vehicle to remove.
+     * @return response that the related vehicle is no longer in the system
+     */
+    @DeleteMapping("/{id}")
+    Mono<ResponseEntity<Void>> delete(@PathVariable Long id) {
+        return carService.delete(id).then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+    /**
+     * Resolves the URI of the car collection from the request, honouring forwarded headers.
+     */
+    private static String collectionUri(ServerHttpRequest request) {
+        return UriComponentsBuilder.fromHttpRequest(request)
+                .replacePath(request.getPath().contextPath().value() + "/cars")
+                .replaceQuery(null)
+                .build()
+                .toUriString();
+    }
+}
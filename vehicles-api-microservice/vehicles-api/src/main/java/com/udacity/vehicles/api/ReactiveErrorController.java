@@ -0,0 +1,45 @@
+package com.udacity.vehicles.api;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+/**
+ * Implements the Error controller of the Vehicles API when it runs on WebFlux,
+ * reporting validation errors, rejected bulk imports and concurrent modifications the
+ * same way as {@link ErrorController}.
+ */
+@ControllerAdvice
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveErrorController {
+
+    private static final String DEFAULT_VALIDATION_FAILED_MESSAGE = "Validation failed";
+    private static final String CONCURRENT_MODIFICATION_MESSAGE = "Vehicle was modified concurrently";
+
+    @ExceptionHandler(WebExchangeBindException.class)
+    ResponseEntity<ApiError> handleBindException(WebExchangeBindException ex) {
+        List<String> errors = ex.getBindingResult()
+                .getFieldErrors()
+                .stream()
+                .map(error -> error.getField() + ": " + error.getDefaultMessage()).collect(
+                        Collectors.toList());
+
+        return ResponseEntity.badRequest().body(new ApiError(DEFAULT_VALIDATION_FAILED_MESSAGE, errors));
+    }
+
+    @ExceptionHandler(InvalidImportException.class)
+    ResponseEntity<ApiError> handleInvalidImport(InvalidImportException ex) {
+        return ResponseEntity.badRequest().body(new ApiError(ex.getMessage(), ex.getErrors()));
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    ResponseEntity<ApiError> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiError(CONCURRENT_MODIFICATION_MESSAGE, null));
+    }
+}
@@ -0,0 +1,89 @@
+package com.udacity.vehicles.api;
+
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarSearch;
+
+/**
+ * Reads the order and cursor of a search from the {@code sort} and {@code after}
+ * parameters, and writes the cursor of the following page. Also checks the point
+ * and radius of a search for nearby cars.
+ *
+ * A sort is a property and an optional direction, e.g. {@code mileage,desc}.
+ * A cursor is the sort value and the ID of the last car of a page, e.g.
+ * {@code 32000:42}, or only its ID if the search is ordered by ID or the car
+ * has no sort value.
+ */
+final class SearchParameters {
+
+    private SearchParameters() {
+    }
+
+    /**
+     * Orders a search and moves it to a cursor.
+     * @param search the search to update
+     * @param sort the value of the {@code sort} parameter, or null to order by ID
+     * @param after the value of the {@code after} parameter, or null for the first page
+     * @throws InvalidSearchException if either parameter is malformed
+     */
+    static void apply(CarSearch search, String sort, String after) {
+        if (sort != null) {
+            String[] parts = sort.split(",", -1);
+            if (parts.length > 2 || (parts.length == 2 && !parts[1].matches("(?i)asc|desc"))) {
+                throw new InvalidSearchException("Invalid sort: " + sort);
+            }
+            search.orderBy(sortKey(parts[0]), parts.length == 2 && parts[1].equalsIgnoreCase("desc"));
+        }
+        if (after != null) {
+            int separator = after.indexOf(':');
+            try {
+                if (separator < 0) {
+                    search.startAfter(Long.valueOf(after), null);
+                } else if (search.getOrderBy() != CarSearch.SortKey.ID) {
+                    search.startAfter(Long.valueOf(after.substring(separator + 1)),
+                            Integer.valueOf(after.substring(0, separator)));
+                } else {
+                    throw new InvalidSearchException("Invalid cursor: " + after);
+                }
+            } catch (NumberFormatException e) {
+                throw new InvalidSearchException("Invalid cursor: " + after);
+            }
+        }
+    }
+
+    /**
+     * Writes the cursor of the page following a car.
+     * @param search the search the car was found by
+     * @param car the last car of the page
+     * @return the value of the {@code after} parameter of the next page
+     */
+    static String cursor(CarSearch search, Car car) {
+        Integer value = search.getOrderBy().valueOf(car);
+        return value == null ? String.valueOf(car.getId()) : value + ":" + car.getId();
+    }
+
+    /**
+     * Checks the point and radius of a search for nearby cars.
+     * @param lat latitude of the point
+     * @param lon longitude of the point
+     * @param radiusKm the radius of the search, in kilometers
+     * @param maxRadiusKm the largest radius allowed
+     * @throws InvalidSearchException if the point is not on Earth or the radius is out of bounds
+     */
+    static void checkNear(double lat, double lon, double radiusKm, double maxRadiusKm) {
+        if (!(lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180)) {
+            throw new InvalidSearchException("Invalid coordinates: " + lat + "," + lon);
+        }
+        if (!(radiusKm > 0 && radiusKm <= maxRadiusKm)) {
+            throw new InvalidSearchException("Radius must be greater than 0 and at most " + maxRadiusKm + " km");
+        }
+    }
+
+    private static CarSearch.SortKey sortKey(String property) {
+        for (CarSearch.SortKey key : CarSearch.SortKey.values()) {
+            if (key.getProperty().equals(property)) {
+                return key;
+            }
+        }
+        throw new InvalidSearchException("Unknown sort property: " + property);
+    }
+}
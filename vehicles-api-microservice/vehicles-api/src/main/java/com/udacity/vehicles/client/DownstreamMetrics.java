@@ -0,0 +1,102 @@
+package com.udacity.vehicles.client;
+
+import com.udacity.vehicles.client.loadbalancer.LatencyAwareLoadBalancer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Times every request the WebClient sends to the pricing and Maps services.
+ *
+ * Each request is recorded in the {@code downstream.requests} timer, tagged with
+ * the service, the endpoint (the path of the URI template, without the query),
+ * the instance it was sent to and its outcome: {@code SUCCESS}, {@code CLIENT_ERROR},
+ * {@code SERVER_ERROR}, {@code ERROR} when no response arrived, or {@code CANCELLED}
+ * when the caller gave up first (a timeout or a losing hedged request).
+ * The {@code downstream.requests.active} gauge counts the requests in flight per instance.
+ *
+ * Must be applied after the {@link LatencyAwareLoadBalancer}, so that it sees the
+ * instance each request was sent to.
+ */
+@Component
+public class DownstreamMetrics implements ExchangeFilterFunction {
+
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Tags, AtomicInteger> active = new ConcurrentHashMap<>();
+
+    public DownstreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        URI url = request.url();
+        String instance = url.getPort() < 0 ? url.getHost() : url.getHost() + ":" + url.getPort();
+        Tags tags = Tags.of(
+                "service", LatencyAwareLoadBalancer.serviceId(request).orElse(url.getHost()),
+                "instance", instance);
+        Tags requestTags = tags.and(
+                "method", request.method().name(),
+                "endpoint", endpoint(request));
+        return Mono.defer(() -> {
+            AtomicInteger inFlight = active(tags);
+            inFlight.incrementAndGet();
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicReference<String> outcome = new AtomicReference<>("ERROR");
+            return next.exchange(request)
+                    .doOnNext(response -> outcome.set(outcome(response)))
+                    .doFinally(signal -> {
+                        inFlight.decrementAndGet();
+                        sample.stop(meterRegistry.timer("downstream.requests", requestTags.and(
+                                "outcome", signal == SignalType.CANCEL ? "CANCELLED" : outcome.get())));
+                    });
+        });
+    }
+
+    private AtomicInteger active(Tags tags) {
+        return active.computeIfAbsent(tags, key -> meterRegistry.gauge(
+                "downstream.requests.active", key, new AtomicInteger()));
+    }
+
+    /**
+     * Gets the path of the URI template a request was built from, so that
+     * requests for different vehicles or coordinates share one endpoint tag.
+     */
+    static String endpoint(ClientRequest request) {
+        String template = request.attribute(URI_TEMPLATE_ATTRIBUTE)
+                .map(Object::toString)
+                .orElseGet(() -> request.url().toString());
+        String path = UriComponentsBuilder.fromUriString(template).build().getPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+
+    private static String outcome(ClientResponse response) {
+        switch (response.statusCode().series()) {
+            case INFORMATIONAL:
+            case SUCCESSFUL:
+            case REDIRECTION:
+                return "SUCCESS";
+            case CLIENT_ERROR:
+                return "CLIENT_ERROR";
+            default:
+                return "SERVER_ERROR";
+        }
+    }
+}
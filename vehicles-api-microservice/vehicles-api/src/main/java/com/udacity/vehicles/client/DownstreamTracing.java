@@ -0,0 +1,98 @@
+package com.udacity.vehicles.client;
+
+import com.udacity.tracing.Span;
+import com.udacity.tracing.SpanRecorder;
+import com.udacity.tracing.TraceContext;
+import com.udacity.vehicles.client.loadbalancer.LatencyAwareLoadBalancer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+
+import java.net.URI;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Passes the trace of the request being handled on to the pricing and Maps
+ * services in a W3C {@code traceparent} header, and records a {@code CLIENT}
+ * span for every request sent within a sampled trace. The span lasts until the
+ * response headers arrive, so comparing it with the {@code SERVER} span of the
+ * other service shows how much of a slow call was spent on the network or in queues.
+ *
+ * The parent is taken from the Reactor context (see {@link #propagate(Context)})
+ * or else from the subscribing thread. Requests sent outside of any trace, such
+ * as cache refreshes, are sent without a {@code traceparent} header.
+ *
+ * Must be applied after the {@link LatencyAwareLoadBalancer}, so that it sees the
+ * instance each request was sent to.
+ */
+@Component
+public class DownstreamTracing implements ExchangeFilterFunction {
+
+    private final SpanRecorder recorder;
+
+    public DownstreamTracing(SpanRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Adds the trace context in progress on the subscribing thread to a Reactor context.
+     * Use as {@code .subscriberContext(DownstreamTracing::propagate)} so that requests sent
+     * later on other threads, such as hedges or further batches, join the same trace.
+     * @param context the Reactor context
+     * @return the Reactor context holding the current trace context, if any
+     */
+    public static Context propagate(Context context) {
+        return TraceContext.current()
+                .map(current -> context.put(TraceContext.class, current))
+                .orElse(context);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.subscriberContext().flatMap(reactorContext -> {
+            Optional<TraceContext> parent = reactorContext.getOrEmpty(TraceContext.class);
+            if (!parent.isPresent()) {
+                parent = TraceContext.current();
+            }
+            if (!parent.isPresent()) {
+                return next.exchange(request);
+            }
+            TraceContext context = parent.get().child();
+            ClientRequest traced = ClientRequest.from(request)
+                    .header(TraceContext.TRACEPARENT, context.toTraceparent())
+                    .build();
+            if (!context.isSampled()) {
+                return next.exchange(traced);
+            }
+            String parentId = parent.get().getSpanId();
+            Instant start = Instant.now();
+            long startNanos = System.nanoTime();
+            AtomicInteger status = new AtomicInteger();
+            AtomicReference<String> error = new AtomicReference<>();
+            return next.exchange(traced)
+                    .doOnNext(response -> status.set(response.rawStatusCode()))
+                    .doOnError(e -> error.set(e.toString()))
+                    .doFinally(signal -> recorder.record(new Span(context, parentId, recorder.getService(),
+                            Span.Kind.CLIENT, request.method().name() + " " + DownstreamMetrics.endpoint(request),
+                            remote(request), start, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos),
+                            status.get(), signal == SignalType.CANCEL ? "cancelled" : error.get())));
+        });
+    }
+
+    private static String remote(ClientRequest request) {
+        URI url = request.url();
+        String instance = url.getPort() < 0 ? url.getHost() : url.getHost() + ":" + url.getPort();
+        return LatencyAwareLoadBalancer.serviceId(request)
+                .map(service -> service + " " + instance)
+                .orElse(instance);
+    }
+}
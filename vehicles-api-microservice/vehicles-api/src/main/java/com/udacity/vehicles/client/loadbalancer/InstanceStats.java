@@ -0,0 +1,77 @@
+package com.udacity.vehicles.client.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the load of one service instance as seen by this client: the number of
+ * requests in flight, and a peak-sensitive exponentially weighted moving average
+ * of response latency. The average decays with time rather than with the number
+ * of samples, and jumps straight up when a slower response is observed, so an
+ * instance that turns slow is avoided immediately and recovers gradually.
+ */
+class InstanceStats {
+
+    private final ServiceInstance instance;
+    private final long decayNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private double ewmaNanos;
+    private long lastUpdateNanos = System.nanoTime();
+
+    InstanceStats(ServiceInstance instance, long decayNanos) {
+        this.instance = instance;
+        this.decayNanos = decayNanos;
+    }
+
+    ServiceInstance getInstance() {
+        return instance;
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Marks the start of a request to this instance.
+     * @return the start time, to pass to {@link #end(long)}
+     */
+    long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Marks the end of a request to this instance, recording its latency.
+     * @param startNanos the value returned by {@link #start()}
+     */
+    void end(long startNanos) {
+        inFlight.decrementAndGet();
+        observe(System.nanoTime() - startNanos);
+    }
+
+    synchronized void observe(long latencyNanos) {
+        long now = System.nanoTime();
+        if (latencyNanos > ewmaNanos) {
+            ewmaNanos = latencyNanos;
+        } else {
+            double weight = Math.exp(-(now - lastUpdateNanos) / (double) decayNanos);
+            ewmaNanos = ewmaNanos * weight + latencyNanos * (1 - weight);
+        }
+        lastUpdateNanos = now;
+    }
+
+    synchronized double getLatencyNanos() {
+        return ewmaNanos;
+    }
+
+    /**
+     * Estimates the cost of sending one more request to this instance. Instances
+     * without any observed latency score zero, so they are probed first.
+     * @return expected latency weighted by the number of requests in flight
+     */
+    double cost() {
+        return getLatencyNanos() * (getInFlight() + 1);
+    }
+}
@@ -0,0 +1,205 @@
+package com.udacity.vehicles.client.loadbalancer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Client-side load balancer for the WebClient. Requests addressed to a service ID
+ * (e.g. {@code http://pricing-service/prices}) are sent to one of its instances,
+ * picked with "power of two choices": two instances are sampled at random and the
+ * one with the lower expected cost (latency times requests in flight) wins. This
+ * steers traffic away from a slow replica without herding every request onto the
+ * single fastest one.
+ *
+ * Instance lists are cached and refreshed in the background, so discovery is never
+ * on the request path after the first call to a service.
+ *
+ * A request can carry the set of instances already tried for the same logical call
+ * (see {@link #avoiding(Set)}); the balancer then prefers the other instances and
+ * records the one it picked, so a hedged or repeated attempt lands elsewhere.
+ */
+@Component
+public class LatencyAwareLoadBalancer implements ExchangeFilterFunction, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(LatencyAwareLoadBalancer.class);
+
+    private static final String TRIED_INSTANCES_ATTRIBUTE =
+            LatencyAwareLoadBalancer.class.getName() + ".TRIED_INSTANCES";
+
+    private static final String SERVICE_ID_ATTRIBUTE =
+            LatencyAwareLoadBalancer.class.getName() + ".SERVICE_ID";
+
+    private final DiscoveryClient discoveryClient;
+    private final long decayNanos;
+    private final ScheduledExecutorService refresher;
+
+    /**
+     * Instances of each service requested so far, keyed by service ID.
+     */
+    private final Map<String, List<InstanceStats>> services = new ConcurrentHashMap<>();
+
+    public LatencyAwareLoadBalancer(DiscoveryClient discoveryClient,
+            @Value("${loadbalancer.refresh-interval:30s}") Duration refreshInterval,
+            @Value("${loadbalancer.latency-decay:10s}") Duration latencyDecay) {
+        this.discoveryClient = discoveryClient;
+        this.decayNanos = latencyDecay.toNanos();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadbalancer-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refresher.scheduleWithFixedDelay(this::refreshAll,
+                refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        URI url = request.url();
+        String serviceId = url.getHost();
+        @SuppressWarnings("unchecked")
+        Set<URI> tried = (Set<URI>) request.attribute(TRIED_INSTANCES_ATTRIBUTE).orElse(null);
+        InstanceStats chosen = choose(serviceId, tried == null ? Collections.emptySet() : tried);
+        if (chosen == null) {
+            log.warn("Load balancer does not contain an instance for the service {}", serviceId);
+            return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+        }
+        if (tried != null) {
+            tried.add(chosen.getInstance().getUri());
+        }
+        ClientRequest balanced = ClientRequest.from(request)
+                .url(reconstructUri(chosen.getInstance(), url))
+                .attribute(SERVICE_ID_ATTRIBUTE, serviceId)
+                .build();
+        return Mono.defer(() -> {
+            long start = chosen.start();
+            return next.exchange(balanced).doFinally(signal -> chosen.end(start));
+        });
+    }
+
+    /**
+     * Makes requests prefer instances not yet tried by the same logical call, and
+     * records the instance each request is sent to in the given set.
+     * Use with {@code WebClient.RequestHeadersSpec#attributes(Consumer)}.
+     * @param tried instances tried so far, shared by the attempts of one call
+     * @return consumer adding the corresponding request attribute
+     */
+    public static Consumer<Map<String, Object>> avoiding(Set<URI> tried) {
+        return attributes -> attributes.put(TRIED_INSTANCES_ATTRIBUTE, tried);
+    }
+
+    /**
+     * Gets the service a balanced request is addressed to, for filters applied
+     * after the load balancer, which only see the URI of the chosen instance.
+     * @param request the request sent to an instance
+     * @return the service ID, or empty if the request was not balanced
+     */
+    public static Optional<String> serviceId(ClientRequest request) {
+        return request.attribute(SERVICE_ID_ATTRIBUTE).map(Object::toString);
+    }
+
+    InstanceStats choose(String serviceId) {
+        return choose(serviceId, Collections.emptySet());
+    }
+
+    /**
+     * Picks the cheaper of two randomly sampled instances of a service, leaving out
+     * the excluded instances unless no other instance is left.
+     * @param serviceId the service to pick an instance of
+     * @param excluded URIs of instances to avoid
+     * @return the chosen instance, or null if the service has no instances
+     */
+    InstanceStats choose(String serviceId, Set<URI> excluded) {
+        List<InstanceStats> instances = services.computeIfAbsent(serviceId.toLowerCase(),
+                id -> discover(id, Collections.emptyList()));
+        if (instances.isEmpty()) {
+            services.remove(serviceId.toLowerCase());
+            return null;
+        }
+        if (!excluded.isEmpty() && instances.size() > 1) {
+            List<InstanceStats> remaining = instances.stream()
+                    .filter(stats -> !excluded.contains(stats.getInstance().getUri()))
+                    .collect(Collectors.toList());
+            if (!remaining.isEmpty()) {
+                instances = remaining;
+            }
+        }
+        if (instances.size() == 1) {
+            return instances.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        InstanceStats a = instances.get(first);
+        InstanceStats b = instances.get(second);
+        return a.cost() <= b.cost() ? a : b;
+    }
+
+    private void refreshAll() {
+        services.replaceAll(this::discover);
+    }
+
+    /**
+     * Looks up the current instances of a service, keeping the statistics of
+     * instances that were already known.
+     */
+    private List<InstanceStats> discover(String serviceId, List<InstanceStats> known) {
+        try {
+            List<InstanceStats> refreshed = new ArrayList<>();
+            for (ServiceInstance instance : discoveryClient.getInstances(serviceId)) {
+                refreshed.add(known.stream()
+                        .filter(stats -> stats.getInstance().getUri().equals(instance.getUri()))
+                        .findFirst()
+                        .orElseGet(() -> new InstanceStats(instance, decayNanos)));
+            }
+            return Collections.unmodifiableList(refreshed);
+        } catch (Exception e) {
+            log.warn("Could not refresh instances of {}: {}", serviceId, e.getLocalizedMessage());
+            return known;
+        }
+    }
+
+    private static URI reconstructUri(ServiceInstance instance, URI original) {
+        return UriComponentsBuilder.fromUri(original)
+                .scheme(instance.isSecure() ? "https" : "http")
+                .host(instance.getHost())
+                .port(instance.getPort())
+                .build(true)
+                .toUri();
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+}
@@ -1,17 +1,45 @@
 package com.udacity.vehicles.client.maps;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.udacity.vehicles.client.DownstreamTracing;
+import com.udacity.vehicles.client.loadbalancer.LatencyAwareLoadBalancer;
+import com.udacity.vehicles.client.resilience.DownstreamGuard;
+import com.udacity.vehicles.domain.GeoHash;
 import com.udacity.vehicles.domain.Location;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.Objects;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implements a class to interface with the Maps Client for location data.
+ * Addresses are cached by the geohash of their coordinates, so that cars which
+ * have not moved (beyond the geohash precision) do not hit the Maps service again.
+ * Calls to the Maps service go through its {@link DownstreamGuard}; when a lookup
+ * fails or is rejected, the last address resolved for the geohash is served instead.
  */
 @Component
 public class MapsClient {
@@ -21,13 +49,54 @@ public class MapsClient {
     @Value("${maps.application.name}")
     private String mapServiceApplicationName;
 
+    /**
+     * Maximum number of coordinates sent to the Maps service in one batch request.
+     */
+    @Value("${maps.batch.size:200}")
+    private int batchSize = 200;
+
+    @Value("${maps.batch.parallelism:4}")
+    private int batchParallelism = 4;
+
     private final WebClient client;
     private final ModelMapper mapper;
+    private final int geohashPrecision;
+
+    /**
+     * Addresses keyed by geohash. Concurrent misses for the same key share one load.
+     */
+    private final AsyncLoadingCache<String, Address> addresses;
+
+    /**
+     * Last address resolved for each geohash, kept well beyond the cache TTL as a
+     * fallback for when the Maps service is unavailable.
+     */
+    private final Cache<String, Address> lastKnownAddresses;
+
+    private final DownstreamGuard guard;
 
     public MapsClient(WebClient maps,
-            ModelMapper mapper) {
+            ModelMapper mapper,
+            MeterRegistry meterRegistry,
+            @Qualifier("mapsGuard") DownstreamGuard guard,
+            @Value("${maps.cache.max-size:100000}") long cacheMaxSize,
+            @Value("${maps.cache.ttl:24h}") Duration cacheTtl,
+            @Value("${maps.cache.stale-ttl:7d}") Duration staleTtl,
+            @Value("${maps.cache.geohash-precision:9}") int geohashPrecision) {
         this.client = maps;
         this.mapper = mapper;
+        this.guard = guard;
+        this.geohashPrecision = geohashPrecision;
+        this.addresses = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl.toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .buildAsync(new AddressLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, addresses.synchronous(), "maps.addresses");
+        this.lastKnownAddresses = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(staleTtl.toNanos(), TimeUnit.NANOSECONDS)
+                .build();
     }
 
     /**
@@ -37,18 +106,147 @@ public class MapsClient {
      *   or an exception message noting the Maps service is down
      */
     public Location getAddress(Location location) {
-        try {
-            Address address = client
+        return getAddressAsync(location).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #getAddress(Location)}. The returned Mono
+     * never errors: if the Maps service is down it emits the location updated with
+     * the last known address, or unchanged if there is none.
+     * @param location An object containing "lat" and "lon" of location
+     * @return Mono emitting the updated location
+     */
+    public Mono<Location> getAddressAsync(Location location) {
+        String key = key(location);
+        return toMono(addresses.get(key))
+                .onErrorResume(e -> {
+                    log.warn("Could not retrieve the address of {}: {}", key, e.getLocalizedMessage());
+                    return Mono.justOrEmpty(lastKnownAddresses.getIfPresent(key));
+                })
+                .map(address -> {
+                    mapper.map(address, location);
+                    return location;
+                })
+                .defaultIfEmpty(location);
+    }
+
+    /**
+     * Gets the addresses of many locations, using as few requests as possible.
+     * @param locations objects containing "lat" and "lon" of each location
+     * @return the same locations, updated with street, city, state and zip
+     *   where the Maps service could resolve them
+     */
+    public List<Location> getAddresses(List<Location> locations) {
+        return getAddressesAsync(locations).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #getAddresses(List)}. Locations whose address
+     * is not cached are requested from the Maps service in chunks of at most
+     * {@code maps.batch.size}, issued concurrently. Locations of a failed chunk get
+     * their last known address, or are left unchanged if there is none.
+     * @param locations objects containing "lat" and "lon" of each location
+     * @return Mono emitting the same locations once they have been updated
+     */
+    public Mono<List<Location>> getAddressesAsync(List<Location> locations) {
+        if (locations.isEmpty()) {
+            return Mono.just(locations);
+        }
+        List<String> keys = locations.stream().map(this::key).collect(Collectors.toList());
+        return toMono(addresses.getAll(keys))
+                .onErrorResume(e -> {
+                    log.warn("Could not retrieve {} addresses: {}", keys.size(), e.getLocalizedMessage());
+                    return Mono.just(Collections.emptyMap());
+                })
+                .doOnNext(found -> {
+                    for (int i = 0; i < locations.size(); i++) {
+                        String key = keys.get(i);
+                        Address address = found.get(key);
+                        if (address == null) {
+                            address = lastKnownAddresses.getIfPresent(key);
+                        }
+                        if (address != null) {
+                            mapper.map(address, locations.get(i));
+                        }
+                    }
+                })
+                .thenReturn(locations);
+    }
+
+    private String key(Location location) {
+        return GeoHash.encode(location.getLat(), location.getLon(), geohashPrecision);
+    }
+
+    /**
+     * Adapts a cache future to a Mono. The Mono subscribes to a dependent future,
+     * so cancelling it never cancels a load that other callers are waiting on.
+     */
+    private static <T> Mono<T> toMono(CompletableFuture<T> future) {
+        return Mono.fromFuture(future.thenApply(Function.identity()));
+    }
+
+    /**
+     * Loads addresses for geohashes, resolving the center of each geohash cell.
+     */
+    private class AddressLoader implements AsyncCacheLoader<String, Address> {
+
+        @Override
+        public CompletableFuture<Address> asyncLoad(String key, Executor executor) {
+            double[] coordinates = GeoHash.decode(key);
+            return guard.callHedged(tried -> client
                     .get()
-                    .uri("http://boggle-maps/maps" + "?lat=" + location.getLat() + "&lon=" + location.getLon())
-                    .retrieve().bodyToMono(Address.class).block();
+                    .uri("http://boggle-maps/maps" + "?lat=" + coordinates[0] + "&lon=" + coordinates[1])
+                    .attributes(LatencyAwareLoadBalancer.avoiding(tried))
+                    .retrieve().bodyToMono(Address.class))
+                    .doOnNext(address -> lastKnownAddresses.put(key, address))
+                    .subscriberContext(DownstreamTracing::propagate)
+                    .toFuture();
+        }
 
-            mapper.map(Objects.requireNonNull(address), location);
+        @Override
+        public CompletableFuture<Map<String, Address>> asyncLoadAll(Iterable<? extends String> keys,
+                Executor executor) {
+            List<String> list = new ArrayList<>();
+            keys.forEach(list::add);
+            return Flux.range(0, (list.size() + batchSize - 1) / batchSize)
+                    .map(chunk -> list.subList(chunk * batchSize, Math.min(list.size(), (chunk + 1) * batchSize)))
+                    .flatMap(this::loadBatch, batchParallelism)
+                    .<Map<String, Address>>reduceWith(HashMap::new, (all, batch) -> {
+                        all.putAll(batch);
+                        return all;
+                    })
+                    .subscriberContext(DownstreamTracing::propagate)
+                    .toFuture();
+        }
 
-            return location;
-        } catch (Exception e) {
-            log.warn("Map service is down");
-            return location;
+        private Mono<Map<String, Address>> loadBatch(List<String> keys) {
+            List<Coordinates> coordinates = keys.stream()
+                    .map(GeoHash::decode)
+                    .map(c -> new Coordinates(c[0], c[1]))
+                    .collect(Collectors.toList());
+            return guard.callHedged(tried -> client
+                    .post()
+                    .uri("http://boggle-maps/maps/batch")
+                    .attributes(LatencyAwareLoadBalancer.avoiding(tried))
+                    .body(BodyInserters.fromObject(coordinates))
+                    .retrieve().bodyToFlux(Address.class)
+                    .collectList())
+                    .map(found -> {
+                        if (found.size() != keys.size()) {
+                            throw new IllegalStateException("Expected " + keys.size()
+                                    + " addresses but got " + found.size());
+                        }
+                        Map<String, Address> batch = new HashMap<>();
+                        for (int i = 0; i < keys.size(); i++) {
+                            batch.put(keys.get(i), found.get(i));
+                        }
+                        return batch;
+                    })
+                    .doOnNext(lastKnownAddresses::putAll)
+                    .onErrorResume(e -> {
+                        log.warn("Could not retrieve {} addresses: {}", keys.size(), e.getLocalizedMessage());
+                        return Mono.empty();
+                    });
         }
     }
 }
@@ -0,0 +1,24 @@
+package com.udacity.vehicles.client.prices;
+
+/**
+ * Holds a price as last known from the pricing service, along with the time it was
+ * fetched. A null price records that the pricing service has no price for the vehicle.
+ */
+class CachedPrice {
+
+    private final String price;
+    private final long fetchedAt;
+
+    CachedPrice(String price, long fetchedAt) {
+        this.price = price;
+        this.fetchedAt = fetchedAt;
+    }
+
+    String getPrice() {
+        return price;
+    }
+
+    long getFetchedAt() {
+        return fetchedAt;
+    }
+}
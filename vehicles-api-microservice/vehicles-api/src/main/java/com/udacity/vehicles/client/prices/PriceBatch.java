@@ -0,0 +1,33 @@
+package com.udacity.vehicles.client.prices;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents the result of a batch price lookup, as returned by the pricing service.
+ */
+public class PriceBatch {
+
+    private List<Price> prices = new ArrayList<>();
+
+    private List<Long> missing = new ArrayList<>();
+
+    public PriceBatch() {
+    }
+
+    public List<Price> getPrices() {
+        return prices;
+    }
+
+    public void setPrices(List<Price> prices) {
+        this.prices = prices;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+
+    public void setMissing(List<Long> missing) {
+        this.missing = missing;
+    }
+}
@@ -1,14 +1,47 @@
 package com.udacity.vehicles.client.prices;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.udacity.vehicles.client.DownstreamTracing;
+import com.udacity.vehicles.client.loadbalancer.LatencyAwareLoadBalancer;
+import com.udacity.vehicles.client.resilience.DownstreamGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Implements a class to interface with the Pricing Client for price data.
+ * Prices are cached: the cache is written through when a price is posted,
+ * invalidated when it is deleted, and refreshed in the background before
+ * entries expire, so frequently read vehicles never wait on the pricing service.
+ * Calls to the pricing service go through its {@link DownstreamGuard}; when a read
+ * fails or is rejected, the price is absent, and callers fall back to their own copy.
  */
 @Component
 public class PriceClient {
@@ -22,19 +55,56 @@ public class PriceClient {
     private final String getQuoteEndpoint = "/services/price?vehicleId={vehicleId}";
     private final String pricesEndpoint = "/prices";
     private final String pricesTargetEndpoint = "/prices/{vehicleId}";
+    private final String pricesBatchEndpoint = "/prices/batch";
+    private final String quoteBatchEndpoint = "/services/price/batch";
+
+    /**
+     * Maximum number of vehicle IDs sent to the pricing service in one batch request.
+     */
+    @Value("${pricing.batch.size:200}")
+    private int batchSize = 200;
+
+    @Value("${pricing.batch.parallelism:4}")
+    private int batchParallelism = 4;
 
     private static final Logger log = LoggerFactory.getLogger(PriceClient.class);
 
     private final WebClient client;
 
-    public PriceClient(WebClient pricing) {
+    /**
+     * Prices keyed by vehicle ID. Concurrent misses for the same vehicle share one load.
+     */
+    private final AsyncLoadingCache<Long, CachedPrice> prices;
+
+    private final DownstreamGuard guard;
+
+    /**
+     * Records how old each price served from the cache is.
+     */
+    private final Timer staleness;
+
+    public PriceClient(WebClient pricing,
+            MeterRegistry meterRegistry,
+            @Qualifier("pricingGuard") DownstreamGuard guard,
+            @Value("${pricing.cache.max-size:100000}") long cacheMaxSize,
+            @Value("${pricing.cache.ttl:10m}") Duration cacheTtl,
+            @Value("${pricing.cache.refresh-after:8m}") Duration cacheRefreshAfter) {
         this.client = pricing;
+        this.guard = guard;
+        this.prices = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl.toNanos(), TimeUnit.NANOSECONDS)
+                .refreshAfterWrite(cacheRefreshAfter.toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .buildAsync(new PriceLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, prices.synchronous(), "pricing.prices");
+        this.staleness = Timer.builder("pricing.prices.staleness")
+                .description("Age of the prices served from the cache")
+                .register(meterRegistry);
     }
 
-    // In a real-world application we'll want to add some resilience
-    // to this method with retries/CB/failover capabilities
-    // We may also want to cache the results so we don't need to
-    // do a request every time
+    // Quotes are not cached and have no sensible fallback: when the pricing
+    // service is down or its circuit breaker is open, the vehicle gets no price.
 
     /**
      * Sets a vehicle price from the pricing client, given vehicle ID, if a price has not already been set.
@@ -45,20 +115,48 @@ public class PriceClient {
      */
 
     public String setPrice(Long vehicleId) {
-        try {
-
-            Price price = client
-                    .get()
-                    .uri( pricingApplicationBaseURL + getQuoteEndpoint, vehicleId)
-                    .retrieve().bodyToMono(Price.class).block();
-
+        return setPriceAsync(vehicleId).block();
+    }
 
-            return String.format("%s %s", price.getCurrency(), price.getPrice());
+    /**
+     * Non-blocking variant of {@link #setPrice(Long)}. The returned Mono
+     * completes empty if no quote could be retrieved.
+     * @param vehicleId ID number of the vehicle for which to get the price
+     * @return Mono emitting the currency and price quoted for the vehicle
+     */
+    public Mono<String> setPriceAsync(Long vehicleId) {
+        return guard.call(() -> client
+                .get()
+                .uri( pricingApplicationBaseURL + getQuoteEndpoint, vehicleId)
+                .retrieve().bodyToMono(Price.class))
+                .map(price -> String.format("%s %s", price.getCurrency(), price.getPrice()))
+                .onErrorResume(e -> {
+                    log.error("Unexpected error retrieving price for vehicle {}", vehicleId, e);
+                    return Mono.empty();
+                });
+    }
 
-        } catch (Exception e) {
-            log.error("Unexpected error retrieving price for vehicle {}", vehicleId, e);
-        }
-        return null;
+    /**
+     * Gets quotes for many vehicles without blocking, in chunks of at most
+     * {@code pricing.batch.size} issued concurrently. Like single quotes, they
+     * are not cached, and vehicles of a failed chunk get no quote.
+     * @param vehicleIds ID numbers of the vehicles for which to get a quote
+     * @return Mono emitting a map of vehicle ID to currency and price; vehicles
+     *   without a quote are absent from the map
+     */
+    public Mono<Map<Long, String>> setPricesAsync(Collection<Long> vehicleIds) {
+        List<Long> ids = vehicleIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        return inBatches(ids, batch -> guard.call(() -> client
+                .post()
+                .uri(pricingApplicationBaseURL + quoteBatchEndpoint)
+                .body(BodyInserters.fromObject(batch))
+                .retrieve().bodyToMono(PriceBatch.class))
+                .map(quoted -> quoted.getPrices().stream().collect(Collectors.toMap(Price::getVehicleId,
+                        price -> String.format("%s %s", price.getCurrency(), price.getPrice()))))
+                .onErrorResume(e -> {
+                    log.error("Could not retrieve quotes for {} vehicles: {}", batch.size(), e.getLocalizedMessage());
+                    return Mono.empty();
+                }));
     }
 
     /**
@@ -69,35 +167,231 @@ public class PriceClient {
      *   service is down.
      */
     public String getPrice(Long vehicleId) {
-        try{
-        Price price = client
-                .get()
-                .uri(pricingApplicationBaseURL + pricesTargetEndpoint, vehicleId)
-                .retrieve().bodyToMono(Price.class).block();
+        return getPriceAsync(vehicleId).block();
+    }
 
-        return String.format("%s %s", price.getCurrency(), price.getPrice());
-        }
-        catch (Exception e) {
-            System.out.println(e.getLocalizedMessage());
-        }
-        return null;
+    /**
+     * Non-blocking variant of {@link #getPrice(Long)}. The returned Mono
+     * completes empty if the price is unknown, or if it could not be retrieved.
+     * @param vehicleId ID number of the vehicle for which to get the price
+     * @return Mono emitting the currency and price of the requested vehicle
+     */
+    public Mono<String> getPriceAsync(Long vehicleId) {
+        return toMono(prices.get(vehicleId))
+                .onErrorResume(e -> {
+                    log.warn("Could not retrieve price for vehicle {}: {}", vehicleId, e.getLocalizedMessage());
+                    return Mono.empty();
+                })
+                .flatMap(cached -> Mono.justOrEmpty(serve(cached)));
+    }
 
+    /**
+     * Gets the prices of many vehicles, using as few requests as possible.
+     * @param vehicleIds ID numbers of the vehicles for which to get the price
+     * @return map of vehicle ID to currency and price; vehicles without a
+     *   known price are absent from the map
+     */
+    public Map<Long, String> getPrices(Collection<Long> vehicleIds) {
+        return getPricesAsync(vehicleIds).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #getPrices(Collection)}. Prices that are not
+     * cached are requested in chunks of at most {@code pricing.batch.size}, issued
+     * concurrently. Vehicles of a failed chunk are absent from the map.
+     * @param vehicleIds ID numbers of the vehicles for which to get the price
+     * @return Mono emitting a map of vehicle ID to currency and price
+     */
+    public Mono<Map<Long, String>> getPricesAsync(Collection<Long> vehicleIds) {
+        List<Long> ids = vehicleIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return toMono(prices.getAll(ids))
+                .onErrorResume(e -> {
+                    log.warn("Could not retrieve prices for {} vehicles: {}", ids.size(), e.getLocalizedMessage());
+                    return Mono.just(Collections.emptyMap());
+                })
+                .map(found -> {
+                    Map<Long, String> pricesById = new HashMap<>();
+                    for (Long id : ids) {
+                        CachedPrice cached = found.get(id);
+                        String price = cached == null ? null : serve(cached);
+                        if (price != null) {
+                            pricesById.put(id, price);
+                        }
+                    }
+                    return pricesById;
+                });
     }
 
     /**
      * Post a Price with the pricing client, given a Price Object.
+     * The price is written through to the cache once the pricing service has stored it.
      * @param price containing the vehicleId whose this price is associated with, the currency, and the price
      *
      */
     public String postPrice(Price price) {
-        client.post()
-                .uri(pricingApplicationBaseURL + pricesEndpoint).body(BodyInserters.fromObject(price)).retrieve().bodyToMono(Price.class).block();
-        return String.format("%s %s", price.getCurrency(), price.getPrice());
+        return postPriceAsync(price).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #postPrice(Price)}.
+     * @param price containing the vehicleId whose this price is associated with, the currency, and the price
+     * @return Mono emitting the currency and price once stored, or the error of the pricing service
+     */
+    public Mono<String> postPriceAsync(Price price) {
+        return guard.call(() -> client.post()
+                .uri(pricingApplicationBaseURL + pricesEndpoint).body(BodyInserters.fromObject(price)).retrieve().bodyToMono(Price.class))
+                .then(Mono.fromSupplier(() -> {
+                    String formatted = String.format("%s %s", price.getCurrency(), price.getPrice());
+                    prices.put(price.getVehicleId(), CompletableFuture.completedFuture(
+                            new CachedPrice(formatted, System.nanoTime())));
+                    return formatted;
+                }));
     }
 
 
+    /**
+     * Posts many prices without blocking, in chunks of at most {@code pricing.batch.size}
+     * issued concurrently. Each price is written through to the cache once the
+     * pricing service has stored it; the prices of a failed chunk are not stored.
+     * @param toPost the prices to post, each with the ID of its vehicle
+     * @return Mono emitting a map of vehicle ID to the currency and price stored
+     */
+    public Mono<Map<Long, String>> postPricesAsync(List<Price> toPost) {
+        return inBatches(toPost, batch -> guard.call(() -> client.put()
+                .uri(pricingApplicationBaseURL + pricesBatchEndpoint)
+                .body(BodyInserters.fromObject(batch))
+                .retrieve().bodyToFlux(Price.class).collectList())
+                .map(stored -> {
+                    long fetchedAt = System.nanoTime();
+                    Map<Long, String> formatted = new HashMap<>();
+                    for (Price price : stored) {
+                        CachedPrice cached = new CachedPrice(
+                                String.format("%s %s", price.getCurrency(), price.getPrice()), fetchedAt);
+                        prices.put(price.getVehicleId(), CompletableFuture.completedFuture(cached));
+                        formatted.put(price.getVehicleId(), cached.getPrice());
+                    }
+                    return formatted;
+                })
+                .onErrorResume(e -> {
+                    log.error("Could not post prices for {} vehicles: {}", batch.size(), e.getLocalizedMessage());
+                    return Mono.empty();
+                }));
+    }
+
+    /**
+     * Deletes the price of a vehicle, blocking until the pricing service has answered.
+     * @param vehicleId ID number of the vehicle whose price to delete
+     */
     public void deletePrice(Long vehicleId) {
-        client.delete()
-                .uri(pricingApplicationBaseURL + pricesTargetEndpoint, vehicleId).retrieve().bodyToMono(Void.class).block();
+        deletePriceAsync(vehicleId).block();
+    }
+
+    /**
+     * Deletes the price of a vehicle without blocking. The cached price is dropped right
+     * away, and again once the pricing service has answered, so that a price read back
+     * while the deletion was in flight is not served afterwards.
+     * @param vehicleId ID number of the vehicle whose price to delete
+     * @return Mono completing once the pricing service has deleted the price
+     */
+    public Mono<Void> deletePriceAsync(Long vehicleId) {
+        return Mono.defer(() -> {
+            prices.synchronous().invalidate(vehicleId);
+            return guard.call(() -> client.delete()
+                    .uri(pricingApplicationBaseURL + pricesTargetEndpoint, vehicleId).retrieve().bodyToMono(Void.class))
+                    .doOnTerminate(() -> prices.synchronous().invalidate(vehicleId));
+        });
+    }
+
+    /**
+     * Sends a list to the pricing service in chunks of at most {@code pricing.batch.size},
+     * issued concurrently, and merges the maps emitted for each chunk.
+     */
+    private <T> Mono<Map<Long, String>> inBatches(List<T> items, Function<List<T>, Mono<Map<Long, String>>> call) {
+        if (items.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return Flux.range(0, (items.size() + batchSize - 1) / batchSize)
+                .map(chunk -> items.subList(chunk * batchSize, Math.min(items.size(), (chunk + 1) * batchSize)))
+                .flatMap(call, batchParallelism)
+                .<Map<Long, String>>reduceWith(HashMap::new, (all, batch) -> {
+                    all.putAll(batch);
+                    return all;
+                });
+    }
+
+    private String serve(CachedPrice cached) {
+        staleness.record(System.nanoTime() - cached.getFetchedAt(), TimeUnit.NANOSECONDS);
+        return cached.getPrice();
+    }
+
+    /**
+     * Adapts a cache future to a Mono. The Mono subscribes to a dependent future,
+     * so cancelling it never cancels a load that other callers are waiting on.
+     */
+    private static <T> Mono<T> toMono(CompletableFuture<T> future) {
+        return Mono.fromFuture(future.thenApply(Function.identity()));
+    }
+
+    /**
+     * Loads prices from the pricing service. A vehicle without a stored price is
+     * cached as such, so that it is not requested again until the entry is refreshed.
+     */
+    private class PriceLoader implements AsyncCacheLoader<Long, CachedPrice> {
+
+        @Override
+        public CompletableFuture<CachedPrice> asyncLoad(Long vehicleId, Executor executor) {
+            return guard.callHedged(tried -> client
+                    .get()
+                    .uri(pricingApplicationBaseURL + pricesTargetEndpoint, vehicleId)
+                    .attributes(LatencyAwareLoadBalancer.avoiding(tried))
+                    .retrieve().bodyToMono(Price.class))
+                    .map(price -> new CachedPrice(String.format("%s %s", price.getCurrency(), price.getPrice()),
+                            System.nanoTime()))
+                    .onErrorResume(WebClientResponseException.class, e -> e.getStatusCode() == HttpStatus.NOT_FOUND
+                            ? Mono.just(new CachedPrice(null, System.nanoTime()))
+                            : Mono.error(e))
+                    .subscriberContext(DownstreamTracing::propagate)
+                    .toFuture();
+        }
+
+        @Override
+        public CompletableFuture<Map<Long, CachedPrice>> asyncLoadAll(Iterable<? extends Long> vehicleIds,
+                Executor executor) {
+            List<Long> ids = new ArrayList<>();
+            vehicleIds.forEach(ids::add);
+            return Flux.range(0, (ids.size() + batchSize - 1) / batchSize)
+                    .map(chunk -> ids.subList(chunk * batchSize, Math.min(ids.size(), (chunk + 1) * batchSize)))
+                    .flatMap(this::loadBatch, batchParallelism)
+                    .<Map<Long, CachedPrice>>reduceWith(HashMap::new, (all, batch) -> {
+                        all.putAll(batch);
+                        return all;
+                    })
+                    .subscriberContext(DownstreamTracing::propagate)
+                    .toFuture();
+        }
+
+        private Mono<Map<Long, CachedPrice>> loadBatch(List<Long> vehicleIds) {
+            return guard.callHedged(tried -> client
+                    .post()
+                    .uri(pricingApplicationBaseURL + pricesBatchEndpoint)
+                    .attributes(LatencyAwareLoadBalancer.avoiding(tried))
+                    .body(BodyInserters.fromObject(vehicleIds))
+                    .retrieve().bodyToMono(PriceBatch.class))
+                    .map(batch -> {
+                        long fetchedAt = System.nanoTime();
+                        Map<Long, CachedPrice> found = new HashMap<>();
+                        batch.getPrices().forEach(price -> found.put(price.getVehicleId(), new CachedPrice(
+                                String.format("%s %s", price.getCurrency(), price.getPrice()), fetchedAt)));
+                        batch.getMissing().forEach(id -> found.put(id, new CachedPrice(null, fetchedAt)));
+                        return found;
+                    })
+                    .onErrorResume(e -> {
+                        log.warn("Could not retrieve prices for {} vehicles: {}", vehicleIds.size(), e.getLocalizedMessage());
+                        return Mono.empty();
+                    });
+        }
     }
 }
@@ -0,0 +1,141 @@
+package com.udacity.vehicles.client.resilience;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Count-based circuit breaker. While closed, the outcomes of the last calls are
+ * kept in a sliding window; once the failure rate in the window reaches the
+ * threshold, the breaker opens and rejects calls for a while. It then lets a few
+ * trial calls through (half-open): if they all succeed it closes again, and any
+ * failure opens it for another period.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final boolean[] window;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(String name, DownstreamSettings settings) {
+        this.name = name;
+        this.window = new boolean[settings.getSlidingWindowSize()];
+        this.minimumCalls = Math.min(settings.getMinimumCalls(), window.length);
+        this.failureRateThreshold = settings.getFailureRateThreshold();
+        this.openNanos = settings.getOpenDuration().toNanos();
+        this.halfOpenCalls = settings.getHalfOpenCalls();
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Asks for permission to make a call. Every permitted call must be followed by
+     * exactly one of {@link #onSuccess()}, {@link #onFailure()} or {@link #release()}.
+     * @return true if the call may proceed
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                transitionTo(State.HALF_OPEN);
+                halfOpenPermits = halfOpenCalls;
+                halfOpenSuccesses = 0;
+                // fall through
+            default:
+                if (halfOpenPermits == 0) {
+                    return false;
+                }
+                halfOpenPermits--;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (windowCount >= minimumCalls && windowFailures * 100 >= failureRateThreshold * windowCount) {
+                open();
+            }
+        }
+    }
+
+    /**
+     * Gives back a permit whose call finished without an outcome, e.g. because it was cancelled.
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN && halfOpenPermits < halfOpenCalls - halfOpenSuccesses) {
+            halfOpenPermits++;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        transitionTo(State.OPEN);
+    }
+
+    private void transitionTo(State next) {
+        if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+        if (state != next) {
+            log.warn("Circuit breaker for {} changed from {} to {}", name, state, next);
+            state = next;
+        }
+    }
+}
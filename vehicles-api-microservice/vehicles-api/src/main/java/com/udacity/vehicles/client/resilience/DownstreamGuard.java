@@ -0,0 +1,116 @@
+package com.udacity.vehicles.client.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Protects the callers of one downstream service. Each call gets a deadline,
+ * at most a fixed number of calls are in flight at once (bulkhead), and a circuit
+ * breaker fails calls fast while the service keeps failing. Rejected calls error
+ * with {@link DownstreamUnavailableException} without touching the network.
+ *
+ * Client errors (4xx) are the caller's fault, not the service's, and do not
+ * count as failures towards the circuit breaker.
+ *
+ * Idempotent reads may additionally be hedged with {@link #callHedged(Function)};
+ * the hedged call as a whole takes one bulkhead permit and is one outcome for the breaker.
+ */
+public class DownstreamGuard {
+
+    private final String name;
+    private final Duration timeout;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final RequestHedger hedger;
+    private final Counter circuitOpenRejections;
+    private final Counter bulkheadRejections;
+
+    public DownstreamGuard(String name, DownstreamSettings settings, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.timeout = settings.getTimeout();
+        this.bulkhead = new Semaphore(settings.getMaxConcurrentCalls());
+        this.circuitBreaker = new CircuitBreaker(name, settings);
+        this.hedger = new RequestHedger(name, settings, meterRegistry);
+
+        Gauge.builder("downstream.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 open, 2 half-open")
+                .tag("service", name)
+                .register(meterRegistry);
+        Gauge.builder("downstream.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Calls that can still be made before the bulkhead is full")
+                .tag("service", name)
+                .register(meterRegistry);
+        this.circuitOpenRejections = Counter.builder("downstream.rejections")
+                .tag("service", name).tag("reason", "circuit_open")
+                .register(meterRegistry);
+        this.bulkheadRejections = Counter.builder("downstream.rejections")
+                .tag("service", name).tag("reason", "bulkhead_full")
+                .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Makes a guarded call. The supplier is only invoked if the call is permitted;
+     * if it throws, the call fails like any other and gives its permits back.
+     * @param call creates the Mono performing the call
+     * @return Mono of the call's result, with the deadline applied
+     */
+    public <T> Mono<T> call(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            if (!circuitBreaker.tryAcquire()) {
+                circuitOpenRejections.increment();
+                return Mono.error(new DownstreamUnavailableException("Circuit breaker for " + name + " is open"));
+            }
+            if (!bulkhead.tryAcquire()) {
+                circuitBreaker.release();
+                bulkheadRejections.increment();
+                return Mono.error(new DownstreamUnavailableException("Too many concurrent calls to " + name));
+            }
+            return Mono.defer(call::get)
+                    .timeout(timeout)
+                    .doOnSuccess(result -> circuitBreaker.onSuccess())
+                    .doOnError(e -> {
+                        if (isClientError(e)) {
+                            circuitBreaker.onSuccess();
+                        } else {
+                            circuitBreaker.onFailure();
+                        }
+                    })
+                    .doOnCancel(circuitBreaker::release)
+                    .doFinally(signal -> bulkhead.release());
+        });
+    }
+
+    /**
+     * Makes a guarded call that is hedged if hedging is enabled for this service.
+     * Only use this for idempotent requests.
+     * @param attempt makes one attempt, given the instances tried so far
+     *   (see {@code LatencyAwareLoadBalancer#avoiding(Set)})
+     * @return Mono of the first attempt to answer, with the deadline applied
+     */
+    public <T> Mono<T> callHedged(Function<Set<URI>, Mono<T>> attempt) {
+        return call(() -> hedger.call(attempt));
+    }
+
+    private static boolean isClientError(Throwable e) {
+        return e instanceof WebClientResponseException
+                && ((WebClientResponseException) e).getStatusCode().is4xxClientError();
+    }
+}
@@ -0,0 +1,153 @@
+package com.udacity.vehicles.client.resilience;
+
+import java.time.Duration;
+
+/**
+ * Holds the resilience settings of one downstream service, bound from
+ * {@code resilience.<service>.*} properties.
+ */
+public class DownstreamSettings {
+
+    /**
+     * Deadline for a single call, including waiting for the response body.
+     */
+    private Duration timeout = Duration.ofSeconds(2);
+
+    /**
+     * Maximum number of calls in flight at once; further calls are rejected.
+     */
+    private int maxConcurrentCalls = 64;
+
+    /**
+     * Number of recent calls the failure rate is computed over.
+     */
+    private int slidingWindowSize = 20;
+
+    /**
+     * Number of calls in the window before the breaker may open.
+     */
+    private int minimumCalls = 10;
+
+    /**
+     * Failure rate, in percent, at which the breaker opens.
+     */
+    private int failureRateThreshold = 50;
+
+    /**
+     * How long the breaker stays open before letting trial calls through.
+     */
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    /**
+     * Number of trial calls that must succeed to close the breaker again.
+     */
+    private int halfOpenCalls = 3;
+
+    /**
+     * Whether idempotent reads are hedged.
+     */
+    private boolean hedgeEnabled = false;
+
+    /**
+     * Percentile of recent latency after which a hedge is sent.
+     */
+    private int hedgePercentile = 95;
+
+    /**
+     * Maximum extra load caused by hedges, in percent of calls.
+     */
+    private int hedgeBudgetPercent = 10;
+
+    /**
+     * Minimum delay before a hedge is sent.
+     */
+    private Duration hedgeMinDelay = Duration.ofMillis(5);
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+
+    public int getSlidingWindowSize() {
+        return slidingWindowSize;
+    }
+
+    public void setSlidingWindowSize(int slidingWindowSize) {
+        this.slidingWindowSize = slidingWindowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public void setHedgeEnabled(boolean hedgeEnabled) {
+        this.hedgeEnabled = hedgeEnabled;
+    }
+
+    public int getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public void setHedgePercentile(int hedgePercentile) {
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    public int getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public void setHedgeBudgetPercent(int hedgeBudgetPercent) {
+        this.hedgeBudgetPercent = hedgeBudgetPercent;
+    }
+
+    public Duration getHedgeMinDelay() {
+        return hedgeMinDelay;
+    }
+
+    public void setHedgeMinDelay(Duration hedgeMinDelay) {
+        this.hedgeMinDelay = hedgeMinDelay;
+    }
+}
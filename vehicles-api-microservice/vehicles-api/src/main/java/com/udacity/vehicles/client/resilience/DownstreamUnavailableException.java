@@ -0,0 +1,12 @@
+package com.udacity.vehicles.client.resilience;
+
+/**
+ * Thrown when a call to a downstream service is rejected without being made,
+ * because its circuit breaker is open or its bulkhead is full.
+ */
+public class DownstreamUnavailableException extends RuntimeException {
+
+    public DownstreamUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,166 @@
+package com.udacity.vehicles.client.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Hedges idempotent calls to cut tail latency: if the first attempt has not
+ * answered within a high percentile of recently observed latency, a second attempt
+ * is sent and whichever answers first wins, cancelling the other. Both attempts
+ * share the set of instances already tried, so the load balancer sends the hedge
+ * to a different instance.
+ *
+ * Hedges are paid for from a budget that grows by a fixed fraction of a token per
+ * call, which caps the extra load at that percentage even when the service as a
+ * whole slows down.
+ */
+public class RequestHedger {
+
+    /**
+     * Number of recent latencies the hedge delay is computed from.
+     */
+    private static final int SAMPLES = 512;
+
+    /**
+     * Hedging starts once this many latencies have been observed.
+     */
+    private static final int MIN_SAMPLES = 32;
+
+    /**
+     * Upper bound of the budget, so an idle period cannot save up a burst of hedges.
+     */
+    private static final double MAX_TOKENS = 10;
+
+    private final boolean enabled;
+    private final int percentile;
+    private final double tokensPerCall;
+    private final long minDelayNanos;
+
+    private final long[] latencies = new long[SAMPLES];
+    private int sampleIndex;
+    private int sampleCount;
+    private volatile long delayNanos = -1;
+    private double tokens;
+
+    private final Counter calls;
+    private final Counter hedges;
+    private final Counter hedgeWins;
+    private final Counter budgetExhausted;
+
+    public RequestHedger(String name, DownstreamSettings settings, MeterRegistry meterRegistry) {
+        this.enabled = settings.isHedgeEnabled();
+        this.percentile = settings.getHedgePercentile();
+        this.tokensPerCall = settings.getHedgeBudgetPercent() / 100.0;
+        this.minDelayNanos = settings.getHedgeMinDelay().toNanos();
+
+        this.calls = Counter.builder("downstream.hedge.calls")
+                .description("Calls eligible for hedging")
+                .tag("service", name).register(meterRegistry);
+        this.hedges = Counter.builder("downstream.hedge.sent")
+                .description("Hedged attempts sent")
+                .tag("service", name).register(meterRegistry);
+        this.hedgeWins = Counter.builder("downstream.hedge.wins")
+                .description("Hedged attempts that answered before the first attempt")
+                .tag("service", name).register(meterRegistry);
+        this.budgetExhausted = Counter.builder("downstream.hedge.budget-exhausted")
+                .description("Hedges not sent because the hedge budget was spent")
+                .tag("service", name).register(meterRegistry);
+        Gauge.builder("downstream.hedge.delay", this, hedger -> Math.max(0, hedger.delayNanos) / 1e6)
+                .description("Current delay before a hedge is sent, in milliseconds")
+                .tag("service", name).register(meterRegistry);
+    }
+
+    /**
+     * Makes a possibly hedged call.
+     * @param attempt makes one attempt, given the set of instances tried so far
+     * @return Mono of the first attempt to answer
+     */
+    public <T> Mono<T> call(Function<Set<URI>, Mono<T>> attempt) {
+        return Mono.defer(() -> {
+            Set<URI> tried = ConcurrentHashMap.newKeySet();
+            long delay = delayNanos;
+            if (!enabled || delay < 0) {
+                return timed(attempt, tried);
+            }
+            calls.increment();
+            deposit();
+            Mono<Attempt<T>> primary = timed(attempt, tried).map(value -> new Attempt<>(value, false));
+            Mono<Attempt<T>> hedge = Mono.delay(Duration.ofNanos(delay))
+                    .flatMap(tick -> {
+                        if (!withdraw()) {
+                            budgetExhausted.increment();
+                            return Mono.never();
+                        }
+                        hedges.increment();
+                        return timed(attempt, tried).map(value -> new Attempt<>(value, true));
+                    });
+            return Mono.first(primary, hedge)
+                    .map(winner -> {
+                        if (winner.hedge) {
+                            hedgeWins.increment();
+                        }
+                        return winner.value;
+                    });
+        });
+    }
+
+    private <T> Mono<T> timed(Function<Set<URI>, Mono<T>> attempt, Set<URI> tried) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return attempt.apply(tried).doOnSuccess(value -> observe(System.nanoTime() - start));
+        });
+    }
+
+    private synchronized void observe(long latencyNanos) {
+        latencies[sampleIndex] = latencyNanos;
+        sampleIndex = (sampleIndex + 1) % SAMPLES;
+        sampleCount = Math.min(SAMPLES, sampleCount + 1);
+        if (sampleCount >= MIN_SAMPLES && sampleIndex % MIN_SAMPLES == 0) {
+            long[] sorted = Arrays.copyOf(latencies, sampleCount);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * sampleCount) - 1;
+            delayNanos = Math.max(minDelayNanos, sorted[Math.max(0, rank)]);
+        }
+    }
+
+    private synchronized void deposit() {
+        tokens = Math.min(MAX_TOKENS, tokens + tokensPerCall);
+    }
+
+    private synchronized boolean withdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    /**
+     * Current delay before a hedge is sent, or -1 while too few latencies have been observed.
+     */
+    long getDelay(TimeUnit unit) {
+        long delay = delayNanos;
+        return delay < 0 ? -1 : unit.convert(delay, TimeUnit.NANOSECONDS);
+    }
+
+    private static class Attempt<T> {
+
+        private final T value;
+        private final boolean hedge;
+
+        Attempt(T value, boolean hedge) {
+            this.value = value;
+            this.hedge = hedge;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.udacity.vehicles.config;
+
+import com.udacity.vehicles.client.resilience.DownstreamGuard;
+import com.udacity.vehicles.client.resilience.DownstreamSettings;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Declares the timeouts, bulkheads and circuit breakers guarding each downstream service.
+ */
+@Configuration
+public class DownstreamConfig {
+
+    @Bean
+    @ConfigurationProperties("resilience.pricing")
+    public DownstreamSettings pricingSettings() {
+        return new DownstreamSettings();
+    }
+
+    @Bean
+    @ConfigurationProperties("resilience.maps")
+    public DownstreamSettings mapsSettings() {
+        return new DownstreamSettings();
+    }
+
+    @Bean
+    public DownstreamGuard pricingGuard(@Qualifier("pricingSettings") DownstreamSettings settings,
+            MeterRegistry meterRegistry) {
+        return new DownstreamGuard("pricing-service", settings, meterRegistry);
+    }
+
+    @Bean
+    public DownstreamGuard mapsGuard(@Qualifier("mapsSettings") DownstreamSettings settings,
+            MeterRegistry meterRegistry) {
+        return new DownstreamGuard("boogle-maps", settings, meterRegistry);
+    }
+}
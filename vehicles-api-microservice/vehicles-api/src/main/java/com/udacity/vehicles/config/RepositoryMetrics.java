@@ -0,0 +1,70 @@
+package com.udacity.vehicles.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every call to a Spring Data repository, and so every JPA query the
+ * application runs, in the {@code spring.data.repository.invocations} timer.
+ * Calls are tagged with the repository, the method, the state ({@code SUCCESS}
+ * or {@code ERROR}) and the exception thrown, if any.
+ */
+@Component
+public class RepositoryMetrics implements BeanPostProcessor {
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public RepositoryMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof Repository)) {
+            return bean;
+        }
+        Class<?>[] interfaces = AopProxyUtils.proxiedUserInterfaces(bean);
+        String repository = Arrays.stream(interfaces)
+                .filter(Repository.class::isAssignableFrom)
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElse(beanName);
+        ProxyFactory proxyFactory = new ProxyFactory();
+        proxyFactory.setTarget(bean);
+        proxyFactory.setInterfaces(interfaces);
+        proxyFactory.addAdvice(timing(repository));
+        return proxyFactory.getProxy(bean.getClass().getClassLoader());
+    }
+
+    private MethodInterceptor timing(String repository) {
+        return invocation -> {
+            long start = System.nanoTime();
+            String exception = "None";
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                exception = e.getClass().getSimpleName();
+                throw e;
+            } finally {
+                Timer.builder("spring.data.repository.invocations")
+                        .description("Duration of repository invocations")
+                        .tag("repository", repository)
+                        .tag("method", invocation.getMethod().getName())
+                        .tag("state", exception.equals("None") ? "SUCCESS" : "ERROR")
+                        .tag("exception", exception)
+                        .register(meterRegistry.getObject())
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.udacity.vehicles.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.hateoas.RelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+
+/**
+ * Renders HATEOAS resources as HAL on WebFlux. Spring HATEOAS only registers its
+ * HAL support with Spring MVC, so the JSON encoder is replaced by one whose
+ * ObjectMapper knows about HAL; other types are serialized as before.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class WebFluxHalConfig {
+
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public CodecCustomizer halCodecCustomizer(ObjectMapper objectMapper, RelProvider relProvider,
+            MessageSource messageSource) {
+        ObjectMapper halObjectMapper = objectMapper.copy();
+        halObjectMapper.registerModule(new Jackson2HalModule());
+        halObjectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                relProvider, null, new MessageSourceAccessor(messageSource)));
+        return configurer -> configurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(
+                halObjectMapper, MediaType.APPLICATION_JSON, new MediaType("application", "*+json")));
+    }
+}
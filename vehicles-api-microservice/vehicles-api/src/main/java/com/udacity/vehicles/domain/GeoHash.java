@@ -0,0 +1,192 @@
+package com.udacity.vehicles.domain;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Encodes coordinates as geohashes: base-32 strings where every character
+ * narrows the cell the coordinates fall into. Nearby coordinates share a
+ * prefix, so a geohash of a fixed length quantizes coordinates to a grid
+ * (about 4.8m x 4.8m at 9 characters), and all coordinates within a cell can
+ * be found through a range of geohashes starting with the cell's.
+ */
+public final class GeoHash {
+
+    public static final int MAX_PRECISION = 12;
+
+    /**
+     * Mean radius of the Earth, in kilometers.
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+    private static final int[] DECODE = new int['z' + 1];
+
+    static {
+        Arrays.fill(DECODE, -1);
+        for (int i = 0; i < BASE32.length; i++) {
+            DECODE[BASE32[i]] = i;
+        }
+    }
+
+    private GeoHash() {
+    }
+
+    /**
+     * Encodes a latitude and longitude pair.
+     * @param lat latitude, between -90 and 90
+     * @param lon longitude, between -180 and 180
+     * @param precision number of characters of the geohash, between 1 and 12
+     * @return the geohash of the cell containing the coordinates
+     */
+    public static String encode(double lat, double lon, int precision) {
+        if (precision < 1 || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Geohash precision must be between 1 and " + MAX_PRECISION);
+        }
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (lon >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+            if (++bit == 5) {
+                hash.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Decodes a geohash to the center of its cell.
+     * @param geohash the geohash to decode
+     * @return latitude and longitude of the center of the cell, in that order
+     */
+    public static double[] decode(String geohash) {
+        double minLat = -90, maxLat = 90, minLon = -180, maxLon = 180;
+        boolean evenBit = true;
+        for (int i = 0; i < geohash.length(); i++) {
+            char c = geohash.charAt(i);
+            int value = c < DECODE.length ? DECODE[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid geohash: " + geohash);
+            }
+            for (int mask = 16; mask > 0; mask >>= 1) {
+                if (evenBit) {
+                    double mid = (minLon + maxLon) / 2;
+                    if ((value & mask) != 0) {
+                        minLon = mid;
+                    } else {
+                        maxLon = mid;
+                    }
+                } else {
+                    double mid = (minLat + maxLat) / 2;
+                    if ((value & mask) != 0) {
+                        minLat = mid;
+                    } else {
+                        maxLat = mid;
+                    }
+                }
+                evenBit = !evenBit;
+            }
+        }
+        return new double[] {(minLat + maxLat) / 2, (minLon + maxLon) / 2};
+    }
+
+    /**
+     * Finds the cells covering a circle, at the finest precision at which at most
+     * a given number of cells are needed. Every point within the circle lies in
+     * one of the cells.
+     * @param lat latitude of the center of the circle
+     * @param lon longitude of the center of the circle
+     * @param radiusKm radius of the circle, in kilometers
+     * @param maxCells the maximum number of cells to return, unless even the
+     *   coarsest cells cannot cover the circle with fewer
+     * @return the geohashes of the cells, all of the same precision
+     */
+    public static Set<String> cover(double lat, double lon, double radiusKm, int maxCells) {
+        double deltaLat = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double minLat = Math.max(-90, lat - deltaLat);
+        double maxLat = Math.min(90, lat + deltaLat);
+        double cosLat = Math.min(Math.cos(Math.toRadians(minLat)), Math.cos(Math.toRadians(maxLat)));
+        double deltaLon = cosLat <= 0 ? 180 : Math.min(180, deltaLat / cosLat);
+        int precision = MAX_PRECISION;
+        while (precision > 1 && (long) rows(minLat, maxLat, precision)
+                * columns(lon - deltaLon, lon + deltaLon, precision) > maxCells) {
+            precision--;
+        }
+        int latBits = (5 * precision) / 2;
+        int lonBits = 5 * precision - latBits;
+        double height = 180 / Math.pow(2, latBits);
+        double width = 360 / Math.pow(2, lonBits);
+        long firstRow = row(minLat, precision);
+        long firstColumn = (long) Math.floor((lon - deltaLon + 180) / width);
+        int rows = rows(minLat, maxLat, precision);
+        int columns = columns(lon - deltaLon, lon + deltaLon, precision);
+        Set<String> cells = new LinkedHashSet<>();
+        for (long row = firstRow; row < firstRow + rows; row++) {
+            for (long column = firstColumn; column < firstColumn + columns; column++) {
+                long wrapped = Math.floorMod(column, 1L << lonBits);
+                cells.add(encode(-90 + (row + 0.5) * height, -180 + (wrapped + 0.5) * width, precision));
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Computes the great-circle distance between two points with the haversine formula.
+     * @return the distance, in kilometers
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double sinLat = Math.sin(Math.toRadians(lat2 - lat1) / 2);
+        double sinLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Counts the rows of cells of the given precision spanning a range of latitudes.
+     */
+    private static int rows(double minLat, double maxLat, int precision) {
+        return (int) (row(maxLat, precision) - row(minLat, precision) + 1);
+    }
+
+    /**
+     * Counts the columns of cells of the given precision spanning a range of
+     * longitudes, which may extend past the antimeridian.
+     */
+    private static int columns(double minLon, double maxLon, int precision) {
+        long count = 1L << (5 * precision - (5 * precision) / 2);
+        double width = 360.0 / count;
+        return (int) Math.min(count,
+                (long) Math.floor((maxLon + 180) / width) - (long) Math.floor((minLon + 180) / width) + 1);
+    }
+
+    private static long row(double lat, int precision) {
+        long count = 1L << ((5 * precision) / 2);
+        return Math.min(count - 1, (long) Math.floor((lat + 90) / (180.0 / count)));
+    }
+}
@@ -1,14 +1,21 @@
 package com.udacity.vehicles.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import javax.persistence.Column;
 import javax.persistence.Embeddable;
-import javax.persistence.Transient;
 import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.Objects;
 
 /**
  * Stores information about a given location.
- * Latitude and longitude must be provided, while other
- * location information must be gathered each time from
- * the maps API.
+ * Latitude and longitude must be provided, while the address is
+ * resolved from them through the maps API and stored along with
+ * the coordinates it was resolved for, so it is only looked up
+ * again once the coordinates change. The address cannot be set
+ * through the API.
  */
 @Embeddable
 public class Location {
@@ -19,18 +26,39 @@ public class Location {
     @NotNull
     private Double lon;
 
-    @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String address;
 
-    @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String city;
 
-    @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String state;
 
-    @Transient
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String zip;
 
+    /**
+     * When the address was resolved, or null if it never was.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime resolvedAt;
+
+    /**
+     * The coordinates the address was resolved for.
+     */
+    private Double resolvedLat;
+
+    private Double resolvedLon;
+
+    /**
+     * The geohash of the coordinates, at full precision, kept up to date by
+     * {@link #updateGeohash()} whenever the car is saved; see {@code CarRepository#findNear}.
+     */
+    @JsonIgnore
+    @Column(length = GeoHash.MAX_PRECISION)
+    private String geohash;
+
     @Override
     public String toString() {
         return "Location{" +
@@ -40,6 +68,7 @@ public class Location {
                 ", city='" + city + '\'' +
                 ", state='" + state + '\'' +
                 ", zip='" + zip + '\'' +
+                ", resolvedAt=" + resolvedAt +
                 '}';
     }
 
@@ -90,4 +119,46 @@ public class Location {
     public void setZip(String zip) {
         this.zip = zip;
     }
+
+    public LocalDateTime getResolvedAt() {
+        return resolvedAt;
+    }
+
+    /**
+     * Records that the address fields now describe the current coordinates.
+     * @param resolvedAt when the address was resolved
+     */
+    public void markResolved(LocalDateTime resolvedAt) {
+        this.resolvedAt = resolvedAt;
+        this.resolvedLat = lat;
+        this.resolvedLon = lon;
+    }
+
+    /**
+     * Checks whether the stored address was resolved for the current coordinates.
+     */
+    @JsonIgnore
+    public boolean isResolved() {
+        return resolvedAt != null && lat != null && lon != null
+                && lat.equals(resolvedLat) && lon.equals(resolvedLon);
+    }
+
+    public String getGeohash() {
+        return geohash;
+    }
+
+    /**
+     * Recomputes the geohash from the current coordinates.
+     */
+    public void updateGeohash() {
+        geohash = lat == null || lon == null ? null : GeoHash.encode(lat, lon, GeoHash.MAX_PRECISION);
+    }
+
+    /**
+     * Checks whether this location has the same coordinates as another one.
+     * @param other the other location, may be null
+     */
+    public boolean hasCoordinatesOf(Location other) {
+        return other != null && Objects.equals(lat, other.lat) && Objects.equals(lon, other.lon);
+    }
 }
@@ -1,5 +1,6 @@
 package com.udacity.vehicles.domain.car;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.udacity.vehicles.domain.Condition;
 import com.udacity.vehicles.domain.Location;
 import org.springframework.data.annotation.CreatedDate;
@@ -13,13 +14,38 @@ import java.time.LocalDateTime;
 
 /**
  * Declares the Car class, related variables and methods.
+ *
+ * The indexes serve {@link CarRepository#search}: one per searchable column,
+ * followed by the ID so that cars matching a criterion are read in ID order
+ * without sorting, and both directions of each sort column. The geohash of the
+ * location, followed by its coordinates, serves {@link CarRepository#findNear}.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "car_manufacturer_model_idx", columnList = "manufacturer_code, model, id"),
+        @Index(name = "car_model_idx", columnList = "model, id"),
+        @Index(name = "car_body_idx", columnList = "body, id"),
+        @Index(name = "car_fuel_type_idx", columnList = "fuelType, id"),
+        @Index(name = "car_external_color_idx", columnList = "externalColor, id"),
+        @Index(name = "car_condition_idx", columnList = "condition, id"),
+        @Index(name = "car_model_year_idx", columnList = "modelYear, id"),
+        @Index(name = "car_model_year_desc_idx", columnList = "modelYear desc, id desc"),
+        @Index(name = "car_mileage_idx", columnList = "mileage, id"),
+        @Index(name = "car_mileage_desc_idx", columnList = "mileage desc, id desc"),
+        @Index(name = "car_id_desc_idx", columnList = "id desc"),
+        @Index(name = "car_geohash_idx", columnList = "geohash, lat, lon")
+})
 @EntityListeners(AuditingEntityListener.class)
 public class Car {
 
+    /**
+     * Drawn from a sequence in blocks of {@code allocationSize} (Hibernate's pooled
+     * optimizer), so that inserting many cars costs one sequence call per block and
+     * their inserts can be sent in JDBC batches.
+     */
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "car_id")
+    @SequenceGenerator(name = "car_id", sequenceName = "car_id_seq", allocationSize = 50)
     private Long id;
 
     @CreatedDate
@@ -28,6 +54,15 @@ public class Car {
     @LastModifiedDate
     private LocalDateTime modifiedAt;
 
+    /**
+     * Incremented whenever the car is saved with changes; the address and the
+     * price are versioned separately (see {@link Location#getResolvedAt()} and
+     * {@link PriceSnapshot#getVersion()}).
+     */
+    @JsonIgnore
+    @Version
+    private long version;
+
     @NotNull
     @Enumerated(EnumType.STRING)
     private Condition condition;
@@ -43,6 +78,19 @@ public class Car {
     @Transient
     private String price;
 
+    @JsonIgnore
+    @Embedded
+    private PriceSnapshot priceSnapshot = new PriceSnapshot();
+
+    /**
+     * Keeps the geohash of the location in step with its coordinates.
+     */
+    @PrePersist
+    @PreUpdate
+    void updateGeohash() {
+        location.updateGeohash();
+    }
+
     @Override
     public String toString() {
         return "Car{" +
@@ -80,6 +128,14 @@ public class Car {
         this.modifiedAt = modifiedAt;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Condition getCondition() {
         return condition;
     }
@@ -111,4 +167,12 @@ public class Car {
     public void setPrice(String price) {
         this.price = price;
     }
+
+    public PriceSnapshot getPriceSnapshot() {
+        return priceSnapshot;
+    }
+
+    public void setPriceSnapshot(PriceSnapshot priceSnapshot) {
+        this.priceSnapshot = priceSnapshot;
+    }
 }
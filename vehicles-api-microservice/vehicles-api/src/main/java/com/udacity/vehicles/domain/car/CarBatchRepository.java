@@ -0,0 +1,21 @@
+package com.udacity.vehicles.domain.car;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Writes to many cars at once; implemented by {@link CarBatchRepositoryImpl} and
+ * exposed through {@link CarRepository}.
+ */
+public interface CarBatchRepository {
+
+    /**
+     * Replaces the price snapshots of many cars with prices just posted to the
+     * pricing service, as {@link CarRepository#storePriceSnapshot} does for one,
+     * in a single transaction and JDBC batch.
+     * @param prices the prices, e.g. {@code USD 12345.67}, keyed by car ID
+     * @param fetchedAt when the prices were posted
+     * @return the number of cars updated
+     */
+    int storePriceSnapshots(Map<Long, String> prices, LocalDateTime fetchedAt);
+}
@@ -0,0 +1,46 @@
+package com.udacity.vehicles.domain.car;
+
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Implements {@link CarBatchRepository} with plain JDBC batches on the connection
+ * of the current transaction, since JPQL updates are sent one statement at a time.
+ */
+class CarBatchRepositoryImpl implements CarBatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int storePriceSnapshots(Map<Long, String> prices, LocalDateTime fetchedAt) {
+        if (prices.isEmpty()) {
+            return 0;
+        }
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("update car set price_snapshot = ?, "
+                    + "price_fetched_at = ?, price_version = price_version + 1 where id = ?")) {
+                Timestamp timestamp = Timestamp.valueOf(fetchedAt);
+                for (Map.Entry<Long, String> price : prices.entrySet()) {
+                    statement.setString(1, price.getValue());
+                    statement.setTimestamp(2, timestamp);
+                    statement.setLong(3, price.getKey());
+                    statement.addBatch();
+                }
+                int updated = 0;
+                for (int count : statement.executeBatch()) {
+                    updated += Math.max(count, 0);
+                }
+                return updated;
+            }
+        });
+    }
+}
@@ -0,0 +1,23 @@
+package com.udacity.vehicles.domain.car;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads every car through a single database cursor; implemented by
+ * {@link CarExportRepositoryImpl} and exposed through {@link CarRepository}.
+ */
+public interface CarExportRepository {
+
+    /**
+     * Reads the cars following the given ID, in ID order, through a forward-only
+     * cursor fetching {@code windowSize} rows at a time, and hands them over a window
+     * at a time. Each window is detached once handed over, so the persistence context
+     * never holds more than one window however many cars are read.
+     * @param after the ID to start after, or null to start from the first car
+     * @param windowSize the number of cars fetched and handed over together
+     * @param consumer receives each window, in order, within the read-only
+     *   transaction of the cursor
+     */
+    void scroll(Long after, int windowSize, Consumer<List<Car>> consumer);
+}
@@ -0,0 +1,51 @@
+package com.udacity.vehicles.domain.car;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Implements {@link CarExportRepository} with a Hibernate scrollable result. The
+ * manufacturer of each car is fetched in the same query, and the cars are read
+ * only, so that neither extra queries nor dirty checking grow with the fleet.
+ */
+class CarExportRepositoryImpl implements CarExportRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void scroll(Long after, int windowSize, Consumer<List<Car>> consumer) {
+        Session session = entityManager.unwrap(Session.class);
+        try (ScrollableResults results = session.createQuery("select c from Car c "
+                + "join fetch c.details.manufacturer where c.id > :after order by c.id", Car.class)
+                .setParameter("after", after == null ? Long.MIN_VALUE : after)
+                .setFetchSize(windowSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            List<Car> window = new ArrayList<>(windowSize);
+            while (results.next()) {
+                window.add((Car) results.get(0));
+                if (window.size() == windowSize) {
+                    consumer.accept(window);
+                    session.clear();
+                    window = new ArrayList<>(windowSize);
+                }
+            }
+            if (!window.isEmpty()) {
+                consumer.accept(window);
+                session.clear();
+            }
+        }
+    }
+}
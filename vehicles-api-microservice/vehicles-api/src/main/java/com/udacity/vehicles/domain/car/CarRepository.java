@@ -1,9 +1,74 @@
 package com.udacity.vehicles.domain.car;
 
+import com.udacity.vehicles.domain.Location;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
-public interface CarRepository extends JpaRepository<Car, Long> {
+public interface CarRepository extends JpaRepository<Car, Long>, CarSearchRepository, CarBatchRepository,
+        CarExportRepository {
+
+    /**
+     * Gets the next page of cars in ID order, starting after a given ID (keyset pagination).
+     * @param id the last ID of the previous page; only cars with a greater ID are returned
+     * @param pageable the maximum number of cars to return
+     * @return the cars following the given ID, in ascending ID order
+     */
+    List<Car> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Stores the address resolved for a car's coordinates, without touching the
+     * rest of the car. Nothing is written if the car has moved since, so a late
+     * answer never overwrites the address of its new coordinates.
+     * @param id the ID of the car
+     * @param location the resolved location, marked as resolved
+     * @return the number of cars updated, 0 or 1
+     */
+    @Transactional
+    @Modifying
+    @Query("update Car c set c.location.address = :#{#location.address}, c.location.city = :#{#location.city}, "
+            + "c.location.state = :#{#location.state}, c.location.zip = :#{#location.zip}, "
+            + "c.location.resolvedAt = :#{#location.resolvedAt}, "
+            + "c.location.resolvedLat = c.location.lat, c.location.resolvedLon = c.location.lon "
+            + "where c.id = :id and c.location.lat = :#{#location.lat} and c.location.lon = :#{#location.lon}")
+    int updateAddress(@Param("id") Long id, @Param("location") Location location);
+
+    /**
+     * Replaces the price snapshot of a car with a price just posted to the pricing service.
+     * @param id the ID of the car
+     * @param price the price, e.g. {@code USD 12345.67}
+     * @param fetchedAt when the price was posted
+     * @return the number of cars updated, 0 or 1
+     */
+    @Transactional
+    @Modifying
+    @Query("update Car c set c.priceSnapshot.price = :price, c.priceSnapshot.fetchedAt = :fetchedAt, "
+            + "c.priceSnapshot.version = c.priceSnapshot.version + 1 where c.id = :id")
+    int storePriceSnapshot(@Param("id") Long id, @Param("price") String price,
+            @Param("fetchedAt") LocalDateTime fetchedAt);
 
+    /**
+     * Refreshes the price snapshot of a car with a price read from the pricing service,
+     * unless the snapshot has changed since the given version was read.
+     * @param id the ID of the car
+     * @param price the price, e.g. {@code USD 12345.67}
+     * @param fetchedAt when the price was read
+     * @param version the version of the snapshot the refresh replaces
+     * @return the number of cars updated, 0 or 1
+     */
+    @Transactional
+    @Modifying
+    @Query("update Car c set c.priceSnapshot.price = :price, c.priceSnapshot.fetchedAt = :fetchedAt, "
+            + "c.priceSnapshot.version = c.priceSnapshot.version + 1 "
+            + "where c.id = :id and c.priceSnapshot.version = :version")
+    int refreshPriceSnapshot(@Param("id") Long id, @Param("price") String price,
+            @Param("fetchedAt") LocalDateTime fetchedAt, @Param("version") long version);
 }
@@ -0,0 +1,208 @@
+package com.udacity.vehicles.domain.car;
+
+import com.udacity.vehicles.domain.Condition;
+
+import java.util.function.Function;
+
+/**
+ * Declares the criteria of a search over cars, and the order and position of
+ * the page of results to return. Every criterion is optional; those given must
+ * all match. Text criteria match exactly, and ranges include their bounds.
+ *
+ * Results are ordered by {@link #getOrderBy()}, then by ID in the same direction,
+ * and paged with a cursor: a page starts after the sort value and ID of the last
+ * car of the previous page. Cars without a sort value come last, in ID order.
+ */
+public class CarSearch {
+
+    /**
+     * The properties results can be ordered by.
+     */
+    public enum SortKey {
+        ID("id", car -> null),
+        MODEL_YEAR("modelYear", car -> car.getDetails().getModelYear()),
+        MILEAGE("mileage", car -> car.getDetails().getMileage());
+
+        private final String property;
+        private final Function<Car, Integer> value;
+
+        SortKey(String property, Function<Car, Integer> value) {
+            this.property = property;
+            this.value = value;
+        }
+
+        /**
+         * Gets the name of the property, as rendered and as mapped on {@link Details}
+         * except for {@link #ID}.
+         */
+        public String getProperty() {
+            return property;
+        }
+
+        /**
+         * Gets the sort value of a car.
+         * @param car the car
+         * @return the value, or null if the car has none or results are ordered by ID only
+         */
+        public Integer valueOf(Car car) {
+            return value.apply(car);
+        }
+    }
+
+    private Integer manufacturer;
+    private String body;
+    private String model;
+    private String fuelType;
+    private Integer minModelYear;
+    private Integer maxModelYear;
+    private Integer minMileage;
+    private Integer maxMileage;
+    private String externalColor;
+    private Condition condition;
+
+    private SortKey orderBy = SortKey.ID;
+    private boolean descending;
+    private Long afterId;
+    private Integer afterValue;
+
+    /**
+     * Orders the results.
+     * @param orderBy the property to order by, before the ID
+     * @param descending whether to order from the highest values down
+     */
+    public void orderBy(SortKey orderBy, boolean descending) {
+        this.orderBy = orderBy;
+        this.descending = descending;
+    }
+
+    /**
+     * Moves the search to the page following a car.
+     * @param car the last car of the current page
+     */
+    public void startAfter(Car car) {
+        startAfter(car.getId(), orderBy.valueOf(car));
+    }
+
+    /**
+     * Moves the search to the page following a car.
+     * @param id the ID of the last car of the current page
+     * @param value its sort value, or null if it has none
+     */
+    public void startAfter(Long id, Integer value) {
+        this.afterId = id;
+        this.afterValue = value;
+    }
+
+    /**
+     * Tells whether the page starts among the cars without a sort value, which come
+     * after all others.
+     */
+    public boolean isAfterValues() {
+        return afterId != null && afterValue == null && orderBy != SortKey.ID;
+    }
+
+    /**
+     * Gets the code of the manufacturer to match.
+     */
+    public Integer getManufacturer() {
+        return manufacturer;
+    }
+
+    public void setManufacturer(Integer manufacturer) {
+        this.manufacturer = manufacturer;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(String model) {
+        this.model = model;
+    }
+
+    public String getFuelType() {
+        return fuelType;
+    }
+
+    public void setFuelType(String fuelType) {
+        this.fuelType = fuelType;
+    }
+
+    public Integer getMinModelYear() {
+        return minModelYear;
+    }
+
+    public void setMinModelYear(Integer minModelYear) {
+        this.minModelYear = minModelYear;
+    }
+
+    public Integer getMaxModelYear() {
+        return maxModelYear;
+    }
+
+    public void setMaxModelYear(Integer maxModelYear) {
+        this.maxModelYear = maxModelYear;
+    }
+
+    public Integer getMinMileage() {
+        return minMileage;
+    }
+
+    public void setMinMileage(Integer minMileage) {
+        this.minMileage = minMileage;
+    }
+
+    public Integer getMaxMileage() {
+        return maxMileage;
+    }
+
+    public void setMaxMileage(Integer maxMileage) {
+        this.maxMileage = maxMileage;
+    }
+
+    public String getExternalColor() {
+        return externalColor;
+    }
+
+    public void setExternalColor(String externalColor) {
+        this.externalColor = externalColor;
+    }
+
+    public Condition getCondition() {
+        return condition;
+    }
+
+    public void setCondition(Condition condition) {
+        this.condition = condition;
+    }
+
+    public SortKey getOrderBy() {
+        return orderBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Gets the ID of the last car of the previous page, or null for the first page.
+     */
+    public Long getAfterId() {
+        return afterId;
+    }
+
+    /**
+     * Gets the sort value of the last car of the previous page, or null if it has none.
+     */
+    public Integer getAfterValue() {
+        return afterValue;
+    }
+}
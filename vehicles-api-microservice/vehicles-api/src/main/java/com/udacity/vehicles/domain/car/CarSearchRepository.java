@@ -0,0 +1,31 @@
+package com.udacity.vehicles.domain.car;
+
+import java.util.List;
+
+/**
+ * Searches cars by their details and condition, or by their distance to a point;
+ * implemented by {@link CarSearchRepositoryImpl} and exposed through {@link CarRepository}.
+ */
+public interface CarSearchRepository {
+
+    /**
+     * Gets a page of the cars matching a search, in the order of the search.
+     * Every page is read through an index range starting at the cursor of the
+     * search, so reading a late page costs the same as reading the first one.
+     * @param search the criteria, order and cursor of the search
+     * @param limit the maximum number of cars to return
+     * @return the matching cars following the cursor
+     */
+    List<Car> search(CarSearch search, int limit);
+
+    /**
+     * Gets the cars nearest to a point, within a radius. Only the cars in the
+     * geohash cells around the point are read, through the index on their geohash.
+     * @param lat latitude of the point
+     * @param lon longitude of the point
+     * @param radiusKm the maximum distance of a car to the point, in kilometers
+     * @param limit the maximum number of cars to return
+     * @return the cars within the radius, nearest first by great-circle distance
+     */
+    List<Car> findNear(double lat, double lon, double radiusKm, int limit);
+}
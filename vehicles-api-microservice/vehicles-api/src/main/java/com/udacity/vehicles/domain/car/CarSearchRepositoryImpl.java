@@ -0,0 +1,234 @@
+package com.udacity.vehicles.domain.car;
+
+import com.udacity.vehicles.domain.GeoHash;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+
+/**
+ * Implements {@link CarSearchRepository} with the Criteria API, matching the
+ * indexes declared on {@link Car}: criteria are plain comparisons on the indexed
+ * columns, and the cursor is applied as a range on the sort column, e.g.
+ * {@code mileage >= ? and (mileage > ? or id > ?)}, rather than as an offset.
+ *
+ * Cars without a sort value are read by a second query, once those with a
+ * value are exhausted, so that neither query has to skip over the other's cars.
+ *
+ * Cars near a point are found by reading the coordinates of the cars in the
+ * geohash cells covering a circle around it, one index range per cell, and
+ * measuring their distance to the point. The circle starts small and grows
+ * until it holds enough cars or reaches the requested radius, so that a query
+ * in a dense area does not read every car within the radius. Only the nearest
+ * cars are then loaded.
+ */
+class CarSearchRepositoryImpl implements CarSearchRepository {
+
+    /**
+     * The most cells read per circle; more, smaller cells hold fewer cars outside the circle.
+     */
+    private static final int MAX_CELLS = 16;
+
+    /**
+     * Sorts after every geohash character, so that {@code [cell, cell + GEOHASH_END)}
+     * holds exactly the geohashes starting with the cell's.
+     */
+    private static final char GEOHASH_END = '{';
+
+    /**
+     * The radius of the first circle read around a point.
+     */
+    private static final double INITIAL_REACH_KM = 0.25;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Car> search(CarSearch search, int limit) {
+        if (search.getOrderBy() == CarSearch.SortKey.ID) {
+            return query(search, false, limit);
+        }
+        List<Car> cars = search.isAfterValues() ? new ArrayList<>() : query(search, false, limit);
+        if (cars.size() < limit) {
+            cars = new ArrayList<>(cars);
+            cars.addAll(query(search, true, limit - cars.size()));
+        }
+        return cars;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Car> findNear(double lat, double lon, double radiusKm, int limit) {
+        double reach = Math.min(radiusKm, INITIAL_REACH_KM);
+        List<Nearby> within = within(lat, lon, reach);
+        while (within.size() < limit && reach < radiusKm) {
+            reach = Math.min(radiusKm, reach * 4);
+            within = within(lat, lon, reach);
+        }
+        PriorityQueue<Nearby> nearest = new PriorityQueue<>(limit,
+                Comparator.comparingDouble(Nearby::getDistance).reversed());
+        for (Nearby candidate : within) {
+            nearest.add(candidate);
+            if (nearest.size() > limit) {
+                nearest.poll();
+            }
+        }
+        if (nearest.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Car> byId = new HashMap<>();
+        for (Car car : entityManager.createQuery("select c from Car c where c.id in :ids", Car.class)
+                .setParameter("ids", nearest.stream().map(Nearby::getId).collect(Collectors.toList()))
+                .getResultList()) {
+            byId.put(car.getId(), car);
+        }
+        List<Nearby> ordered = new ArrayList<>(nearest);
+        ordered.sort(Comparator.comparingDouble(Nearby::getDistance));
+        List<Car> cars = new ArrayList<>(ordered.size());
+        for (Nearby candidate : ordered) {
+            Car car = byId.get(candidate.getId());
+            if (car != null) {
+                cars.add(car);
+            }
+        }
+        return cars;
+    }
+
+    /**
+     * Reads the IDs and distances of the cars within a circle. The index on the
+     * geohash also holds the coordinates, so cars outside the circle's bounding
+     * box are dropped without reading their rows.
+     */
+    private List<Nearby> within(double lat, double lon, double radiusKm) {
+        double deltaLat = Math.toDegrees(radiusKm / GeoHash.EARTH_RADIUS_KM);
+        double cosLat = Math.cos(Math.toRadians(Math.min(90, Math.abs(lat) + deltaLat)));
+        double deltaLon = cosLat <= 0 ? 180 : deltaLat / cosLat;
+        boolean wraps = lon - deltaLon < -180 || lon + deltaLon > 180;
+        TypedQuery<Object[]> query = entityManager.createQuery("select c.id, c.location.lat, c.location.lon "
+                + "from Car c where c.location.geohash >= :from and c.location.geohash < :to "
+                + "and c.location.lat between :minLat and :maxLat "
+                + "and c.location.lon between :minLon and :maxLon", Object[].class)
+                .setParameter("minLat", lat - deltaLat)
+                .setParameter("maxLat", lat + deltaLat)
+                .setParameter("minLon", wraps ? -180 : lon - deltaLon)
+                .setParameter("maxLon", wraps ? 180 : lon + deltaLon);
+        List<Nearby> within = new ArrayList<>();
+        for (String cell : GeoHash.cover(lat, lon, radiusKm, MAX_CELLS)) {
+            List<Object[]> positions = query
+                    .setParameter("from", cell)
+                    .setParameter("to", cell + GEOHASH_END)
+                    .getResultList();
+            for (Object[] position : positions) {
+                double distance = GeoHash.distanceKm(lat, lon, (Double) position[1], (Double) position[2]);
+                if (distance <= radiusKm) {
+                    within.add(new Nearby((Long) position[0], distance));
+                }
+            }
+        }
+        return within;
+    }
+
+    /**
+     * Reads the matching cars following the cursor, either among those with a sort
+     * value or among those without one.
+     */
+    private List<Car> query(CarSearch search, boolean withoutValue, int limit) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Car> query = builder.createQuery(Car.class);
+        Root<Car> car = query.from(Car.class);
+        Path<Long> id = car.get("id");
+        Path<Details> details = car.get("details");
+        boolean descending = search.isDescending();
+
+        List<Predicate> where = new ArrayList<>();
+        if (search.getManufacturer() != null) {
+            where.add(builder.equal(details.get("manufacturer").get("code"), search.getManufacturer()));
+        }
+        equal(builder, where, details.get("body"), search.getBody());
+        equal(builder, where, details.get("model"), search.getModel());
+        equal(builder, where, details.get("fuelType"), search.getFuelType());
+        equal(builder, where, details.get("externalColor"), search.getExternalColor());
+        equal(builder, where, car.get("condition"), search.getCondition());
+        range(builder, where, details.get("modelYear"), search.getMinModelYear(), search.getMaxModelYear());
+        range(builder, where, details.get("mileage"), search.getMinMileage(), search.getMaxMileage());
+
+        if (search.getOrderBy() == CarSearch.SortKey.ID || withoutValue) {
+            if (withoutValue) {
+                where.add(builder.isNull(details.get(search.getOrderBy().getProperty())));
+            }
+            if (search.getAfterId() != null && (!withoutValue || search.isAfterValues())) {
+                where.add(descending ? builder.lessThan(id, search.getAfterId())
+                        : builder.greaterThan(id, search.getAfterId()));
+            }
+            query.orderBy(descending ? builder.desc(id) : builder.asc(id));
+        } else {
+            Path<Integer> key = details.get(search.getOrderBy().getProperty());
+            Integer after = search.getAfterValue();
+            if (search.getAfterId() == null) {
+                where.add(builder.isNotNull(key));
+            } else if (descending) {
+                where.add(builder.lessThanOrEqualTo(key, after));
+                where.add(builder.or(builder.lessThan(key, after), builder.lessThan(id, search.getAfterId())));
+            } else {
+                where.add(builder.greaterThanOrEqualTo(key, after));
+                where.add(builder.or(builder.greaterThan(key, after), builder.greaterThan(id, search.getAfterId())));
+            }
+            query.orderBy(descending ? builder.desc(key) : builder.asc(key), descending ? builder.desc(id) : builder.asc(id));
+        }
+
+        query.select(car).where(where.toArray(new Predicate[0]));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    /**
+     * The ID of a car and its distance to the point searched around.
+     */
+    private static final class Nearby {
+
+        private final Long id;
+        private final double distance;
+
+        Nearby(Long id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        Long getId() {
+            return id;
+        }
+
+        double getDistance() {
+            return distance;
+        }
+    }
+
+    private static <T> void equal(CriteriaBuilder builder, List<Predicate> where, Expression<T> column, T value) {
+        if (value != null) {
+            where.add(builder.equal(column, value));
+        }
+    }
+
+    private static void range(CriteriaBuilder builder, List<Predicate> where, Expression<Integer> column,
+            Integer min, Integer max) {
+        if (min != null) {
+            where.add(builder.greaterThanOrEqualTo(column, min));
+        }
+        if (max != null) {
+            where.add(builder.lessThanOrEqualTo(column, max));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.udacity.vehicles.domain.car;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.time.LocalDateTime;
+
+/**
+ * Local copy of a car's price, as last posted to or read from the pricing service,
+ * which stays the authority on prices. The version is incremented on every change,
+ * so that a refresh computed from an older copy can be detected and dropped.
+ *
+ * The columns are never written by saving the car, only through
+ * {@link CarRepository#storePriceSnapshot}, {@link CarRepository#storePriceSnapshots}
+ * and {@link CarRepository#refreshPriceSnapshot}.
+ */
+@Embeddable
+public class PriceSnapshot {
+
+    @Column(name = "price_snapshot", updatable = false)
+    private String price;
+
+    @Column(name = "price_fetched_at", updatable = false)
+    private LocalDateTime fetchedAt;
+
+    @Column(name = "price_version", updatable = false, nullable = false)
+    private long version;
+
+    public PriceSnapshot() {
+    }
+
+    public PriceSnapshot(String price, LocalDateTime fetchedAt, long version) {
+        this.price = price;
+        this.fetchedAt = fetchedAt;
+        this.version = version;
+    }
+
+    /**
+     * Gets the price in the format served by the API, e.g. {@code USD 12345.67},
+     * or null if no price was ever copied.
+     */
+    public String getPrice() {
+        return price;
+    }
+
+    /**
+     * Gets when the price was last posted to or read from the pricing service.
+     */
+    public LocalDateTime getFetchedAt() {
+        return fetchedAt;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether this copy was taken after the given time.
+     * @param threshold the oldest acceptable fetch time
+     */
+    public boolean isFetchedAfter(LocalDateTime threshold) {
+        return price != null && fetchedAt != null && fetchedAt.isAfter(threshold);
+    }
+}
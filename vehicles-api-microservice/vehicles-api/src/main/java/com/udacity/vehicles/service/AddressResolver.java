@@ -0,0 +1,117 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the addresses of cars through the Maps service in the background and
+ * stores them with the car, so that reading a car never waits on the Maps service.
+ *
+ * A car is only resolved when its stored address was not resolved for its current
+ * coordinates, and only once at a time. If the Maps service cannot resolve it, the
+ * car is left as is and resolved again the next time it is saved or read.
+ */
+class AddressResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(AddressResolver.class);
+
+    private final CarRepository carRepository;
+    private final MapsClient mapsClient;
+    private final Scheduler repositoryScheduler;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Creates a resolver storing addresses through the given repository.
+     * @param repositoryScheduler runs the repository updates, which block
+     */
+    AddressResolver(CarRepository carRepository, MapsClient mapsClient, Scheduler repositoryScheduler) {
+        this.carRepository = carRepository;
+        this.mapsClient = mapsClient;
+        this.repositoryScheduler = repositoryScheduler;
+    }
+
+    /**
+     * Resolves the address of a saved car in the background, once the current
+     * transaction (if any) has committed, unless it is already up to date.
+     * @param car the saved car
+     */
+    void resolveAfterCommit(Car car) {
+        if (car.getLocation().isResolved()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    resolve(Collections.singletonList(car)).subscribe();
+                }
+            });
+        } else {
+            resolve(Collections.singletonList(car)).subscribe();
+        }
+    }
+
+    /**
+     * Resolves in the background the addresses of the given cars that are missing
+     * or out of date, such as cars saved while the Maps service was down.
+     * @param cars the cars just read
+     */
+    void resolveMissing(List<Car> cars) {
+        resolve(cars).subscribe();
+    }
+
+    /**
+     * Resolves and stores the addresses of the given cars that are not up to date.
+     * The cars themselves are not modified.
+     * @param cars the cars to resolve
+     * @return Mono emitting the number of cars whose address was stored; never errors
+     */
+    Mono<Integer> resolve(List<Car> cars) {
+        List<Long> ids = new ArrayList<>();
+        List<Location> locations = new ArrayList<>();
+        for (Car car : cars) {
+            Location location = car.getLocation();
+            if (!location.isResolved() && inFlight.add(car.getId())) {
+                ids.add(car.getId());
+                locations.add(new Location(location.getLat(), location.getLon()));
+            }
+        }
+        if (ids.isEmpty()) {
+            return Mono.just(0);
+        }
+        return Mono.defer(() -> mapsClient.getAddressesAsync(locations))
+                .publishOn(repositoryScheduler)
+                .map(resolved -> {
+                    LocalDateTime resolvedAt = LocalDateTime.now();
+                    int updated = 0;
+                    for (int i = 0; i < resolved.size(); i++) {
+                        Location location = resolved.get(i);
+                        if (location.getAddress() != null) {
+                            location.markResolved(resolvedAt);
+                            updated += carRepository.updateAddress(ids.get(i), location);
+                        }
+                    }
+                    return updated;
+                })
+                .onErrorResume(e -> {
+                    log.warn("Could not store the addresses of {} cars: {}", ids.size(), e.toString());
+                    return Mono.just(0);
+                })
+                .doFinally(signal -> inFlight.removeAll(ids));
+    }
+}
@@ -0,0 +1,110 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.car.Car;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Populates cars with the data owned by other services: the price from the
+ * pricing service. Prices are served from the local copy of each car (see
+ * {@link PriceSnapshots}) while it is fresh; only the others are looked up.
+ * Addresses are stored with the cars (see {@link AddressResolver}).
+ *
+ * The {@code cars.enrichment} timer records how long enriching a list of cars
+ * takes in total ({@code step=total}) and how long its price lookups take
+ * ({@code step=prices}). The {@code cars.price.snapshots} counter counts the
+ * prices served from a fresh copy ({@code result=fresh}) or looked up ({@code result=stale}).
+ */
+class CarEnricher {
+
+    private final PriceClient priceClient;
+    private final PriceSnapshots snapshots;
+    private final MeterRegistry meterRegistry;
+    private final Timer total;
+    private final Timer prices;
+    private final Counter freshSnapshots;
+    private final Counter staleSnapshots;
+
+    CarEnricher(PriceClient priceClient, PriceSnapshots snapshots, MeterRegistry meterRegistry) {
+        this.priceClient = priceClient;
+        this.snapshots = snapshots;
+        this.meterRegistry = meterRegistry;
+        this.total = timer("total");
+        this.prices = timer("prices");
+        this.freshSnapshots = snapshotCounter("fresh");
+        this.staleSnapshots = snapshotCounter("stale");
+    }
+
+    /**
+     * Populates the price of each car, from its local copy if fresh. The other
+     * prices are fetched in batches, and all batches are issued concurrently, so
+     * the call takes roughly as long as the slowest single lookup rather than the
+     * sum of them. Their local copies are then refreshed in the background.
+     * A car whose price could not be looked up is served its stale copy, which is
+     * not refreshed.
+     * @param cars the cars to enrich, updated in place
+     * @return Mono emitting the same list of cars once they are enriched
+     */
+    Mono<List<Car>> enrich(List<Car> cars) {
+        if (cars.isEmpty()) {
+            return Mono.just(cars);
+        }
+        List<Car> stale = new ArrayList<>();
+        for (Car car : cars) {
+            if (snapshots.isFresh(car)) {
+                car.setPrice(car.getPriceSnapshot().getPrice());
+            } else {
+                stale.add(car);
+            }
+        }
+        freshSnapshots.increment(cars.size() - stale.size());
+        staleSnapshots.increment(stale.size());
+        if (stale.isEmpty()) {
+            return timed(Mono.just(cars), total);
+        }
+        Mono<Void> pricing = Mono.defer(() -> priceClient.getPricesAsync(stale.stream().map(Car::getId).collect(Collectors.toList())))
+                .doOnNext(pricesById -> {
+                    List<Car> found = new ArrayList<>();
+                    for (Car car : stale) {
+                        String price = pricesById.get(car.getId());
+                        if (price == null) {
+                            car.setPrice(car.getPriceSnapshot().getPrice());
+                        } else {
+                            car.setPrice(price);
+                            found.add(car);
+                        }
+                    }
+                    snapshots.refreshInBackground(found);
+                })
+                .then();
+        return timed(timed(pricing, prices).thenReturn(cars), total);
+    }
+
+    private Counter snapshotCounter(String result) {
+        return Counter.builder("cars.price.snapshots")
+                .description("Prices served from the local copy of a car, or looked up because it was stale")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(String step) {
+        return Timer.builder("cars.enrichment")
+                .description("Time taken to populate cars with their prices")
+                .tag("step", step)
+                .register(meterRegistry);
+    }
+
+    private <T> Mono<T> timed(Mono<T> mono, Timer timer) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return mono.doFinally(signal -> sample.stop(timer));
+        });
+    }
+}
@@ -0,0 +1,53 @@
+package com.udacity.vehicles.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Reports how one vehicle of a bulk import went: the ID it was stored under and
+ * the price posted for it, or why it has no price.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CarImportResult {
+
+    static final String NO_QUOTE = "No price could be quoted";
+    static final String PRICE_NOT_POSTED = "Price could not be posted";
+
+    private final int index;
+    private final Long id;
+    private final String price;
+    private final String error;
+
+    public CarImportResult(int index, Long id, String price, String error) {
+        this.index = index;
+        this.id = id;
+        this.price = price;
+        this.error = error;
+    }
+
+    /**
+     * Gets the position of the vehicle in the imported batch, starting at 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the price posted to the pricing service, e.g. {@code USD 12345.67},
+     * or null if none could be.
+     */
+    public String getPrice() {
+        return price;
+    }
+
+    /**
+     * Gets why the vehicle has no price, or null if it has one. The vehicle is
+     * stored either way.
+     */
+    public String getError() {
+        return error;
+    }
+}
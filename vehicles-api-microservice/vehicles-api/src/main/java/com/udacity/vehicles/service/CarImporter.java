@@ -0,0 +1,104 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.prices.Price;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Imports many new cars at once, one chunk at a time. Each chunk is inserted in
+ * one transaction, in JDBC batches with IDs drawn from the pooled car sequence.
+ * Its missing prices are then quoted and all its prices posted, each in one
+ * batched call to the pricing service, and the posted prices stored as the cars'
+ * snapshots in one JDBC batch. Addresses are resolved in the background in one
+ * batched call to the Maps service, as for a single saved car.
+ *
+ * A chunk is stored before the next one is read, so a failure leaves the chunks
+ * before it imported.
+ */
+class CarImporter {
+
+    private final CarRepository carRepository;
+    private final PriceClient priceClient;
+    private final PriceSnapshots priceSnapshots;
+    private final AddressResolver addressResolver;
+    private final Scheduler repositoryScheduler;
+
+    /**
+     * Creates an importer storing cars through the given repository.
+     * @param repositoryScheduler runs the repository calls, which block
+     */
+    CarImporter(CarRepository carRepository, PriceClient priceClient, PriceSnapshots priceSnapshots,
+            AddressResolver addressResolver, Scheduler repositoryScheduler) {
+        this.carRepository = carRepository;
+        this.priceClient = priceClient;
+        this.priceSnapshots = priceSnapshots;
+        this.addressResolver = addressResolver;
+        this.repositoryScheduler = repositoryScheduler;
+    }
+
+    /**
+     * Imports new cars in chunks.
+     * @param cars the cars to import, without IDs
+     * @param chunkSize the number of cars stored and priced together
+     * @return Flux of the results of each chunk, in order
+     */
+    Flux<List<CarImportResult>> importAll(List<Car> cars, int chunkSize) {
+        return Flux.range(0, (cars.size() + chunkSize - 1) / chunkSize)
+                .concatMap(chunk -> importChunk(
+                        cars.subList(chunk * chunkSize, Math.min(cars.size(), (chunk + 1) * chunkSize)),
+                        chunk * chunkSize));
+    }
+
+    private Mono<List<CarImportResult>> importChunk(List<Car> cars, int offset) {
+        return Mono.fromCallable(() -> carRepository.saveAll(cars))
+                .subscribeOn(repositoryScheduler)
+                .flatMap(saved -> quote(saved)
+                        .flatMap(quoted -> priceClient.postPricesAsync(saved.stream()
+                                .filter(car -> car.getPrice() != null)
+                                .map(car -> new Price(car.getPrice(), car.getId()))
+                                .collect(Collectors.toList())))
+                        .publishOn(repositoryScheduler)
+                        .map(posted -> {
+                            priceSnapshots.storeAll(saved, posted);
+                            addressResolver.resolveMissing(saved);
+                            List<CarImportResult> results = new ArrayList<>(saved.size());
+                            for (int i = 0; i < saved.size(); i++) {
+                                Car car = saved.get(i);
+                                String price = posted.get(car.getId());
+                                results.add(new CarImportResult(offset + i, car.getId(), price, price != null ? null
+                                        : car.getPrice() == null ? CarImportResult.NO_QUOTE
+                                        : CarImportResult.PRICE_NOT_POSTED));
+                            }
+                            return results;
+                        }));
+    }
+
+    /**
+     * Quotes the cars that were imported without a price, and sets the quotes on them.
+     */
+    private Mono<Map<Long, String>> quote(List<Car> cars) {
+        List<Long> unpriced = cars.stream()
+                .filter(car -> car.getPrice() == null)
+                .map(Car::getId)
+                .collect(Collectors.toList());
+        if (unpriced.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+        return priceClient.setPricesAsync(unpriced)
+                .doOnNext(quoted -> cars.forEach(car -> {
+                    if (car.getPrice() == null) {
+                        car.setPrice(quoted.get(car.getId()));
+                    }
+                }));
+    }
+}
@@ -3,43 +3,179 @@ package com.udacity.vehicles.service;
 import com.udacity.vehicles.client.maps.MapsClient;
 import com.udacity.vehicles.client.prices.Price;
 import com.udacity.vehicles.client.prices.PriceClient;
-import com.udacity.vehicles.domain.Location;
 import com.udacity.vehicles.domain.car.Car;
 import com.udacity.vehicles.domain.car.CarRepository;
+import com.udacity.vehicles.domain.car.CarSearch;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Implements the car service create, read, update or delete
  * information about vehicles, as well as gather related
- * location and price data when desired.
+ * location and price data when desired. Addresses are read
+ * from the database; they are resolved in the background
+ * whenever a car is saved with new coordinates. Prices are
+ * served from a local copy for up to
+ * {@code pricing.snapshot.freshness} after they were last
+ * posted to or read from the pricing service.
  */
 @Service
 public class CarService {
 
     private final CarRepository carRepository;
-    private MapsClient mapsClient;
     private PriceClient priceClient;
+    private final CarEnricher enricher;
+    private final AddressResolver addressResolver;
+    private final PriceSnapshots priceSnapshots;
+    private final EntityTags entityTags;
+    private final CarImporter importer;
 
-    public CarService(CarRepository carRepository, MapsClient mapsClient, PriceClient priceClient) {
+    public CarService(CarRepository carRepository, MapsClient mapsClient, PriceClient priceClient,
+            MeterRegistry meterRegistry, @Value("${pricing.snapshot.freshness:5m}") Duration priceFreshness) {
         this.carRepository = carRepository;
-        this.mapsClient = mapsClient;
         this.priceClient = priceClient;
+        this.priceSnapshots = new PriceSnapshots(carRepository, Schedulers.elastic(), priceFreshness);
+        this.enricher = new CarEnricher(priceClient, priceSnapshots, meterRegistry);
+        this.addressResolver = new AddressResolver(carRepository, mapsClient, Schedulers.elastic());
+        this.entityTags = new EntityTags(priceSnapshots);
+        this.importer = new CarImporter(carRepository, priceClient, priceSnapshots, addressResolver,
+                Schedulers.elastic());
     }
 
     /**
-     * Gathers a list of all vehicles
-     * @return a list of all vehicles in the CarRepository
+     * Gathers a page of vehicles, ordered by ID. Only the vehicles on the page are enriched.
+     * @param after the ID of the last vehicle of the previous page, or null for the first page
+     * @param limit the maximum number of vehicles to return
+     * @return the vehicles in the CarRepository following the given ID
      */
-    public List<Car> list() {
-        List<Car> carList = carRepository.findAll();
-        for(Car car : carList) {
-            car.setLocation(mapsClient.getAddress(car.getLocation()));
-            car.setPrice(priceClient.getPrice(car.getId()));
+    public List<Car> list(Long after, int limit) {
+        return enrichIfModified(page(after, limit), Enrichment.ALL, null, tag -> false).get();
+    }
+
+    /**
+     * Gathers a page of vehicles like {@link #list(Long, int)}, unless the client
+     * already holds it. The page is tagged from the stored versions of its vehicles
+     * when their prices are fresh or not asked for, and only enriched if the tag is
+     * not matched.
+     * @param after the ID of the last vehicle of the previous page, or null for the first page
+     * @param limit the maximum number of vehicles to return
+     * @param enrichments the data owned by other services to populate the vehicles with
+     * @param notModified tells whether the client holds the page with the given entity tag
+     * @return the enriched vehicles, or empty if the client holds them
+     */
+    public Optional<List<Car>> listIfModified(Long after, int limit, Set<Enrichment> enrichments,
+            Predicate<String> notModified) {
+        List<Car> cars = page(after, limit);
+        return enrichIfModified(cars, enrichments,
+                entityTags.of(cars, enrichments.contains(Enrichment.PRICE)), notModified);
+    }
+
+    /**
+     * Gathers a page of the vehicles matching a search, unless the client already
+     * holds it. Only the vehicles on the page are enriched, and only if the tag of
+     * the page is not matched, as for {@link #listIfModified}.
+     * @param search the criteria, order and cursor of the search
+     * @param limit the maximum number of vehicles to return
+     * @param enrichments the data owned by other services to populate the vehicles with
+     * @param notModified tells whether the client holds the page with the given entity tag
+     * @return the enriched vehicles, or empty if the client holds them
+     */
+    public Optional<List<Car>> searchIfModified(CarSearch search, int limit, Set<Enrichment> enrichments,
+            Predicate<String> notModified) {
+        List<Car> cars = carRepository.search(search, limit);
+        return enrichIfModified(cars, enrichments,
+                entityTags.of(cars, enrichments.contains(Enrichment.PRICE)), notModified);
+    }
+
+    /**
+     * Gathers the vehicles nearest to a point, unless the client already holds them.
+     * Only the vehicles returned are enriched, and only if their tag is not matched,
+     * as for {@link #listIfModified}.
+     * @param lat latitude of the point
+     * @param lon longitude of the point
+     * @param radiusKm the maximum distance of a vehicle to the point, in kilometers
+     * @param limit the maximum number of vehicles to return
+     * @param enrichments the data owned by other services to populate the vehicles with
+     * @param notModified tells whether the client holds the vehicles with the given entity tag
+     * @return the enriched vehicles, or empty if the client holds them
+     */
+    public Optional<List<Car>> nearIfModified(double lat, double lon, double radiusKm, int limit,
+            Set<Enrichment> enrichments, Predicate<String> notModified) {
+        List<Car> cars = carRepository.findNear(lat, lon, radiusKm, limit);
+        return enrichIfModified(cars, enrichments,
+                entityTags.of(cars, enrichments.contains(Enrichment.PRICE)), notModified);
+    }
+
+    /**
+     * Walks all vehicles in ID order, one window at a time, so that only a single
+     * window is held in memory and enriched at once.
+     * @param after the ID to start after, or null to start from the first vehicle
+     * @param windowSize the number of vehicles read and enriched together
+     * @param consumer receives each enriched window, in order
+     */
+    public void forEachWindow(Long after, int windowSize, Consumer<List<Car>> consumer) {
+        List<Car> window;
+        do {
+            window = list(after, windowSize);
+            if (!window.isEmpty()) {
+                consumer.accept(window);
+                after = window.get(window.size() - 1).getId();
+            }
+        } while (window.size() == windowSize);
+    }
+
+    /**
+     * Walks all vehicles in ID order through a single database cursor, one window
+     * at a time, enriching each window only with the data asked for. Only one
+     * window is held in memory at once, and its prices are looked up together.
+     * @param after the ID to start after, or null to start from the first vehicle
+     * @param windowSize the number of vehicles fetched and enriched together
+     * @param enrichments the data owned by other services to populate the vehicles with
+     * @param consumer receives each enriched window, in order
+     */
+    public void export(Long after, int windowSize, Set<Enrichment> enrichments, Consumer<List<Car>> consumer) {
+        carRepository.scroll(after, windowSize,
+                window -> consumer.accept(enrichIfModified(window, enrichments, null, tag -> false).get()));
+    }
+
+    private List<Car> page(Long after, int limit) {
+        return carRepository.findByIdGreaterThanOrderByIdAsc(after == null ? Long.MIN_VALUE : after, PageRequest.of(0, limit));
+    }
+
+    /**
+     * Populates the price of each car, waiting for all lookups, unless the client
+     * already holds them or does not ask for prices. Cars whose stored address is
+     * out of date are queued for resolution if addresses are asked for, but not waited for.
+     * @param cars the cars to enrich, updated in place
+     * @param enrichments the data owned by other services to populate the cars with
+     * @param tag the entity tag of the cars, or null if they have none
+     * @param notModified tells whether the client holds the cars with the given tag
+     * @return the same list of cars, or empty if the client holds them
+     */
+    private Optional<List<Car>> enrichIfModified(List<Car> cars, Set<Enrichment> enrichments, String tag,
+            Predicate<String> notModified) {
+        if (enrichments.contains(Enrichment.ADDRESS)) {
+            addressResolver.resolveMissing(cars);
+        }
+        if (tag != null && notModified.test(tag)) {
+            return Optional.empty();
+        }
+        if (!enrichments.contains(Enrichment.PRICE)) {
+            return Optional.of(cars);
         }
-        return carList;
+        return Optional.of(enricher.enrich(cars).block());
     }
 
     /**
@@ -48,13 +184,24 @@ public class CarService {
      * @return the requested car's information, including location and price
      */
     public Car findById(Long id) {
+        return findIfModified(id, Enrichment.ALL, tag -> false).get();
+    }
+
+    /**
+     * Gets car information by ID like {@link #findById(Long)}, unless the client
+     * already holds it. The car is tagged from its stored versions when its price
+     * is fresh or not asked for, and only enriched if the tag is not matched.
+     * @param id the ID number of the car to gather information on
+     * @param enrichments the data owned by other services to populate the car with
+     * @param notModified tells whether the client holds the car with the given entity tag
+     * @return the requested car's information, or empty if the client holds it
+     */
+    public Optional<Car> findIfModified(Long id, Set<Enrichment> enrichments, Predicate<String> notModified) {
 
         Car car = carRepository.findById(id).orElseThrow(CarNotFoundException::new);
-        String price = priceClient.getPrice(id);
-        car.setPrice(price);
-        Location location = mapsClient.getAddress(car.getLocation());
-        car.setLocation(location);
-        return car;
+        return enrichIfModified(Collections.singletonList(car), enrichments,
+                entityTags.of(car, enrichments.contains(Enrichment.PRICE)), notModified)
+                .map(cars -> car);
     }
 
     /**
@@ -74,19 +221,24 @@ public class CarService {
                     .map(carToBeUpdated -> {
                         carToBeUpdated.setModifiedAt(LocalDateTime.now()); //update the modified time to now
                         carToBeUpdated.setDetails(car.getDetails()); //copy the details over
-                        carToBeUpdated.setLocation(car.getLocation()); //copy the location
+                        if (!carToBeUpdated.getLocation().hasCoordinatesOf(car.getLocation())) {
+                            carToBeUpdated.setLocation(car.getLocation()); //moved: the stored address no longer applies
+                        }
                         carToBeUpdated.setPrice(car.getPrice());
                         carToBeUpdated.setCondition(car.getCondition());
+                        String postedPrice = null;
                         if(carToBeUpdated.getPrice() != null) { //Update the price of the vehicle to the Price Microservice
-                            priceClient.postPrice(new Price(carToBeUpdated.getPrice(), carToBeUpdated.getId()));
+                            postedPrice = priceClient.postPrice(new Price(carToBeUpdated.getPrice(), carToBeUpdated.getId()));
                         }
 
                         Car savedCar = carRepository.save(carToBeUpdated);
+                        if (postedPrice != null) { //Keep the local copy of the price in step
+                            priceSnapshots.store(savedCar, postedPrice);
+                        }
 
-                        //Populate car with location from new Lon and Lat coordinates
-                        savedCar.setLocation(mapsClient.getAddress(carToBeUpdated.getLocation()));
-                        //Populate price
-                        savedCar.setPrice(priceClient.getPrice(savedCar.getId()));
+                        //Resolve the address of new Lon and Lat coordinates in the background, and populate the price
+                        addressResolver.resolveAfterCommit(savedCar);
+                        enricher.enrich(Collections.singletonList(savedCar)).block();
                         return savedCar;
                     }).orElseThrow(CarNotFoundException::new);
         }
@@ -100,14 +252,29 @@ public class CarService {
         }
 
         // Either price was set by Pricing Microservice or User. Now save to Pricing Microservice's repository
-        String price = priceClient.postPrice(new Price(car.getPrice(), car.getId()));
+        if (carToReturn.getPrice() != null) { //Without a quote the car is stored unpriced
+            String price = priceClient.postPrice(new Price(carToReturn.getPrice(), carToReturn.getId()));
+            priceSnapshots.store(carToReturn, price);
+        }
 
-        //Get location from location services
-        carToReturn.setLocation(mapsClient.getAddress(carToReturn.getLocation()));
+        //Get location from location services once the car is stored
+        addressResolver.resolveAfterCommit(carToReturn);
 
         return carToReturn;
     }
 
+    /**
+     * Creates many new vehicles, one chunk at a time. Each chunk is inserted in JDBC
+     * batches and priced in one call to the pricing service, and its addresses are
+     * resolved in the background in one call to the Maps service.
+     * @param cars the new vehicles, already validated
+     * @param chunkSize the number of vehicles stored and priced together
+     * @param consumer receives the results of each chunk once it is stored, in order
+     */
+    public void importCars(List<Car> cars, int chunkSize, Consumer<List<CarImportResult>> consumer) {
+        importer.importAll(cars, chunkSize).doOnNext(consumer).blockLast();
+    }
+
     /**
      * Deletes a given car by ID
      * @param id the ID number of the car to delete
@@ -0,0 +1,25 @@
+package com.udacity.vehicles.service;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The data of a car owned by other services, which reads can skip when the
+ * caller does not need it.
+ */
+public enum Enrichment {
+
+    /**
+     * The price, served from the car's price snapshot or looked up in the pricing service.
+     */
+    PRICE,
+
+    /**
+     * The address, stored with the car; cars whose address is out of date are
+     * resolved through the Maps service in the background.
+     */
+    ADDRESS;
+
+    public static final Set<Enrichment> ALL = Collections.unmodifiableSet(EnumSet.allOf(Enrichment.class));
+}
@@ -0,0 +1,63 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.domain.car.Car;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Computes strong entity tags for cars as read from the repository, before they
+ * are enriched, so that a client already holding a car can be answered without
+ * looking up its price or rendering it.
+ *
+ * The tag of a car combines the versions of everything its representation is
+ * made of: the car itself, its stored address and, if its price is served, its
+ * price snapshot. A tag covering the price can only be computed while the snapshot
+ * is fresh, since the price served is then the one of the snapshot; otherwise the
+ * price has to be looked up and there is no tag.
+ */
+class EntityTags {
+
+    private final PriceSnapshots snapshots;
+
+    EntityTags(PriceSnapshots snapshots) {
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Computes the tag of a car.
+     * @param car the car, as read from the repository
+     * @param withPrice whether the price is served with the car
+     * @return the tag, e.g. {@code 12.3.1559476800000.4}, or null if its price is served but not fresh
+     */
+    String of(Car car, boolean withPrice) {
+        if (withPrice && !snapshots.isFresh(car)) {
+            return null;
+        }
+        LocalDateTime resolvedAt = car.getLocation().getResolvedAt();
+        return car.getId() + "." + car.getVersion()
+                + "." + (resolvedAt == null ? 0 : resolvedAt.toInstant(ZoneOffset.UTC).toEpochMilli())
+                + (withPrice ? "." + car.getPriceSnapshot().getVersion() : "");
+    }
+
+    /**
+     * Computes the tag of a page of cars, from the tags of the cars on it.
+     * @param cars the cars, as read from the repository
+     * @param withPrice whether the prices are served with the cars
+     * @return the tag, or null if the prices are served and that of any car is not fresh
+     */
+    String of(List<Car> cars, boolean withPrice) {
+        StringBuilder tags = new StringBuilder(cars.size() * 32);
+        for (Car car : cars) {
+            String tag = of(car, withPrice);
+            if (tag == null) {
+                return null;
+            }
+            tags.append(tag).append(',');
+        }
+        return DigestUtils.md5DigestAsHex(tags.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
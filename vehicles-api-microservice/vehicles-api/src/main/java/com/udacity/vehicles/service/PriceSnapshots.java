@@ -0,0 +1,97 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import com.udacity.vehicles.domain.car.PriceSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the local copy of each car's price (its {@link PriceSnapshot}) in step
+ * with the pricing service, so that reads can be served without asking it.
+ *
+ * Prices posted to the pricing service replace the copy unconditionally. Prices
+ * read from it only replace a copy that has not changed in the meantime, so a
+ * slow read never overwrites the price of a concurrent write.
+ */
+class PriceSnapshots {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceSnapshots.class);
+
+    private final CarRepository carRepository;
+    private final Scheduler repositoryScheduler;
+    private final Duration freshness;
+
+    /**
+     * Creates the snapshots of the given repository.
+     * @param repositoryScheduler runs the background refreshes, which block
+     * @param freshness how long a copy is served before the pricing service is asked again
+     */
+    PriceSnapshots(CarRepository carRepository, Scheduler repositoryScheduler, Duration freshness) {
+        this.carRepository = carRepository;
+        this.repositoryScheduler = repositoryScheduler;
+        this.freshness = freshness;
+    }
+
+    /**
+     * Checks whether the price copy of a car can be served as is.
+     * @param car the car, as read from the repository
+     */
+    boolean isFresh(Car car) {
+        return car.getPriceSnapshot().isFetchedAfter(LocalDateTime.now().minus(freshness));
+    }
+
+    /**
+     * Stores a price just posted to the pricing service, on the car and in the
+     * repository. Blocks until stored.
+     * @param car the car the price belongs to
+     * @param price the price posted, e.g. {@code USD 12345.67}
+     */
+    void store(Car car, String price) {
+        LocalDateTime fetchedAt = LocalDateTime.now();
+        carRepository.storePriceSnapshot(car.getId(), price, fetchedAt);
+        car.setPriceSnapshot(new PriceSnapshot(price, fetchedAt, car.getPriceSnapshot().getVersion() + 1));
+    }
+
+    /**
+     * Stores prices just posted to the pricing service for many cars, on the cars
+     * and in the repository in one batch. Blocks until stored.
+     * @param cars the cars, some of which the prices belong to
+     * @param prices the prices posted, e.g. {@code USD 12345.67}, keyed by car ID
+     */
+    void storeAll(List<Car> cars, Map<Long, String> prices) {
+        LocalDateTime fetchedAt = LocalDateTime.now();
+        carRepository.storePriceSnapshots(prices, fetchedAt);
+        for (Car car : cars) {
+            String price = prices.get(car.getId());
+            if (price != null) {
+                car.setPriceSnapshot(new PriceSnapshot(price, fetchedAt, car.getPriceSnapshot().getVersion() + 1));
+            }
+        }
+    }
+
+    /**
+     * Refreshes, in the background, the copies of cars whose price was just read
+     * from the pricing service. Cars without a price are skipped.
+     * @param cars the cars, holding the price read and the snapshot they were read with
+     */
+    void refreshInBackground(List<Car> cars) {
+        List<Car> priced = cars.stream().filter(car -> car.getPrice() != null).collect(Collectors.toList());
+        if (priced.isEmpty()) {
+            return;
+        }
+        LocalDateTime fetchedAt = LocalDateTime.now();
+        Mono.fromRunnable(() -> priced.forEach(car -> carRepository.refreshPriceSnapshot(
+                car.getId(), car.getPrice(), fetchedAt, car.getPriceSnapshot().getVersion())))
+                .subscribeOn(repositoryScheduler)
+                .subscribe(null, e -> log.warn("Could not refresh the prices of {} cars: {}", priced.size(), e.toString()));
+    }
+}
@@ -0,0 +1,280 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.Price;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import com.udacity.vehicles.domain.car.CarSearch;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Non-blocking variant of {@link CarService}, used when the application runs on
+ * WebFlux. Calls to the pricing service are composed without blocking, addresses
+ * are resolved in the background and prices served from their local copy as in {@link CarService},
+ * and the blocking JPA repository is only ever called on a dedicated, bounded
+ * pool of threads, so request threads are never parked on the database. The
+ * pool is monitored as the {@code cars.jpa} executor, e.g. {@code executor.queued}.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveCarService implements DisposableBean {
+
+    private final CarRepository carRepository;
+    private final PriceClient priceClient;
+    private final CarEnricher enricher;
+    private final AddressResolver addressResolver;
+    private final PriceSnapshots priceSnapshots;
+    private final EntityTags entityTags;
+    private final CarImporter importer;
+    private final Scheduler jpaScheduler;
+
+    public ReactiveCarService(CarRepository carRepository, MapsClient mapsClient, PriceClient priceClient,
+            MeterRegistry meterRegistry, @Value("${cars.jpa.threads:10}") int jpaThreads,
+            @Value("${pricing.snapshot.freshness:5m}") Duration priceFreshness) {
+        this.carRepository = carRepository;
+        this.priceClient = priceClient;
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService jpaExecutor = Executors.newFixedThreadPool(jpaThreads, runnable -> {
+            Thread thread = new Thread(runnable, "jpa-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jpaScheduler = Schedulers.fromExecutorService(
+                ExecutorServiceMetrics.monitor(meterRegistry, jpaExecutor, "cars.jpa"));
+        this.addressResolver = new AddressResolver(carRepository, mapsClient, jpaScheduler);
+        this.priceSnapshots = new PriceSnapshots(carRepository, jpaScheduler, priceFreshness);
+        this.enricher = new CarEnricher(priceClient, priceSnapshots, meterRegistry);
+        this.entityTags = new EntityTags(priceSnapshots);
+        this.importer = new CarImporter(carRepository, priceClient, priceSnapshots, addressResolver, jpaScheduler);
+    }
+
+    /**
+     * Gathers a page of vehicles, ordered by ID. Only the vehicles on the page are enriched.
+     * @param after the ID of the last vehicle of the previous page, or null for the first page
+     * @param limit the maximum number of vehicles to return
+     * @return Mono emitting the vehicles following the given ID
+     */
+    public Mono<List<Car>> list(Long after, int limit) {
+        return page(after, limit).flatMap(cars -> enrichIfModified(cars, Enrichment.ALL, null, tag -> false));
+    }
+
+    /**
+     * Gathers a page of vehicles like {@link #list(Long, int)}, unless the client
+     * already holds it. The page is tagged from the stored versions of its vehicles
+     * when their prices are fresh or not asked for, and only enriched if the tag is
+     * not matched.
+     * @param after the ID of the last vehicle of the previous page, or null for the first page
+     * @param limit the maximum number of vehicles to return
+     * @param enrichments the data owned by other services to populate the vehicles with
+     * @param notModified tells whether the client holds the page with the given entity tag
+     * @return Mono emitting the enriched vehicles, or completing empty if the client holds them
+     */
+    public Mono<List<Car>> listIfModified(Long after, int limit, Set<Enrichment> enrichments,
+            Predicate<String> notModified) {
+        return page(after, limit).flatMap(cars -> enrichIfModified(cars, enrichments,
+                entityTags.of(cars, enrichments.contains(Enrichment.PRICE)), notModified));
+    }
+
+    /**
+     * Gathers a page of the vehicles matching a search, unless the client already
+     * holds it. Only the vehicles on the page are enriched, and only if the tag of
+     * the page is not matched, as for {@link #listIfModified}.
+     * @param search the criteria, order and cursor of the search
+     * @param limit the maximum number of vehicles to return
+     * @param enrichments the data owned by other services to populate the vehicles with
+     * @param notModified tells whether the client holds the page with the given entity tag
+     * @return Mono emitting the enriched vehicles, or completing empty if the client holds them
+     */
+    public Mono<List<Car>> searchIfModified(CarSearch search, int limit, Set<Enrichment> enrichments,
+            Predicate<String> notModified) {
+        return fromRepository(() -> carRepository.search(search, limit))
+                .flatMap(cars -> enrichIfModified(cars, enrichments,
+                        entityTags.of(cars, enrichments.contains(Enrichment.PRICE)), notModified));
+    }
+
+    /**
+     * Gathers the vehicles nearest to a point, unless the client already holds them.
+     * Only the vehicles returned are enriched, and only if their tag is not matched,
+     * as for {@link #listIfModified}.
+     * @param lat latitude of the point
+     * @param lon longitude of the point
+     * @param radiusKm the maximum distance of a vehicle to the point, in kilometers
+     * @param limit the maximum number of vehicles to return
+     * @param enrichments the data owned by other services to populate the vehicles with
+     * @param notModified tells whether the client holds the vehicles with the given entity tag
+     * @return Mono emitting the enriched vehicles, or completing empty if the client holds them
+     */
+    public Mono<List<Car>> nearIfModified(double lat, double lon, double radiusKm, int limit,
+            Set<Enrichment> enrichments, Predicate<String> notModified) {
+        return fromRepository(() -> carRepository.findNear(lat, lon, radiusKm, limit))
+                .flatMap(cars -> enrichIfModified(cars, enrichments,
+                        entityTags.of(cars, enrichments.contains(Enrichment.PRICE)), notModified));
+    }
+
+    /**
+     * Streams all vehicles in ID order. Vehicles are read and enriched one window
+     * at a time, and the next window is only read once the previous one is
+     * requested, so a slow client holds back the database rather than filling memory.
+     * @param after the ID to start after, or null to start from the first vehicle
+     * @param windowSize the number of vehicles read and enriched together
+     * @return Flux of the enriched vehicles, in order
+     */
+    public Flux<Car> stream(Long after, int windowSize) {
+        return list(after, windowSize)
+                .expand(window -> window.size() == windowSize
+                        ? list(window.get(window.size() - 1).getId(), windowSize)
+                        : Mono.empty())
+                .concatMapIterable(Function.identity());
+    }
+
+    /**
+     * Gets car information by ID.
+     * @param id the ID number of the car to gather information on
+     * @return Mono emitting the requested car, including location and price,
+     *   or erroring with {@link CarNotFoundException}
+     */
+    public Mono<Car> findById(Long id) {
+        return findIfModified(id, Enrichment.ALL, tag -> false);
+    }
+
+    /**
+     * Gets car information by ID like {@link #findById(Long)}, unless the client
+     * already holds it. The car is tagged from its stored versions when its price
+     * is fresh or not asked for, and only enriched if the tag is not matched.
+     * @param id the ID number of the car to gather information on
+     * @param enrichments the data owned by other services to populate the car with
+     * @param notModified tells whether the client holds the car with the given entity tag
+     * @return Mono emitting the requested car, completing empty if the client holds it,
+     *   or erroring with {@link CarNotFoundException}
+     */
+    public Mono<Car> findIfModified(Long id, Set<Enrichment> enrichments, Predicate<String> notModified) {
+        return fromRepository(() -> carRepository.findById(id).orElseThrow(CarNotFoundException::new))
+                .flatMap(car -> enrichIfModified(Collections.singletonList(car), enrichments,
+                        entityTags.of(car, enrichments.contains(Enrichment.PRICE)), notModified)
+                        .map(cars -> car));
+    }
+
+    /**
+     * Either creates or updates a vehicle, based on prior existence of car.
+     * @param car A car object, which can be either new or existing
+     * @return Mono emitting the new or updated car once it is stored
+     */
+    public Mono<Car> save(Car car) {
+        if (car.getId() != null) {
+            return fromRepository(() -> carRepository.findById(car.getId()).orElseThrow(CarNotFoundException::new))
+                    .flatMap(carToBeUpdated -> {
+                        carToBeUpdated.setModifiedAt(LocalDateTime.now());
+                        carToBeUpdated.setDetails(car.getDetails());
+                        if (!carToBeUpdated.getLocation().hasCoordinatesOf(car.getLocation())) {
+                            carToBeUpdated.setLocation(car.getLocation());
+                        }
+                        carToBeUpdated.setPrice(car.getPrice());
+                        carToBeUpdated.setCondition(car.getCondition());
+                        if (carToBeUpdated.getPrice() == null) {
+                            return fromRepository(() -> carRepository.save(carToBeUpdated));
+                        }
+                        return priceClient.postPriceAsync(new Price(carToBeUpdated.getPrice(), carToBeUpdated.getId()))
+                                .flatMap(posted -> fromRepository(() -> {
+                                    Car saved = carRepository.save(carToBeUpdated);
+                                    priceSnapshots.store(saved, posted);
+                                    return saved;
+                                }));
+                    })
+                    .doOnNext(addressResolver::resolveAfterCommit)
+                    .flatMap(saved -> enricher.enrich(Collections.singletonList(saved)).thenReturn(saved));
+        }
+
+        return fromRepository(() -> carRepository.save(car))
+                .doOnNext(addressResolver::resolveAfterCommit)
+                .flatMap(saved -> (saved.getPrice() == null
+                        ? priceClient.setPriceAsync(saved.getId()).doOnNext(saved::setPrice).then()
+                        : Mono.<Void>empty())
+                        .then(Mono.defer(() -> saved.getPrice() == null
+                                ? Mono.<String>empty()
+                                : priceClient.postPriceAsync(new Price(saved.getPrice(), saved.getId()))))
+                        .flatMap(posted -> fromRepository(() -> {
+                            priceSnapshots.store(saved, posted);
+                            return saved;
+                        }))
+                        .defaultIfEmpty(saved));
+    }
+
+    /**
+     * Creates many new vehicles, one chunk at a time. Each chunk is inserted in JDBC
+     * batches and priced in one call to the pricing service, and its addresses are
+     * resolved in the background in one call to the Maps service.
+     * @param cars the new vehicles, already validated
+     * @param chunkSize the number of vehicles stored and priced together
+     * @return Flux of the result of each vehicle, emitted a chunk at a time once stored
+     */
+    public Flux<CarImportResult> importCars(List<Car> cars, int chunkSize) {
+        return importer.importAll(cars, chunkSize).concatMapIterable(Function.identity());
+    }
+
+    /**
+     * Deletes a given car by ID.
+     * @param id the ID number of the car to delete
+     * @return Mono completing once the car and its price are deleted
+     */
+    public Mono<Void> delete(Long id) {
+        return fromRepository(() -> {
+            Car car = carRepository.findById(id).orElseThrow(CarNotFoundException::new);
+            carRepository.delete(car);
+            return car;
+        }).then(priceClient.deletePriceAsync(id));
+    }
+
+    private Mono<List<Car>> page(Long after, int limit) {
+        return fromRepository(() -> carRepository.findByIdGreaterThanOrderByIdAsc(
+                after == null ? Long.MIN_VALUE : after, PageRequest.of(0, limit)));
+    }
+
+    /**
+     * Populates the price of each car unless the client already holds them or does
+     * not ask for prices. Cars whose stored address is out of date are queued for
+     * resolution if addresses are asked for, but not waited for.
+     * @return Mono emitting the same list of cars, or completing empty if the client holds them
+     */
+    private Mono<List<Car>> enrichIfModified(List<Car> cars, Set<Enrichment> enrichments, String tag,
+            Predicate<String> notModified) {
+        if (enrichments.contains(Enrichment.ADDRESS)) {
+            addressResolver.resolveMissing(cars);
+        }
+        if (tag != null && notModified.test(tag)) {
+            return Mono.empty();
+        }
+        return enrichments.contains(Enrichment.PRICE) ? enricher.enrich(cars) : Mono.just(cars);
+    }
+
+    private <T> Mono<T> fromRepository(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(jpaScheduler);
+    }
+
+    @Override
+    public void destroy() {
+        jpaScheduler.dispose();
+    }
+}
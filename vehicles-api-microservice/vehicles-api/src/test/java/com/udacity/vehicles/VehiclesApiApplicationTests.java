@@ -2,15 +2,64 @@ package com.udacity.vehicles;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@AutoConfigureMockMvc
 public class VehiclesApiApplicationTests {
 
+    @Autowired
+    private MockMvc mvc;
+
     @Test
     public void contextLoads() {
     }
 
+    /**
+     * Tests that metrics can be scraped in the Prometheus format, including the
+     * timings of the repository calls made at startup.
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void publishesPrometheusMetrics() throws Exception {
+        mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                        "spring_data_repository_invocations_seconds_count{exception=\"None\",method=\"save\","
+                                + "repository=\"ManufacturerRepository\",state=\"SUCCESS\",}")));
+    }
+
+    /**
+     * Tests that a request joining a sampled trace is recorded as a span of that
+     * trace, and can be looked up through the traces endpoint.
+     * @throws Exception if the request fails
+     */
+    @Test
+    public void recordsSpansOfSampledTraces() throws Exception {
+        mvc.perform(get("/cars").header("traceparent", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("traceresponse", startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-")));
+
+        mvc.perform(get("/actuator/traces/4bf92f3577b34da6a3ce929d0e0e4736"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].kind", is("SERVER")))
+                .andExpect(jsonPath("$[0].name", is("GET /cars")))
+                .andExpect(jsonPath("$[0].parentId", is("00f067aa0ba902b7")))
+                .andExpect(jsonPath("$[0].status", is(200)));
+    }
+
 }
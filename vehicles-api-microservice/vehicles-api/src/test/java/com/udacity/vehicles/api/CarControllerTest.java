@@ -5,33 +5,60 @@ import com.udacity.vehicles.client.prices.PriceClient;
 import com.udacity.vehicles.domain.Condition;
 import com.udacity.vehicles.domain.Location;
 import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarSearch;
 import com.udacity.vehicles.domain.car.Details;
 import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import com.udacity.vehicles.service.CarImportResult;
 import com.udacity.vehicles.service.CarService;
+import com.udacity.vehicles.service.Enrichment;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.json.AutoConfigureJsonTesters;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.StreamUtils;
 
+import java.io.ByteArrayInputStream;
 import java.net.URI;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -43,15 +70,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @AutoConfigureJsonTesters
 public class CarControllerTest {
 
+    private static final String ETAG = "1.0.0.1";
+
     @Autowired
     private MockMvc mvc;
 
     @Autowired
     private JacksonTester<Car> json;
 
-    @Autowired
-    private JacksonTester<List<Car>> json2;
-
     @MockBean
     private CarService carService;
 
@@ -69,8 +95,14 @@ public class CarControllerTest {
         Car car = getCar();
         car.setId(1L);
         given(carService.save(any())).willReturn(car);
-        given(carService.findById(any())).willReturn(car);
-        given(carService.list()).willReturn(Collections.singletonList(car));
+        given(carService.findIfModified(any(), any(), any()))
+                .willAnswer(invocation -> ifModified(invocation.getArgument(2), car));
+        given(carService.listIfModified(any(), anyInt(), any(), any()))
+                .willAnswer(invocation -> ifModified(invocation.getArgument(3), Collections.singletonList(car)));
+        given(carService.searchIfModified(any(), anyInt(), any(), any()))
+                .willAnswer(invocation -> ifModified(invocation.getArgument(3), Collections.singletonList(car)));
+        given(carService.nearIfModified(anyDouble(), anyDouble(), anyDouble(), anyInt(), any(), any()))
+                .willAnswer(invocation -> ifModified(invocation.getArgument(5), Collections.singletonList(car)));
 
     }
 
@@ -97,17 +129,375 @@ public class CarControllerTest {
     public void listCars() throws Exception {
         Car car = getCar();
         car.setId(1L);
-        List<Car> carList = new ArrayList();
-        carList.add(car);
 
         mvc.perform(
                 get("/cars"))
                 .andExpect(status().isOk())
-                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
-                .andExpect(content().json(json2.write(carList).getJson()));
+                .andExpect(content().contentType(MediaTypes.HAL_JSON_UTF8))
+                .andExpect(content().json("{\"_embedded\":{\"carList\":[" + json.write(car).getJson() + "]}}"))
+                .andExpect(jsonPath("$._links.next").doesNotExist())
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/cars?limit=100"))
+                .andExpect(jsonPath("$._links.cars.href").value("http://localhost/cars"))
+                .andExpect(jsonPath("$._embedded.carList[0]._links.self.href").value("http://localhost/cars/1"))
+                .andExpect(jsonPath("$._embedded.carList[0]._links.cars").doesNotExist())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ETAG + "\""));
+
+        verify(carService, times(1)).listIfModified(eq(null), eq(100), eq(Enrichment.ALL), any());
+
+    }
+
+    /**
+     * Tests that a full page of vehicles links to the next page.
+     * @throws Exception if the read operation of the vehicle list fails
+     */
+    @Test
+    public void listCarsLinksToNextPage() throws Exception {
+        mvc.perform(
+                get("/cars").param("after", "0").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.next.href").value("http://localhost/cars?after=1&limit=1"));
+
+        verify(carService, times(1)).listIfModified(eq(0L), eq(1), eq(Enrichment.ALL), any());
+    }
+
+    /**
+     * Tests that a page restricted to some fields only renders those, skips the
+     * enrichment of the others, and links to next pages with the same fields.
+     * @throws Exception if the read operation of the vehicle list fails
+     */
+    @Test
+    public void listCarsWithFields() throws Exception {
+        mvc.perform(
+                get("/cars").param("limit", "1").param("fields", "condition,details.model"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"_embedded\":{\"carList\":[{\"id\":1,\"condition\":\"USED\","
+                        + "\"details\":{\"model\":\"Impala\"}}]}}"))
+                .andExpect(jsonPath("$._embedded.carList[0].price").doesNotExist())
+                .andExpect(jsonPath("$._embedded.carList[0].location").doesNotExist())
+                .andExpect(jsonPath("$._embedded.carList[0].details.mileage").doesNotExist())
+                .andExpect(jsonPath("$._embedded.carList[0]._links.self.href").value("http://localhost/cars/1"))
+                .andExpect(jsonPath("$._links.next.href")
+                        .value("http://localhost/cars?after=1&limit=1&fields=condition,details.model"));
+
+        verify(carService, times(1)).listIfModified(eq(null), eq(1), eq(EnumSet.noneOf(Enrichment.class)), any());
+    }
+
+    /**
+     * Tests that unknown fields are rejected.
+     * @throws Exception if the read operation of the vehicle list fails
+     */
+    @Test
+    public void listCarsWithUnknownFields() throws Exception {
+        mvc.perform(
+                get("/cars").param("fields", "details.wheels"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(
+                get("/cars").param("fields", "price.currency"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that a page the client already holds is answered with 304.
+     * @throws Exception if the read operation of the vehicle list fails
+     */
+    @Test
+    public void listCarsNotModified() throws Exception {
+        mvc.perform(
+                get("/cars").header(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ETAG + "\""))
+                .andExpect(content().string(""));
+    }
+
+    /**
+     * Tests that a page restricted to some fields has a tag of its own, so that a client
+     * holding the whole page still gets the fields, and that the tag does not depend on
+     * the order in which the fields are given.
+     * @throws Exception if the read operation of the vehicle list fails
+     */
+    @Test
+    public void listCarsTaggedPerFieldSelection() throws Exception {
+        MvcResult result = mvc.perform(
+                get("/cars").param("fields", "condition,details.model")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\""))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(etag, etag.startsWith("\"" + ETAG + "-"));
+
+        mvc.perform(
+                get("/cars").param("fields", "details.model,condition,id")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mvc.perform(
+                get("/cars").param("fields", "condition")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Tests that a search binds its criteria and order, and links to the next page
+     * with the same query and the cursor of the last vehicle.
+     * @throws Exception if the search fails
+     */
+    @Test
+    public void searchCars() throws Exception {
+        mvc.perform(
+                get("/cars/search?manufacturer=101&body=sedan&minModelYear=2015&condition=USED"
+                        + "&sort=mileage,desc&limit=1&fields=details.mileage"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"_embedded\":{\"carList\":[{\"id\":1,\"details\":{\"mileage\":32280}}]}}"))
+                .andExpect(jsonPath("$._embedded.carList[0]._links.self.href").value("http://localhost/cars/1"))
+                .andExpect(jsonPath("$._links.next.href").value("http://localhost/cars/search?manufacturer=101"
+                        + "&body=sedan&minModelYear=2015&condition=USED&sort=mileage,desc&limit=1"
+                        + "&fields=details.mileage&after=32280:1"))
+                .andExpect(header().string(HttpHeaders.ETAG, startsWith("\"" + ETAG + "-")));
+
+        ArgumentCaptor<CarSearch> search = ArgumentCaptor.forClass(CarSearch.class);
+        verify(carService, times(1)).searchIfModified(search.capture(), eq(1),
+                eq(EnumSet.noneOf(Enrichment.class)), any());
+        assertEquals(Integer.valueOf(101), search.getValue().getManufacturer());
+        assertEquals("sedan", search.getValue().getBody());
+        assertEquals(Integer.valueOf(2015), search.getValue().getMinModelYear());
+        assertEquals(Condition.USED, search.getValue().getCondition());
+        assertEquals(CarSearch.SortKey.MILEAGE, search.getValue().getOrderBy());
+        assertTrue(search.getValue().isDescending());
+        assertNull(search.getValue().getAfterId());
+    }
+
+    /**
+     * Tests that a search continues from the cursor of the previous page.
+     * @throws Exception if the search fails
+     */
+    @Test
+    public void searchCarsAfterCursor() throws Exception {
+        mvc.perform(
+                get("/cars/search").param("sort", "modelYear").param("after", "2017:42"))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<CarSearch> search = ArgumentCaptor.forClass(CarSearch.class);
+        verify(carService, times(1)).searchIfModified(search.capture(), eq(100), eq(Enrichment.ALL), any());
+        assertEquals(CarSearch.SortKey.MODEL_YEAR, search.getValue().getOrderBy());
+        assertEquals(Long.valueOf(42), search.getValue().getAfterId());
+        assertEquals(Integer.valueOf(2017), search.getValue().getAfterValue());
+    }
+
+    /**
+     * Tests that malformed orders and cursors are rejected.
+     * @throws Exception if the search fails
+     */
+    @Test
+    public void searchCarsWithInvalidParameters() throws Exception {
+        mvc.perform(
+                get("/cars/search").param("sort", "price"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(
+                get("/cars/search").param("sort", "mileage,up"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(
+                get("/cars/search").param("after", "2017:42"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(
+                get("/cars/search").param("minMileage", "many"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that the vehicles near a point are listed without a next link, and that
+     * points off Earth and radii out of bounds are rejected.
+     * @throws Exception if the search fails
+     */
+    @Test
+    public void findCarsNear() throws Exception {
+        mvc.perform(
+                get("/cars/near?lat=40.73&lon=-73.93&radiusKm=5&limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.carList[0].id").value(1))
+                .andExpect(jsonPath("$._links.self.href").value("http://localhost/cars/near?lat=40.73&lon=-73.93"
+                        + "&radiusKm=5&limit=1"))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+
+        verify(carService, times(1)).nearIfModified(eq(40.73), eq(-73.93), eq(5.0), eq(1), eq(Enrichment.ALL), any());
+
+        mvc.perform(
+                get("/cars/near?lat=91&lon=-73.93&radiusKm=5"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(
+                get("/cars/near?lat=40.73&lon=-73.93&radiusKm=1000"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(
+                get("/cars/near?lat=40.73&lon=-73.93"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that the vehicle list can be streamed as newline delimited JSON.
+     * @throws Exception if streaming the vehicle list fails
+     */
+    @Test
+    public void streamCars() throws Exception {
+        Car car = getCar();
+        car.setId(1L);
+        willAnswer(invocation -> {
+            Consumer<List<Car>> consumer = invocation.getArgument(2);
+            consumer.accept(Collections.singletonList(car));
+            return null;
+        }).given(carService).forEachWindow(any(), anyInt(), any());
+
+        MvcResult result = mvc.perform(
+                get("/cars").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(json.write(car).getJson() + "\n"));
+    }
+
+    /**
+     * Tests that the fleet is exported as gzip compressed CSV, with the price and
+     * the address only looked up and written when included.
+     * @throws Exception when the export fails
+     */
+    @Test
+    public void exportCarsAsCsv() throws Exception {
+        Car car = getCar();
+        car.setId(1L);
+        car.getDetails().setEngine("3.6L V6, \"LFX\"");
+        car.setPrice("USD 10000.00");
+        willAnswer(invocation -> {
+            Consumer<List<Car>> consumer = invocation.getArgument(3);
+            consumer.accept(Collections.singletonList(car));
+            return null;
+        }).given(carService).export(any(), anyInt(), any(), any());
+
+        MvcResult result = mvc.perform(
+                get("/cars/export").param("format", "csv").param("include", "price")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        String csv = StreamUtils.copyToString(new GZIPInputStream(new ByteArrayInputStream(body)),
+                StandardCharsets.UTF_8);
+        assertEquals("id,createdAt,modifiedAt,condition,details.body,details.model,details.manufacturer.code,"
+                + "details.manufacturer.name,details.numberOfDoors,details.fuelType,details.engine,details.mileage,"
+                + "details.modelYear,details.productionYear,details.externalColor,location.lat,location.lon,price\r\n"
+                + "1,,,USED,sedan,Impala,101,Chevrolet,4,Gasoline,\"3.6L V6, \"\"LFX\"\"\",32280,2018,2018,white,"
+                + "40.73061,-73.935242,USD 10000.00\r\n", csv);
+        verify(carService).export(any(), eq(1000), eq(EnumSet.of(Enrichment.PRICE)), any());
+    }
+
+    /**
+     * Tests that the fleet is exported as newline delimited JSON by default, without
+     * looking up prices or addresses, and that unknown inclusions are rejected.
+     * @throws Exception when the export fails
+     */
+    @Test
+    public void exportCarsAsNdjson() throws Exception {
+        Car car = getCar();
+        car.setId(1L);
+        willAnswer(invocation -> {
+            Consumer<List<Car>> consumer = invocation.getArgument(3);
+            consumer.accept(Collections.singletonList(car));
+            return null;
+        }).given(carService).export(any(), anyInt(), any(), any());
 
-        verify(carService, times(1)).list();
+        MvcResult result = mvc.perform(
+                get("/cars/export").param("after", "0"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string("{\"id\":1,\"createdAt\":null,\"modifiedAt\":null,\"condition\":\"USED\","
+                        + "\"details\":{\"body\":\"sedan\",\"model\":\"Impala\",\"manufacturer\":{\"code\":101,"
+                        + "\"name\":\"Chevrolet\"},\"numberOfDoors\":4,\"fuelType\":\"Gasoline\",\"engine\":\"3.6L V6\","
+                        + "\"mileage\":32280,\"modelYear\":2018,\"productionYear\":2018,\"externalColor\":\"white\"},"
+                        + "\"location\":{\"lat\":40.73061,\"lon\":-73.935242}}\n"));
+        verify(carService).export(eq(0L), eq(1000), eq(EnumSet.noneOf(Enrichment.class)), any());
 
+        mvc.perform(get("/cars/export").param("include", "owner"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/cars/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that a batch of new vehicles given as newline delimited JSON is imported,
+     * streaming the result of each vehicle.
+     * @throws Exception when the import fails
+     */
+    @Test
+    public void importCars() throws Exception {
+        willAnswer(invocation -> {
+            Consumer<List<CarImportResult>> consumer = invocation.getArgument(2);
+            consumer.accept(Arrays.asList(new CarImportResult(0, 1L, "USD 10000.00", null),
+                    new CarImportResult(1, 2L, null, "No price could be quoted")));
+            return null;
+        }).given(carService).importCars(any(), anyInt(), any());
+
+        Car car = getCar();
+        MvcResult result = mvc.perform(
+                post("/cars/bulk")
+                        .content(json.write(car).getJson() + "\n" + json.write(car).getJson() + "\n")
+                        .contentType("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string("{\"index\":0,\"id\":1,\"price\":\"USD 10000.00\"}\n"
+                        + "{\"index\":1,\"id\":2,\"error\":\"No price could be quoted\"}\n"));
+
+        ArgumentCaptor<List<Car>> cars = ArgumentCaptor.forClass(List.class);
+        verify(carService, times(1)).importCars(cars.capture(), eq(1000), any());
+        assertEquals(2, cars.getValue().size());
+        assertEquals("Impala", cars.getValue().get(1).getDetails().getModel());
+    }
+
+    /**
+     * Tests that a batch holding an invalid vehicle, or a price the pricing service
+     * cannot store, is rejected as a whole, listing the errors of each invalid vehicle.
+     * @throws Exception when the import fails
+     */
+    @Test
+    public void importCarsRejectsInvalidBatch() throws Exception {
+        Car car = getCar();
+        Car invalid = getCar();
+        invalid.setCondition(null);
+
+        mvc.perform(
+                post("/cars/bulk")
+                        .content("[" + json.write(car).getJson() + "," + json.write(invalid).getJson() + "]")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation failed"))
+                .andExpect(jsonPath("$.errors[0]").value("[1].condition: must not be null"));
+        Car unpriceable = getCar();
+        unpriceable.setPrice("12000 USD x");
+        mvc.perform(
+                post("/cars/bulk")
+                        .content(json.write(car).getJson() + "\n" + json.write(unpriceable).getJson() + "\n")
+                        .contentType("application/x-ndjson"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors[0]")
+                        .value("[1].price: must be a currency code and an amount, e.g. USD 12345.67"));
+        mvc.perform(
+                post("/cars/bulk")
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+
+        verify(carService, never()).importCars(any(), anyInt(), any());
     }
 
     /**
@@ -123,8 +513,42 @@ public class CarControllerTest {
                 get("/cars/1"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
-                .andExpect(content().json(json.write(car).getJson()));
-        verify(carService, times(1)).findById(1L);
+                .andExpect(content().json(json.write(car).getJson()))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ETAG + "\""));
+        verify(carService, times(1)).findIfModified(eq(1L), eq(Enrichment.ALL), any());
+    }
+
+    /**
+     * Tests that a car restricted to some fields only renders those, and is only
+     * enriched with its price when asked for.
+     * @throws Exception if the read operation for a single car fails
+     */
+    @Test
+    public void findCarWithFields() throws Exception {
+        mvc.perform(
+                get("/cars/1").param("fields", "price,location.lat,details.manufacturer"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"id\":1,\"price\":null,\"location\":{\"lat\":40.73061},"
+                        + "\"details\":{\"manufacturer\":{\"code\":101,\"name\":\"Chevrolet\"}}}", true));
+
+        verify(carService, times(1)).findIfModified(eq(1L), eq(EnumSet.of(Enrichment.PRICE)), any());
+    }
+
+    /**
+     * Tests that a car the client already holds is answered with 304, and that
+     * a stale entity tag gets the car.
+     * @throws Exception if the read operation for a single car fails
+     */
+    @Test
+    public void findCarNotModified() throws Exception {
+        mvc.perform(
+                get("/cars/1").header(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mvc.perform(
+                get("/cars/1").header(HttpHeaders.IF_NONE_MATCH, "\"1.0.0.0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + ETAG + "\""));
     }
 
     /**
@@ -153,6 +577,13 @@ public class CarControllerTest {
                 .andExpect(content().json(json.write(car).getJson()));
     }
 
+    /**
+     * Answers like the service: empty if the client holds {@link #ETAG}.
+     */
+    private static <T> Optional<T> ifModified(Predicate<String> notModified, T value) {
+        return notModified.test(ETAG) ? Optional.empty() : Optional.of(value);
+    }
+
     /**
      * Creates an example Car object for use in testing.
      * @return an example Car object
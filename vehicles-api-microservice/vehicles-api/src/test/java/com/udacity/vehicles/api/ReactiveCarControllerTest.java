@@ -0,0 +1,313 @@
+package com.udacity.vehicles.api;
+
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarSearch;
+import com.udacity.vehicles.domain.car.Details;
+import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import com.udacity.vehicles.service.CarImportResult;
+import com.udacity.vehicles.service.CarNotFoundException;
+import com.udacity.vehicles.service.Enrichment;
+import com.udacity.vehicles.service.ReactiveCarService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJsonTesters;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Implements testing of the ReactiveCarController class, with the application running on WebFlux.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@AutoConfigureJsonTesters
+public class ReactiveCarControllerTest {
+
+    private static final String ETAG = "1.0.0.1";
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private JacksonTester<Car> json;
+
+    @MockBean
+    private ReactiveCarService carService;
+
+    @MockBean
+    private PriceClient priceClient;
+
+    @MockBean
+    private MapsClient mapsClient;
+
+    private Car car;
+
+    @Before
+    public void setup() {
+        car = getCar();
+        car.setId(1L);
+        given(carService.save(any())).willReturn(Mono.just(car));
+        given(carService.findIfModified(eq(1L), any(), any()))
+                .willAnswer(invocation -> ifModified(invocation.getArgument(2), car));
+        given(carService.findIfModified(eq(2L), any(), any())).willReturn(Mono.error(new CarNotFoundException()));
+        given(carService.listIfModified(any(), anyInt(), any(), any()))
+                .willAnswer(invocation -> ifModified(invocation.getArgument(3), Collections.singletonList(car)));
+        given(carService.searchIfModified(any(), anyInt(), any(), any()))
+                .willAnswer(invocation -> ifModified(invocation.getArgument(3), Collections.singletonList(car)));
+        given(carService.nearIfModified(anyDouble(), anyDouble(), anyDouble(), anyInt(), any(), any()))
+                .willAnswer(invocation -> ifModified(invocation.getArgument(5), Collections.singletonList(car)));
+        given(carService.stream(any(), anyInt())).willReturn(Flux.just(car));
+        given(carService.delete(any())).willReturn(Mono.empty());
+    }
+
+    /**
+     * Tests that the vehicle list is rendered as HAL.
+     * @throws Exception if the expected JSON cannot be written
+     */
+    @Test
+    public void listCars() throws Exception {
+        client.get().uri("http://localhost/cars").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .json("{\"_embedded\":{\"carList\":[" + json.write(car).getJson() + "]}}")
+                .jsonPath("$._links.self.href").isEqualTo("http://localhost/cars?limit=100")
+                .jsonPath("$._links.cars.href").isEqualTo("http://localhost/cars")
+                .jsonPath("$._embedded.carList[0]._links.self.href").isEqualTo("http://localhost/cars/1")
+                .jsonPath("$._links.next").doesNotExist();
+
+        verify(carService, times(1)).listIfModified(eq(null), eq(100), eq(Enrichment.ALL), any());
+    }
+
+    /**
+     * Tests that a page restricted to some fields only renders those, and that
+     * unknown fields are rejected.
+     */
+    @Test
+    public void listCarsWithFields() {
+        client.get().uri("http://localhost/cars?fields=condition,details.model").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .json("{\"_embedded\":{\"carList\":[{\"id\":1,\"condition\":\"USED\","
+                        + "\"details\":{\"model\":\"Impala\"}}]}}")
+                .jsonPath("$._embedded.carList[0].price").doesNotExist()
+                .jsonPath("$._embedded.carList[0]._links.self.href").isEqualTo("http://localhost/cars/1");
+        client.get().uri("/cars?fields=wheels").exchange()
+                .expectStatus().isBadRequest();
+
+        verify(carService, times(1)).listIfModified(eq(null), eq(100), eq(EnumSet.noneOf(Enrichment.class)), any());
+    }
+
+    /**
+     * Tests that a search binds its criteria and order, links to the next page with
+     * the cursor of the last vehicle, and rejects unknown orders.
+     * @throws Exception if the expected JSON cannot be written
+     */
+    @Test
+    public void searchCars() throws Exception {
+        client.get().uri("http://localhost/cars/search?fuelType=Gasoline&maxMileage=50000&sort=mileage&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .json("{\"_embedded\":{\"carList\":[" + json.write(car).getJson() + "]}}")
+                .jsonPath("$._links.next.href").isEqualTo("http://localhost/cars/search?fuelType=Gasoline"
+                        + "&maxMileage=50000&sort=mileage&limit=1&after=32280:1");
+        client.get().uri("/cars/search?sort=price").exchange()
+                .expectStatus().isBadRequest();
+
+        ArgumentCaptor<CarSearch> search = ArgumentCaptor.forClass(CarSearch.class);
+        verify(carService, times(1)).searchIfModified(search.capture(), eq(1), eq(Enrichment.ALL), any());
+        assertEquals("Gasoline", search.getValue().getFuelType());
+        assertEquals(Integer.valueOf(50000), search.getValue().getMaxMileage());
+        assertEquals(CarSearch.SortKey.MILEAGE, search.getValue().getOrderBy());
+    }
+
+    /**
+     * Tests that the vehicles near a point are listed, and that radii out of bounds are rejected.
+     */
+    @Test
+    public void findCarsNear() {
+        client.get().uri("http://localhost/cars/near?lat=40.73&lon=-73.93&radiusKm=5&fields=location").exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$._embedded.carList[0].location.lat").isEqualTo(40.730610)
+                .jsonPath("$._embedded.carList[0].details").doesNotExist()
+                .jsonPath("$._links.self.href").isEqualTo("http://localhost/cars/near?lat=40.73&lon=-73.93"
+                        + "&radiusKm=5&fields=location");
+        client.get().uri("/cars/near?lat=40.73&lon=-73.93&radiusKm=0").exchange()
+                .expectStatus().isBadRequest();
+
+        verify(carService, times(1)).nearIfModified(eq(40.73), eq(-73.93), eq(5.0), eq(100),
+                eq(EnumSet.of(Enrichment.ADDRESS)), any());
+    }
+
+    /**
+     * Tests that the vehicle list can be streamed as newline delimited JSON.
+     * @throws Exception if the expected JSON cannot be written
+     */
+    @Test
+    public void streamCars() throws Exception {
+        client.get().uri("/cars").accept(CarStreamWriter.NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(CarStreamWriter.NDJSON)
+                .expectBody(String.class).isEqualTo(json.write(car).getJson() + "\n");
+    }
+
+    /**
+     * Tests that a batch of new vehicles given as a JSON array is imported, streaming
+     * the result of each vehicle, and that an invalid batch is rejected as a whole.
+     * @throws Exception if the request JSON cannot be written
+     */
+    @Test
+    public void importCars() throws Exception {
+        given(carService.importCars(any(), anyInt()))
+                .willReturn(Flux.just(new CarImportResult(0, 1L, "USD 10000.00", null)));
+        Car newCar = getCar();
+
+        client.post().uri("/cars/bulk").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody("[" + json.write(newCar).getJson() + "]").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(CarStreamWriter.NDJSON)
+                .expectBody(String.class).isEqualTo("{\"index\":0,\"id\":1,\"price\":\"USD 10000.00\"}\n");
+
+        newCar.setLocation(new Location(null, -73.935242));
+        client.post().uri("/cars/bulk").contentType(CarStreamWriter.NDJSON)
+                .syncBody(json.write(newCar).getJson() + "\n").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.errors[0]").isEqualTo("[0].location.lat: must not be null");
+
+        verify(carService, times(1)).importCars(any(), eq(1000));
+    }
+
+    /**
+     * Tests the read operation for a single car by ID, and for a missing one.
+     * @throws Exception if the expected JSON cannot be written
+     */
+    @Test
+    public void findCar() throws Exception {
+        client.get().uri("/cars/1").exchange()
+                .expectStatus().isOk()
+                .expectBody().json(json.write(car).getJson());
+        client.get().uri("/cars/2").exchange()
+                .expectStatus().isNotFound();
+    }
+
+    /**
+     * Tests that a car or page the client already holds is answered with 304.
+     */
+    @Test
+    public void findCarNotModified() {
+        client.get().uri("/cars/1").exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + ETAG + "\"");
+        client.get().uri("/cars/1").header(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\"").exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+        client.get().uri("/cars").header(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\"").exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    /**
+     * Tests that a car restricted to some fields has a tag of its own.
+     */
+    @Test
+    public void findCarTaggedPerFieldSelection() {
+        String etag = client.get().uri("/cars/1?fields=price").header(HttpHeaders.IF_NONE_MATCH, "\"" + ETAG + "\"")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        assertTrue(etag, etag.startsWith("\"" + ETAG + "-"));
+
+        client.get().uri("/cars/1?fields=price").header(HttpHeaders.IF_NONE_MATCH, etag).exchange()
+                .expectStatus().isNotModified();
+    }
+
+    /**
+     * Tests creation of a car, and rejection of an invalid one.
+     * @throws Exception if the car cannot be written as JSON
+     */
+    @Test
+    public void createCar() throws Exception {
+        client.post().uri("/cars").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody(json.write(getCar()).getJson()).exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueMatches("Location", ".*/cars/1");
+
+        Car invalid = getCar();
+        invalid.setCondition(null);
+        client.post().uri("/cars").contentType(MediaType.APPLICATION_JSON_UTF8)
+                .syncBody(json.write(invalid).getJson()).exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Validation failed");
+    }
+
+    /**
+     * Tests the deletion of a single car by ID.
+     */
+    @Test
+    public void deleteCar() {
+        client.delete().uri("/cars/1").exchange()
+                .expectStatus().isNoContent();
+        verify(carService, times(1)).delete(1L);
+    }
+
+    /**
+     * Answers like the service: empty if the client holds {@link #ETAG}.
+     */
+    private static <T> Mono<T> ifModified(Predicate<String> notModified, T value) {
+        return Mono.fromCallable(() -> notModified.test(ETAG) ? null : value);
+    }
+
+    /**
+     * Creates an example Car object for use in testing.
+     * @return an example Car object
+     */
+    private Car getCar() {
+        Car car = new Car();
+        car.setLocation(new Location(40.730610, -73.935242));
+        Details details = new Details();
+        Manufacturer manufacturer = new Manufacturer(101, "Chevrolet");
+        details.setManufacturer(manufacturer);
+        details.setModel("Impala");
+        details.setMileage(32280);
+        details.setExternalColor("white");
+        details.setBody("sedan");
+        details.setEngine("3.6L V6");
+        details.setFuelType("Gasoline");
+        details.setModelYear(2018);
+        details.setProductionYear(2018);
+        details.setNumberOfDoors(4);
+        car.setDetails(details);
+        car.setCondition(Condition.USED);
+        return car;
+    }
+}
@@ -0,0 +1,92 @@
+package com.udacity.vehicles.client;
+
+import com.udacity.vehicles.client.loadbalancer.LatencyAwareLoadBalancer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Implements testing of the DownstreamMetrics class.
+ */
+public class DownstreamMetricsTest {
+
+    private MeterRegistry meterRegistry;
+    private WebClient webClient;
+
+    @Before
+    public void setup() {
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        given(discoveryClient.getInstances("pricing-service")).willReturn(Collections.singletonList(
+                new DefaultServiceInstance("pricing-1", "pricing-service", "pricing-host", 8082, false)));
+        meterRegistry = new SimpleMeterRegistry();
+        webClient = WebClient.builder()
+                .filter(new LatencyAwareLoadBalancer(discoveryClient, Duration.ofMinutes(1), Duration.ofSeconds(10)))
+                .filter(new DownstreamMetrics(meterRegistry))
+                .exchangeFunction(request -> {
+                    if (request.url().getPath().equals("/prices/404")) {
+                        return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+                    }
+                    if (request.url().getPath().equals("/prices/slow")) {
+                        return Mono.just(ClientResponse.create(HttpStatus.OK).build()).delayElement(Duration.ofSeconds(1));
+                    }
+                    return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                })
+                .build();
+    }
+
+    /**
+     * Tests that requests are timed per service, endpoint template, instance and outcome.
+     */
+    @Test
+    public void timesRequestsPerEndpointAndOutcome() {
+        for (String id : new String[]{"1", "2", "404"}) {
+            webClient.get().uri("http://pricing-service/prices/{vehicleId}", id).exchange().block();
+        }
+
+        assertEquals(2, timer("SUCCESS").count());
+        assertEquals(1, timer("CLIENT_ERROR").count());
+        assertEquals(0, meterRegistry.get("downstream.requests.active")
+                .tag("instance", "pricing-host:8082").gauge().value(), 0);
+    }
+
+    /**
+     * Tests that requests the caller gives up on are recorded as cancelled.
+     */
+    @Test
+    public void recordsCancelledRequests() {
+        webClient.get().uri("http://pricing-service/prices/{vehicleId}", "slow").exchange()
+                .timeout(Duration.ofMillis(50))
+                .onErrorResume(e -> Mono.empty())
+                .block();
+
+        assertEquals(1, timer("CANCELLED").count());
+    }
+
+    private Timer timer(String outcome) {
+        Timer timer = meterRegistry.find("downstream.requests")
+                .tags("service", "pricing-service",
+                        "instance", "pricing-host:8082",
+                        "method", "GET",
+                        "endpoint", "/prices/{vehicleId}",
+                        "outcome", outcome)
+                .timer();
+        assertNotNull("no timer for outcome " + outcome, timer);
+        return timer;
+    }
+}
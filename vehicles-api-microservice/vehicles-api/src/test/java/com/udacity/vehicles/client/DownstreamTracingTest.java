@@ -0,0 +1,125 @@
+package com.udacity.vehicles.client;
+
+import com.udacity.tracing.Span;
+import com.udacity.tracing.SpanRecorder;
+import com.udacity.tracing.TraceContext;
+import com.udacity.vehicles.client.loadbalancer.LatencyAwareLoadBalancer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Implements testing of the DownstreamTracing class.
+ */
+public class DownstreamTracingTest {
+
+    private static final TraceContext PARENT =
+            TraceContext.parse("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01").get();
+
+    private SpanRecorder recorder;
+    private Queue<String> traceparents;
+    private WebClient webClient;
+
+    @Before
+    public void setup() {
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        given(discoveryClient.getInstances("pricing-service")).willReturn(Collections.singletonList(
+                new DefaultServiceInstance("pricing-1", "pricing-service", "pricing-host", 8082, false)));
+        recorder = new SpanRecorder("vehicles-api", 1, 100);
+        traceparents = new ConcurrentLinkedQueue<>();
+        webClient = WebClient.builder()
+                .filter(new LatencyAwareLoadBalancer(discoveryClient, Duration.ofMinutes(1), Duration.ofSeconds(10)))
+                .filter(new DownstreamTracing(recorder))
+                .exchangeFunction(request -> {
+                    traceparents.add(String.valueOf(request.headers().getFirst(TraceContext.TRACEPARENT)));
+                    return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                })
+                .build();
+    }
+
+    @After
+    public void clearTrace() {
+        TraceContext.makeCurrent(null);
+    }
+
+    /**
+     * Tests that a request sent within a trace carries a child of the current span,
+     * and is recorded as a client span of the trace.
+     */
+    @Test
+    public void propagatesCurrentTrace() {
+        TraceContext.makeCurrent(PARENT);
+
+        webClient.get().uri("http://pricing-service/prices/{vehicleId}", 1).exchange().block();
+
+        TraceContext sent = TraceContext.parse(traceparents.poll()).get();
+        assertEquals(PARENT.getTraceId(), sent.getTraceId());
+        List<Span> spans = recorder.trace(PARENT.getTraceId());
+        assertEquals(1, spans.size());
+        Span span = spans.get(0);
+        assertEquals(sent.getSpanId(), span.getSpanId());
+        assertEquals(PARENT.getSpanId(), span.getParentId());
+        assertEquals(Span.Kind.CLIENT, span.getKind());
+        assertEquals("GET /prices/{vehicleId}", span.getName());
+        assertEquals("pricing-service pricing-host:8082", span.getRemote());
+        assertEquals(200, span.getStatus());
+    }
+
+    /**
+     * Tests that the trace follows a reactive chain onto other threads.
+     */
+    @Test
+    public void propagatesTraceAcrossThreads() {
+        TraceContext.makeCurrent(PARENT);
+
+        Mono.delay(Duration.ofMillis(1))
+                .flatMap(tick -> webClient.get().uri("http://pricing-service/prices/1").exchange())
+                .subscribeOn(Schedulers.elastic())
+                .subscriberContext(DownstreamTracing::propagate)
+                .block();
+
+        assertTrue(traceparents.poll().contains(PARENT.getTraceId()));
+    }
+
+    /**
+     * Tests that requests sent outside of any trace carry no header and are not recorded.
+     */
+    @Test
+    public void leavesUntracedRequestsAlone() {
+        webClient.get().uri("http://pricing-service/prices/1").exchange().block();
+
+        assertEquals("null", traceparents.poll());
+        assertTrue(recorder.recent(10).isEmpty());
+    }
+
+    /**
+     * Tests that the trace is propagated but not recorded when it is not sampled.
+     */
+    @Test
+    public void propagatesUnsampledTraceWithoutRecording() {
+        TraceContext.makeCurrent(TraceContext.root(false));
+
+        webClient.get().uri("http://pricing-service/prices/1").exchange().block();
+
+        assertTrue(traceparents.poll().endsWith("-00"));
+        assertTrue(recorder.recent(10).isEmpty());
+    }
+}
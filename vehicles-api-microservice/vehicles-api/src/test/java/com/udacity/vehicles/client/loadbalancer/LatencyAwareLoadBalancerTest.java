@@ -0,0 +1,115 @@
+package com.udacity.vehicles.client.loadbalancer;
+
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Implements testing of the LatencyAwareLoadBalancer class.
+ */
+public class LatencyAwareLoadBalancerTest {
+
+    /**
+     * Tests that requests are steered away from a slow instance.
+     */
+    @Test
+    public void prefersFasterInstance() {
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        given(discoveryClient.getInstances("pricing-service")).willReturn(Arrays.asList(
+                new DefaultServiceInstance("fast", "pricing-service", "fast-host", 8082, false),
+                new DefaultServiceInstance("slow", "pricing-service", "slow-host", 8082, false)));
+        LatencyAwareLoadBalancer loadBalancer = new LatencyAwareLoadBalancer(discoveryClient,
+                Duration.ofMinutes(1), Duration.ofSeconds(10));
+
+        Map<String, AtomicInteger> requestsByHost = new ConcurrentHashMap<>();
+        WebClient webClient = WebClient.builder()
+                .filter(loadBalancer)
+                .exchangeFunction(request -> {
+                    String host = request.url().getHost();
+                    requestsByHost.computeIfAbsent(host, h -> new AtomicInteger()).incrementAndGet();
+                    Duration latency = host.equals("slow-host") ? Duration.ofMillis(100) : Duration.ofMillis(5);
+                    return Mono.just(ClientResponse.create(HttpStatus.OK).build()).delayElement(latency);
+                })
+                .build();
+
+        Flux.range(0, 200)
+                .concatMap(i -> webClient.get().uri("http://pricing-service/prices/1").exchange())
+                .blockLast();
+
+        assertEquals(200, requestsByHost.get("fast-host").get() + requestsByHost.get("slow-host").get());
+        assertTrue("slow instance got " + requestsByHost.get("slow-host") + " requests",
+                requestsByHost.get("slow-host").get() < 20);
+        loadBalancer.destroy();
+    }
+
+    /**
+     * Tests that attempts of one call are sent to different instances.
+     */
+    @Test
+    public void avoidsTriedInstances() {
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        given(discoveryClient.getInstances("pricing-service")).willReturn(Arrays.asList(
+                new DefaultServiceInstance("a", "pricing-service", "a-host", 8082, false),
+                new DefaultServiceInstance("b", "pricing-service", "b-host", 8082, false)));
+        LatencyAwareLoadBalancer loadBalancer = new LatencyAwareLoadBalancer(discoveryClient,
+                Duration.ofMinutes(1), Duration.ofSeconds(10));
+        Set<String> hosts = ConcurrentHashMap.newKeySet();
+        WebClient webClient = WebClient.builder()
+                .filter(loadBalancer)
+                .exchangeFunction(request -> {
+                    hosts.add(request.url().getHost());
+                    return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                })
+                .build();
+
+        Set<URI> tried = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 2; i++) {
+            webClient.get().uri("http://pricing-service/prices/1")
+                    .attributes(LatencyAwareLoadBalancer.avoiding(tried))
+                    .exchange().block();
+        }
+
+        assertEquals(2, tried.size());
+        assertEquals(2, hosts.size());
+        loadBalancer.destroy();
+    }
+
+    /**
+     * Tests that an unknown service gets a 503 response.
+     */
+    @Test
+    public void unknownServiceIsUnavailable() {
+        DiscoveryClient discoveryClient = mock(DiscoveryClient.class);
+        given(discoveryClient.getInstances("boggle-maps")).willReturn(Collections.emptyList());
+        LatencyAwareLoadBalancer loadBalancer = new LatencyAwareLoadBalancer(discoveryClient,
+                Duration.ofMinutes(1), Duration.ofSeconds(10));
+        WebClient webClient = WebClient.builder()
+                .filter(loadBalancer)
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK).build()))
+                .build();
+
+        ClientResponse response = webClient.get().uri("http://boggle-maps/maps").exchange().block();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.statusCode());
+        loadBalancer.destroy();
+    }
+}
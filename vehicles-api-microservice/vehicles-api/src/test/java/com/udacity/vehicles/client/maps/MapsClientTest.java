@@ -0,0 +1,134 @@
+package com.udacity.vehicles.client.maps;
+
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.client.resilience.DownstreamGuard;
+import com.udacity.vehicles.client.resilience.DownstreamSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Implements testing of the address cache of the MapsClient class.
+ */
+public class MapsClientTest {
+
+    private static final String ADDRESS =
+            "{\"address\":\"777 Brockton Avenue\",\"city\":\"Abington\",\"state\":\"MA\",\"zip\":\"2351\"}";
+
+    private final AtomicInteger singleRequests = new AtomicInteger();
+    private final AtomicInteger batchRequests = new AtomicInteger();
+    private volatile boolean mapsDown;
+
+    /**
+     * Tests that concurrent misses for the same coordinates make a single request,
+     * and that later reads are served from the cache.
+     */
+    @Test
+    public void getAddressLoadsOncePerGeohash() {
+        MapsClient mapsClient = getMapsClient();
+
+        List<Location> locations = Flux.range(0, 10)
+                .flatMap(i -> mapsClient.getAddressAsync(new Location(40.730610, -73.935242)))
+                .collectList()
+                .block();
+        mapsClient.getAddress(new Location(40.730610, -73.935242));
+
+        assertEquals(1, singleRequests.get());
+        assertEquals(10, locations.size());
+        locations.forEach(location -> assertEquals("Abington", location.getCity()));
+    }
+
+    /**
+     * Tests that a list of locations is resolved in one batch, skipping cached ones.
+     */
+    @Test
+    public void getAddressesBatchesMisses() {
+        MapsClient mapsClient = getMapsClient();
+        mapsClient.getAddress(new Location(40.0, -73.0));
+
+        List<Location> locations = mapsClient.getAddresses(Arrays.asList(
+                new Location(40.0, -73.0), new Location(41.0, -74.0), new Location(42.0, -75.0)));
+
+        assertEquals(1, singleRequests.get());
+        assertEquals(1, batchRequests.get());
+        locations.forEach(location -> assertEquals("Abington", location.getCity()));
+    }
+
+    /**
+     * Tests that a failed lookup leaves the location unchanged and is not cached.
+     */
+    @Test
+    public void getAddressFallsBackWhenMapsIsDown() {
+        MapsClient mapsClient = getMapsClient();
+        mapsDown = true;
+
+        Location location = mapsClient.getAddress(new Location(40.0, -73.0));
+        assertNull(location.getCity());
+
+        mapsDown = false;
+        assertEquals("Abington", mapsClient.getAddress(new Location(40.0, -73.0)).getCity());
+        assertEquals(2, singleRequests.get());
+    }
+
+    /**
+     * Tests that once an address has expired, a failed lookup serves the last known address.
+     */
+    @Test
+    public void getAddressServesLastKnownWhenMapsIsDown() throws InterruptedException {
+        MapsClient mapsClient = getMapsClient(Duration.ofMillis(50));
+        mapsClient.getAddress(new Location(40.0, -73.0));
+        Thread.sleep(100);
+        mapsDown = true;
+
+        assertEquals("Abington", mapsClient.getAddress(new Location(40.0, -73.0)).getCity());
+        assertEquals("Abington", mapsClient.getAddresses(Arrays.asList(
+                new Location(40.0, -73.0), new Location(41.0, -74.0))).get(0).getCity());
+        assertEquals(2, singleRequests.get());
+    }
+
+    private MapsClient getMapsClient() {
+        return getMapsClient(Duration.ofHours(1));
+    }
+
+    private MapsClient getMapsClient(Duration cacheTtl) {
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            if (mapsDown) {
+                (request.method() == HttpMethod.POST ? batchRequests : singleRequests).incrementAndGet();
+                return Mono.just(ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build());
+            }
+            String body;
+            if (request.method() == HttpMethod.POST) {
+                batchRequests.incrementAndGet();
+                body = "[" + ADDRESS + "," + ADDRESS + "]";
+            } else {
+                singleRequests.incrementAndGet();
+                body = ADDRESS;
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .body(body)
+                    .build())
+                    .delayElement(Duration.ofMillis(50));
+        }).build();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DownstreamGuard guard = new DownstreamGuard("boogle-maps", new DownstreamSettings(), meterRegistry);
+        return new MapsClient(webClient, new ModelMapper(), meterRegistry, guard,
+                1000, cacheTtl, Duration.ofDays(7), 9);
+    }
+}
@@ -0,0 +1,165 @@
+package com.udacity.vehicles.client.prices;
+
+import com.udacity.vehicles.client.resilience.DownstreamGuard;
+import com.udacity.vehicles.client.resilience.DownstreamSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Implements testing of the price cache of the PriceClient class.
+ */
+public class PriceClientTest {
+
+    private final AtomicInteger reads = new AtomicInteger();
+    private volatile String storedPrice = "10000.55";
+    private volatile Mono<ClientResponse> deleteResponse = json("{}");
+    private final CountDownLatch deleteSent = new CountDownLatch(1);
+
+    private WebClient webClient;
+
+    @Before
+    public void setup() {
+        webClient = WebClient.builder().exchangeFunction(request -> {
+            String path = request.url().getPath();
+            if (request.method() == HttpMethod.GET && path.startsWith("/prices/")) {
+                reads.incrementAndGet();
+                if (storedPrice == null) {
+                    return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+                }
+                return json("{\"currency\":\"USD\",\"price\":" + storedPrice + ",\"vehicleId\":1}");
+            }
+            if (request.method() == HttpMethod.POST && path.equals("/prices/batch")) {
+                reads.incrementAndGet();
+                return json("{\"prices\":[{\"currency\":\"USD\",\"price\":" + storedPrice
+                        + ",\"vehicleId\":1}],\"missing\":[2]}");
+            }
+            if (request.method() == HttpMethod.DELETE) {
+                deleteSent.countDown();
+                return deleteResponse;
+            }
+            return json("{}");
+        }).build();
+    }
+
+    /**
+     * Tests that posted prices are served from the cache without reading them back.
+     */
+    @Test
+    public void postPriceWritesThrough() {
+        PriceClient priceClient = getPriceClient(Duration.ofMinutes(10));
+
+        priceClient.postPrice(new Price("USD 12345.67", 1L));
+
+        assertEquals("USD 12345.67", priceClient.getPrice(1L));
+        assertEquals(0, reads.get());
+    }
+
+    /**
+     * Tests that deleting a price invalidates its cache entry.
+     */
+    @Test
+    public void deletePriceInvalidates() {
+        PriceClient priceClient = getPriceClient(Duration.ofMinutes(10));
+        priceClient.postPrice(new Price("USD 12345.67", 1L));
+
+        priceClient.deletePrice(1L);
+        storedPrice = null;
+
+        assertNull(priceClient.getPrice(1L));
+        assertNull(priceClient.getPrice(1L));
+        assertEquals(1, reads.get());
+    }
+
+    /**
+     * Tests that a price read while its deletion is in flight is not served once
+     * the deletion has completed.
+     */
+    @Test
+    public void deletePriceInvalidatesConcurrentRead() throws Exception {
+        PriceClient priceClient = getPriceClient(Duration.ofMinutes(10));
+        MonoProcessor<ClientResponse> deleted = MonoProcessor.create();
+        deleteResponse = deleted;
+
+        CompletableFuture<Void> deleting = CompletableFuture.runAsync(() -> priceClient.deletePrice(1L));
+        assertTrue(deleteSent.await(1, TimeUnit.SECONDS));
+        assertEquals("USD 10000.55", priceClient.getPrice(1L));
+        storedPrice = null;
+        deleted.onNext(ClientResponse.create(HttpStatus.OK).build());
+        deleting.get(1, TimeUnit.SECONDS);
+
+        assertNull(priceClient.getPrice(1L));
+        assertEquals(2, reads.get());
+    }
+
+    /**
+     * Tests that batched lookups cache both known and missing prices.
+     */
+    @Test
+    public void getPricesCachesHitsAndMisses() {
+        PriceClient priceClient = getPriceClient(Duration.ofMinutes(10));
+
+        Map<Long, String> prices = priceClient.getPrices(Arrays.asList(1L, 2L));
+        priceClient.getPrices(Arrays.asList(1L, 2L));
+
+        assertEquals("USD 10000.55", prices.get(1L));
+        assertFalse(prices.containsKey(2L));
+        assertEquals(1, reads.get());
+    }
+
+    /**
+     * Tests that an entry past its refresh interval is served while it is reloaded.
+     */
+    @Test
+    public void getPriceRefreshesAhead() throws InterruptedException {
+        PriceClient priceClient = getPriceClient(Duration.ofMillis(50));
+        assertEquals("USD 10000.55", priceClient.getPrice(1L));
+
+        storedPrice = "9000.25";
+        Thread.sleep(100);
+        assertEquals("USD 10000.55", priceClient.getPrice(1L));
+
+        for (int i = 0; i < 50 && reads.get() < 2; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("USD 9000.25", priceClient.getPrice(1L));
+    }
+
+    private PriceClient getPriceClient(Duration refreshAfter) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DownstreamGuard guard = new DownstreamGuard("pricing-service", new DownstreamSettings(), meterRegistry);
+        PriceClient priceClient = new PriceClient(webClient, meterRegistry, guard,
+                1000, Duration.ofMinutes(10), refreshAfter);
+        ReflectionTestUtils.setField(priceClient, "pricingApplicationBaseURL", "http://pricing-service");
+        return priceClient;
+    }
+
+    private static Mono<ClientResponse> json(String body) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(body)
+                .build());
+    }
+}
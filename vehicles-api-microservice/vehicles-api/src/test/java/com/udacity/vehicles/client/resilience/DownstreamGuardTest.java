@@ -0,0 +1,118 @@
+package com.udacity.vehicles.client.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Implements testing of the DownstreamGuard class.
+ */
+public class DownstreamGuardTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+    private DownstreamSettings settings;
+
+    @Before
+    public void setup() {
+        settings = new DownstreamSettings();
+        settings.setSlidingWindowSize(4);
+        settings.setMinimumCalls(4);
+        settings.setOpenDuration(Duration.ofMillis(100));
+        settings.setHalfOpenCalls(1);
+    }
+
+    /**
+     * Tests that the breaker opens on failures, fails fast while open,
+     * and closes again after a successful trial call.
+     */
+    @Test
+    public void circuitBreakerOpensAndRecovers() throws InterruptedException {
+        DownstreamGuard guard = new DownstreamGuard("test", settings, meterRegistry);
+        for (int i = 0; i < 4; i++) {
+            assertFails(guard.call(this::failure), IllegalStateException.class);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+
+        assertFails(guard.call(this::failure), DownstreamUnavailableException.class);
+        assertEquals(4, calls.get());
+        assertEquals(1.0, meterRegistry.get("downstream.rejections").tag("reason", "circuit_open")
+                .counter().count(), 0);
+        assertEquals(1.0, meterRegistry.get("downstream.circuit.state").gauge().value(), 0);
+
+        Thread.sleep(150);
+        assertEquals("ok", guard.call(() -> Mono.just("ok")).block());
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getCircuitBreaker().getState());
+    }
+
+    /**
+     * Tests that calls beyond the concurrency limit are rejected without being made.
+     */
+    @Test
+    public void bulkheadRejectsExcessCalls() {
+        settings.setMaxConcurrentCalls(1);
+        DownstreamGuard guard = new DownstreamGuard("test", settings, meterRegistry);
+
+        Mono<String> slow = guard.call(() -> Mono.just("ok").delayElement(Duration.ofMillis(100)));
+        slow.subscribe();
+        assertFails(guard.call(() -> Mono.just("ok")), DownstreamUnavailableException.class);
+        assertEquals(1.0, meterRegistry.get("downstream.rejections").tag("reason", "bulkhead_full")
+                .counter().count(), 0);
+    }
+
+    /**
+     * Tests that a call exceeding its deadline fails and counts against the breaker.
+     */
+    @Test
+    public void callTimesOut() {
+        settings.setTimeout(Duration.ofMillis(50));
+        settings.setMinimumCalls(1);
+        DownstreamGuard guard = new DownstreamGuard("test", settings, meterRegistry);
+
+        assertFails(guard.call(Mono::never), TimeoutException.class);
+        assertEquals(CircuitBreaker.State.OPEN, guard.getCircuitBreaker().getState());
+    }
+
+    /**
+     * Tests that a supplier throwing instead of returning a Mono fails the call
+     * and releases its bulkhead permit.
+     */
+    @Test
+    public void throwingSupplierReleasesPermits() {
+        settings.setMaxConcurrentCalls(1);
+        DownstreamGuard guard = new DownstreamGuard("test", settings, meterRegistry);
+
+        for (int i = 0; i < 2; i++) {
+            assertFails(guard.call(() -> {
+                throw new IllegalStateException("bad request");
+            }), IllegalStateException.class);
+        }
+        assertEquals(1.0, meterRegistry.get("downstream.bulkhead.available").gauge().value(), 0);
+        assertEquals("ok", guard.call(() -> Mono.just("ok")).block());
+    }
+
+    private Mono<String> failure() {
+        calls.incrementAndGet();
+        return Mono.error(new IllegalStateException("down"));
+    }
+
+    private static void assertFails(Mono<?> call, Class<? extends Throwable> expected) {
+        try {
+            call.block();
+            fail("Expected " + expected.getSimpleName());
+        } catch (RuntimeException e) {
+            Throwable cause = Exceptions.unwrap(e);
+            assertTrue(cause.toString(), expected.isInstance(cause));
+        }
+    }
+}
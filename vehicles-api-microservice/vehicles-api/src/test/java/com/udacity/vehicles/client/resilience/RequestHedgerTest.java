@@ -0,0 +1,77 @@
+package com.udacity.vehicles.client.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Implements testing of the RequestHedger class.
+ */
+public class RequestHedgerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private DownstreamSettings settings;
+
+    @Before
+    public void setup() {
+        settings = new DownstreamSettings();
+        settings.setHedgeEnabled(true);
+        settings.setHedgeMinDelay(Duration.ofMillis(20));
+    }
+
+    /**
+     * Tests that a slow first attempt is hedged after the observed latency
+     * and that the hedge answers first.
+     */
+    @Test
+    public void hedgeWinsOverSlowAttempt() {
+        settings.setHedgeBudgetPercent(100);
+        RequestHedger hedger = warmedUp();
+
+        assertEquals(20, hedger.getDelay(TimeUnit.MILLISECONDS));
+        assertEquals("fast", hedger.call(tried -> attempts.incrementAndGet() == 1
+                ? Mono.just("slow").delayElement(Duration.ofSeconds(1))
+                : Mono.just("fast")).block(Duration.ofMillis(500)));
+        assertEquals(1.0, meterRegistry.get("downstream.hedge.sent").counter().count(), 0);
+        assertEquals(1.0, meterRegistry.get("downstream.hedge.wins").counter().count(), 0);
+    }
+
+    /**
+     * Tests that hedges stay within the budget when every call is slow.
+     */
+    @Test
+    public void hedgesAreCappedByBudget() {
+        settings.setHedgeBudgetPercent(10);
+        RequestHedger hedger = warmedUp();
+
+        Flux.range(0, 20).concatMap(i -> {
+            AtomicInteger callAttempts = new AtomicInteger();
+            return hedger.call(tried -> callAttempts.incrementAndGet() == 1
+                    ? Mono.just("slow").delayElement(Duration.ofMillis(40))
+                    : Mono.just("fast"));
+        }).blockLast();
+
+        double calls = meterRegistry.get("downstream.hedge.calls").counter().count();
+        double sent = meterRegistry.get("downstream.hedge.sent").counter().count();
+        double exhausted = meterRegistry.get("downstream.hedge.budget-exhausted").counter().count();
+        assertTrue("sent " + sent + " hedges for " + calls + " calls", sent <= calls * 0.1);
+        assertTrue(exhausted > 0);
+        assertEquals(20, sent + exhausted, 0);
+    }
+
+    private RequestHedger warmedUp() {
+        RequestHedger hedger = new RequestHedger("test", settings, meterRegistry);
+        Flux.range(0, 64).concatMap(i -> hedger.call(tried -> Mono.just("ok"))).blockLast();
+        return hedger;
+    }
+}
@@ -0,0 +1,61 @@
+package com.udacity.vehicles.domain;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Implements testing of the GeoHash class.
+ */
+public class GeoHashTest {
+
+    /**
+     * Tests that a geohash decodes to the center of its cell.
+     */
+    @Test
+    public void encodeAndDecode() {
+        assertEquals("dr5regw3p", GeoHash.encode(40.712800, -74.006000, 9));
+        double[] center = GeoHash.decode("dr5regw3p");
+        assertEquals(40.712800, center[0], 0.0001);
+        assertEquals(-74.006000, center[1], 0.0001);
+    }
+
+    /**
+     * Tests the distance between New York and London.
+     */
+    @Test
+    public void distanceKm() {
+        assertEquals(5570, GeoHash.distanceKm(40.7128, -74.0060, 51.5074, -0.1278), 5);
+        assertEquals(0, GeoHash.distanceKm(40.7128, -74.0060, 40.7128, -74.0060), 0);
+    }
+
+    /**
+     * Tests that every point within a circle lies in one of the cells covering it,
+     * including circles across the antimeridian and around a pole.
+     */
+    @Test
+    public void coverHoldsEveryPointWithinTheRadius() {
+        Random random = new Random(42);
+        double[][] centers = {{40.7128, -74.0060}, {-16.5, 179.99}, {89.99, 10}, {0, 0}};
+        double[] radii = {0.05, 1, 25, 400};
+        for (double[] center : centers) {
+            for (double radiusKm : radii) {
+                Set<String> cells = GeoHash.cover(center[0], center[1], radiusKm, 16);
+                int precision = cells.iterator().next().length();
+                assertTrue(cells.size() <= 16 || precision == 1);
+                for (int i = 0; i < 1000; i++) {
+                    double lat = Math.max(-90, Math.min(90, center[0] + (random.nextDouble() - 0.5) * radiusKm / 50));
+                    double lon = center[1] + (random.nextDouble() - 0.5) * radiusKm / 20;
+                    lon = lon >= 180 ? lon - 360 : lon < -180 ? lon + 360 : lon;
+                    if (GeoHash.distanceKm(center[0], center[1], lat, lon) <= radiusKm) {
+                        assertTrue(cells.contains(GeoHash.encode(lat, lon, precision)));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.udacity.vehicles.domain.car;
+
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Implements testing of {@link CarRepository#search}, {@link CarRepository#findNear}
+ * and {@link CarRepository#scroll} against the application's database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:car-search-test")
+@Transactional
+public class CarSearchRepositoryTest {
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    /**
+     * Stores six cars: the first five with mileages 30000, 10000, 20000, 10000 and
+     * 40000, the last without a mileage. Only the third is new, and only the fifth a Ford.
+     */
+    @Before
+    public void setup() {
+        Integer[] mileages = {30000, 10000, 20000, 10000, 40000, null};
+        for (int i = 0; i < mileages.length; i++) {
+            Car car = new Car();
+            car.setCondition(i == 2 ? Condition.NEW : Condition.USED);
+            car.setLocation(new Location(40.730610, -73.935242));
+            Details details = new Details();
+            details.setManufacturer(i == 4 ? new Manufacturer(102, "Ford") : new Manufacturer(101, "Chevrolet"));
+            details.setModel("Impala");
+            details.setBody("sedan");
+            details.setMileage(mileages[i]);
+            details.setModelYear(2015 + i);
+            car.setDetails(details);
+            ids.add(carRepository.save(car).getId());
+        }
+        carRepository.flush();
+    }
+
+    /**
+     * Tests that the cursor hands over every car after the given ID once, in ID order
+     * and in windows, and detaches each window once it has been handed over.
+     */
+    @Test
+    public void scrollDetachesEachWindow() {
+        List<List<Long>> windows = new ArrayList<>();
+        List<Car> previous = new ArrayList<>();
+        carRepository.scroll(ids.get(0), 2, window -> {
+            previous.forEach(car -> assertFalse(entityManager.contains(car)));
+            assertEquals("Impala", window.get(0).getDetails().getModel());
+            windows.add(ids(window));
+            previous.addAll(window);
+        });
+        assertEquals(Arrays.asList(ids(1, 2), ids(3, 4), ids(5)), windows);
+    }
+
+    /**
+     * Tests that only the cars matching every criterion are found, in ID order by default.
+     */
+    @Test
+    public void searchMatchesEveryCriterion() {
+        CarSearch search = new CarSearch();
+        search.setManufacturer(101);
+        search.setCondition(Condition.USED);
+        search.setMinMileage(10000);
+        search.setMaxMileage(30000);
+        assertEquals(ids(0, 1, 3), ids(carRepository.search(search, 10)));
+
+        search.setModel("Corvette");
+        assertEquals(ids(), ids(carRepository.search(search, 10)));
+    }
+
+    /**
+     * Tests that paging by mileage visits every car once, in order, with the car
+     * without a mileage last.
+     */
+    @Test
+    public void searchPagesByMileage() {
+        CarSearch search = new CarSearch();
+        search.orderBy(CarSearch.SortKey.MILEAGE, false);
+        assertEquals(ids(1, 3, 2, 0, 4, 5), ids(allPages(search, 2)));
+    }
+
+    /**
+     * Tests that paging by descending mileage visits every car once, in order, with
+     * the car without a mileage still last.
+     */
+    @Test
+    public void searchPagesByDescendingMileage() {
+        CarSearch search = new CarSearch();
+        search.orderBy(CarSearch.SortKey.MILEAGE, true);
+        assertEquals(ids(4, 0, 2, 3, 1, 5), ids(allPages(search, 2)));
+    }
+
+    /**
+     * Tests that paging by descending ID visits every car once.
+     */
+    @Test
+    public void searchPagesByDescendingId() {
+        CarSearch search = new CarSearch();
+        search.orderBy(CarSearch.SortKey.ID, true);
+        assertEquals(ids(5, 4, 3, 2, 1, 0), ids(allPages(search, 4)));
+    }
+
+    /**
+     * Tests that the cars within the radius are found nearest first, up to the limit,
+     * including a car that has just moved into it.
+     */
+    @Test
+    public void findNearOrdersByDistance() {
+        Long farther = save(42.3700, -71.0600);
+        Long nearest = save(42.3650, -71.0600);
+        Long outside = save(42.4100, -71.0600);
+        Long moved = ids.get(0);
+
+        assertEquals(Arrays.asList(nearest, farther), ids(carRepository.findNear(42.3600, -71.0600, 3, 10)));
+        assertEquals(Collections.singletonList(nearest), ids(carRepository.findNear(42.3600, -71.0600, 3, 1)));
+
+        Car car = carRepository.findById(moved).get();
+        car.setLocation(new Location(42.3601, -71.0601));
+        carRepository.saveAndFlush(car);
+        assertEquals(Arrays.asList(moved, nearest, farther, outside),
+                ids(carRepository.findNear(42.3600, -71.0600, 10, 10)));
+    }
+
+    private Long save(double lat, double lon) {
+        Car car = new Car();
+        car.setCondition(Condition.USED);
+        car.setLocation(new Location(lat, lon));
+        Details details = new Details();
+        details.setManufacturer(new Manufacturer(101, "Chevrolet"));
+        details.setModel("Impala");
+        details.setBody("sedan");
+        car.setDetails(details);
+        return carRepository.save(car).getId();
+    }
+
+    private List<Car> allPages(CarSearch search, int limit) {
+        List<Car> cars = new ArrayList<>();
+        List<Car> page;
+        do {
+            page = carRepository.search(search, limit);
+            cars.addAll(page);
+            if (!page.isEmpty()) {
+                search.startAfter(page.get(page.size() - 1));
+            }
+        } while (page.size() == limit);
+        return cars;
+    }
+
+    private List<Long> ids(int... indexes) {
+        List<Long> selected = new ArrayList<>();
+        for (int index : indexes) {
+            selected.add(ids.get(index));
+        }
+        return selected;
+    }
+
+    private static List<Long> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
+}
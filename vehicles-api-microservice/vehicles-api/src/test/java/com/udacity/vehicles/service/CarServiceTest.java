@@ -0,0 +1,358 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.Price;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import com.udacity.vehicles.domain.car.PriceSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Implements testing of the enrichment, price snapshots and address resolution performed by the CarService class.
+ */
+public class CarServiceTest {
+
+    private static final Duration LOOKUP_LATENCY = Duration.ofMillis(200);
+    private static final Duration PRICE_FRESHNESS = Duration.ofMinutes(5);
+
+    private CarRepository carRepository;
+    private MapsClient mapsClient;
+    private PriceClient priceClient;
+
+    @Before
+    public void setup() {
+        carRepository = mock(CarRepository.class);
+        mapsClient = mock(MapsClient.class);
+        priceClient = mock(PriceClient.class);
+    }
+
+    /**
+     * Tests that addresses are served from the database, without any maps lookup.
+     */
+    @Test
+    public void listServesStoredAddresses() {
+        List<Car> cars = getCars(20);
+        given(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).willReturn(cars);
+        given(priceClient.getPricesAsync(anyCollection())).willAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            Map<Long, String> prices = ids.stream().collect(Collectors.toMap(id -> id, id -> "USD 10000.00"));
+            return Mono.just(prices);
+        });
+
+        List<Car> enriched = newCarService().list(null, 20);
+
+        assertEquals(20, enriched.size());
+        for (Car car : enriched) {
+            assertEquals("USD 10000.00", car.getPrice());
+            assertEquals("Abington", car.getLocation().getCity());
+        }
+        verify(mapsClient, never()).getAddressesAsync(anyList());
+    }
+
+    /**
+     * Tests that a car read without an up-to-date address is returned right away,
+     * and that its address is then resolved and stored in the background.
+     */
+    @Test
+    public void listResolvesOutdatedAddressesInBackground() {
+        Car car = getCars(1).get(0);
+        car.setLocation(new Location(40.0, -73.0));
+        given(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).willReturn(Collections.singletonList(car));
+        given(priceClient.getPricesAsync(anyCollection())).willReturn(Mono.just(Collections.emptyMap()));
+        given(mapsClient.getAddressesAsync(anyList())).willAnswer(invocation -> {
+            List<Location> locations = invocation.getArgument(0);
+            locations.forEach(location -> {
+                location.setAddress("1 Main St");
+                location.setCity("Abington");
+            });
+            return Mono.just(locations).delayElement(LOOKUP_LATENCY);
+        });
+
+        List<Car> listed = newCarService().list(null, 20);
+
+        assertNull(listed.get(0).getLocation().getCity());
+        verify(carRepository, timeout(5000)).updateAddress(eq(1L), argThat(location ->
+                location.isResolved() && "Abington".equals(location.getCity())
+                        && location.getLat() == 40.0 && location.getLon() == -73.0));
+    }
+
+    /**
+     * Tests that updating a car without moving it keeps its stored address.
+     */
+    @Test
+    public void updateKeepsAddressOfUnmovedCar() {
+        Car stored = getCars(1).get(0);
+        given(carRepository.findById(1L)).willReturn(Optional.of(stored));
+        given(carRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+        given(priceClient.getPricesAsync(anyCollection())).willReturn(Mono.just(Collections.emptyMap()));
+        Car update = new Car();
+        update.setId(1L);
+        update.setCondition(Condition.NEW);
+        update.setLocation(new Location(40.730610, -73.935242));
+
+        Car saved = newCarService().save(update);
+
+        assertEquals(Condition.NEW, saved.getCondition());
+        assertEquals("Abington", saved.getLocation().getCity());
+        assertTrue(saved.getLocation().isResolved());
+        verify(mapsClient, never()).getAddressesAsync(anyList());
+    }
+
+    /**
+     * Tests that a missing price only leaves that car without a price.
+     */
+    @Test
+    public void listFallsBackPerCar() {
+        List<Car> cars = getCars(2);
+        given(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).willReturn(cars);
+        given(priceClient.getPricesAsync(anyCollection()))
+                .willReturn(Mono.just(Collections.singletonMap(2L, "USD 5000.00")));
+
+        List<Car> enriched = newCarService().list(null, 20);
+
+        assertNull(enriched.get(0).getPrice());
+        assertEquals("USD 5000.00", enriched.get(1).getPrice());
+    }
+
+    /**
+     * Tests that fresh price snapshots are served without asking the pricing service.
+     */
+    @Test
+    public void listServesFreshPriceSnapshots() {
+        List<Car> cars = getCars(2);
+        cars.forEach(car -> car.setPriceSnapshot(new PriceSnapshot("USD 7000.01", LocalDateTime.now(), 3)));
+        given(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).willReturn(cars);
+
+        List<Car> enriched = newCarService().list(null, 20);
+
+        assertEquals("USD 7000.01", enriched.get(0).getPrice());
+        assertEquals("USD 7000.01", enriched.get(1).getPrice());
+        verify(priceClient, never()).getPricesAsync(anyCollection());
+    }
+
+    /**
+     * Tests that stale price snapshots are looked up, and then refreshed in the
+     * background unless they changed since they were read.
+     */
+    @Test
+    public void listRefreshesStalePriceSnapshots() {
+        Car car = getCars(1).get(0);
+        car.setPriceSnapshot(new PriceSnapshot("USD 7000.01", LocalDateTime.now().minus(PRICE_FRESHNESS).minusSeconds(1), 3));
+        given(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).willReturn(Collections.singletonList(car));
+        given(priceClient.getPricesAsync(anyCollection())).willReturn(Mono.just(Collections.singletonMap(1L, "USD 8000.01")));
+
+        List<Car> enriched = newCarService().list(null, 20);
+
+        assertEquals("USD 8000.01", enriched.get(0).getPrice());
+        verify(carRepository, timeout(5000)).refreshPriceSnapshot(eq(1L), eq("USD 8000.01"), any(), eq(3L));
+    }
+
+    /**
+     * Tests that a stale price snapshot is served as is when its price cannot be looked up.
+     */
+    @Test
+    public void listServesStalePriceSnapshotsWhenPricingFails() {
+        Car car = getCars(1).get(0);
+        car.setPriceSnapshot(new PriceSnapshot("USD 7000.01", LocalDateTime.now().minus(PRICE_FRESHNESS).minusSeconds(1), 3));
+        given(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).willReturn(Collections.singletonList(car));
+        given(priceClient.getPricesAsync(anyCollection())).willReturn(Mono.just(Collections.emptyMap()));
+
+        List<Car> enriched = newCarService().list(null, 20);
+
+        assertEquals("USD 7000.01", enriched.get(0).getPrice());
+        verify(carRepository, never()).refreshPriceSnapshot(anyLong(), any(), any(), anyLong());
+    }
+
+    /**
+     * Tests that a price posted on update replaces the snapshot, and is served from it.
+     */
+    @Test
+    public void updateStoresPostedPrice() {
+        Car stored = getCars(1).get(0);
+        given(carRepository.findById(1L)).willReturn(Optional.of(stored));
+        given(carRepository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+        given(priceClient.postPrice(any())).willReturn("USD 9000.01");
+        Car update = new Car();
+        update.setId(1L);
+        update.setPrice("USD 9000.01");
+        update.setLocation(new Location(40.730610, -73.935242));
+
+        Car saved = newCarService().save(update);
+
+        assertEquals("USD 9000.01", saved.getPrice());
+        assertEquals(1, saved.getPriceSnapshot().getVersion());
+        verify(carRepository).storePriceSnapshot(eq(1L), eq("USD 9000.01"), any());
+        verify(priceClient, never()).getPricesAsync(anyCollection());
+    }
+
+    /**
+     * Tests that a new car for which no quote can be had is stored without a price,
+     * and that no price is posted or snapshotted for it.
+     */
+    @Test
+    public void createWithoutQuoteLeavesPriceEmpty() {
+        Car car = getCars(1).get(0);
+        car.setId(null);
+        given(carRepository.save(any())).willAnswer(invocation -> {
+            Car saved = invocation.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
+        given(priceClient.setPrice(1L)).willReturn(null);
+
+        Car saved = newCarService().save(car);
+
+        assertEquals(Long.valueOf(1), saved.getId());
+        assertNull(saved.getPrice());
+        verify(priceClient, never()).postPrice(any());
+        verify(carRepository, never()).storePriceSnapshot(anyLong(), any(), any());
+    }
+
+    /**
+     * Tests that imported cars are stored a chunk at a time, that each chunk's missing
+     * prices are quoted and all its prices posted in one call each, and that a car
+     * without a quote is reported as such.
+     */
+    @Test
+    public void importCarsPricesEachChunkInBatches() {
+        List<Car> cars = getCars(3);
+        cars.forEach(car -> {
+            car.setId(null);
+            car.setLocation(new Location(40.0, -73.0));
+        });
+        cars.get(0).setPrice("USD 1000.00");
+        AtomicLong ids = new AtomicLong();
+        given(carRepository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Car> chunk = invocation.getArgument(0);
+            chunk.forEach(car -> car.setId(ids.incrementAndGet()));
+            return chunk;
+        });
+        given(priceClient.setPricesAsync(anyCollection())).willReturn(Mono.just(Collections.singletonMap(2L, "USD 2000.00")));
+        given(priceClient.postPricesAsync(anyList())).willAnswer(invocation -> Mono.just(
+                invocation.<List<Price>>getArgument(0).stream().collect(Collectors.toMap(Price::getVehicleId,
+                        price -> price.getCurrency() + " " + price.getPrice()))));
+        given(mapsClient.getAddressesAsync(anyList())).willAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        List<CarImportResult> results = new ArrayList<>();
+
+        newCarService().importCars(cars, 2, results::addAll);
+
+        assertEquals(3, results.size());
+        assertEquals("USD 1000.00", results.get(0).getPrice());
+        assertEquals("USD 2000.00", results.get(1).getPrice());
+        assertEquals(2, results.get(2).getIndex());
+        assertEquals(Long.valueOf(3), results.get(2).getId());
+        assertNull(results.get(2).getPrice());
+        assertEquals(CarImportResult.NO_QUOTE, results.get(2).getError());
+        assertEquals("USD 2000.00", cars.get(1).getPriceSnapshot().getPrice());
+        verify(carRepository, times(2)).saveAll(anyList());
+        verify(priceClient).setPricesAsync(Collections.singletonList(2L));
+        verify(priceClient).setPricesAsync(Collections.singletonList(3L));
+        Map<Long, String> posted = new HashMap<>();
+        posted.put(1L, "USD 1000.00");
+        posted.put(2L, "USD 2000.00");
+        verify(carRepository).storePriceSnapshots(eq(posted), any());
+        verify(mapsClient, timeout(1000).times(2)).getAddressesAsync(anyList());
+    }
+
+    /**
+     * Tests that a car is tagged from its versions while its price is fresh, that
+     * a car the client holds is not enriched, and that a stale car has no tag.
+     */
+    @Test
+    public void findIfModifiedTagsFreshCars() {
+        Car car = getCars(1).get(0);
+        car.setVersion(2);
+        car.setPriceSnapshot(new PriceSnapshot("USD 7000.01", LocalDateTime.now(), 3));
+        given(carRepository.findById(1L)).willReturn(Optional.of(car));
+        List<String> tags = new ArrayList<>();
+
+        Optional<Car> held = newCarService().findIfModified(1L, Enrichment.ALL, tag -> tags.add(tag));
+
+        assertFalse(held.isPresent());
+        assertEquals(1, tags.size());
+        assertTrue(tags.get(0).startsWith("1.2."));
+        assertTrue(tags.get(0).endsWith(".3"));
+
+        car.setPriceSnapshot(new PriceSnapshot("USD 7000.01", LocalDateTime.now().minus(PRICE_FRESHNESS), 3));
+        given(priceClient.getPricesAsync(anyCollection())).willReturn(Mono.just(Collections.singletonMap(1L, "USD 8000.01")));
+
+        Optional<Car> stale = newCarService().findIfModified(1L, Enrichment.ALL, tag -> tags.add(tag));
+
+        assertEquals("USD 8000.01", stale.get().getPrice());
+        assertEquals(1, tags.size());
+    }
+
+    /**
+     * Tests that a page read without prices or addresses is a pure database read,
+     * and that it is tagged even though the prices are stale.
+     */
+    @Test
+    public void listIfModifiedSkipsEnrichmentsNotAskedFor() {
+        Car car = getCars(1).get(0);
+        car.setLocation(new Location(40.0, -73.0));
+        given(carRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).willReturn(Collections.singletonList(car));
+        List<String> tags = new ArrayList<>();
+
+        Optional<List<Car>> listed = newCarService().listIfModified(null, 20, EnumSet.noneOf(Enrichment.class), tags::add);
+
+        assertFalse(listed.isPresent());
+        assertEquals(1, tags.size());
+        verify(priceClient, never()).getPricesAsync(anyCollection());
+        verify(mapsClient, never()).getAddressesAsync(anyList());
+    }
+
+    private CarService newCarService() {
+        return new CarService(carRepository, mapsClient, priceClient, new SimpleMeterRegistry(), PRICE_FRESHNESS);
+    }
+
+    private List<Car> getCars(int count) {
+        List<Car> cars = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            Car car = new Car();
+            car.setId(id);
+            car.setCondition(Condition.USED);
+            Location location = new Location(40.730610, -73.935242);
+            location.setCity("Abington");
+            location.markResolved(LocalDateTime.now());
+            car.setLocation(location);
+            cars.add(car);
+        }
+        return cars;
+    }
+}
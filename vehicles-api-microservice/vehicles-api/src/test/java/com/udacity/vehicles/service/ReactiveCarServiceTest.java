@@ -0,0 +1,68 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Implements testing of the ReactiveCarService class.
+ */
+public class ReactiveCarServiceTest {
+
+    private CarRepository carRepository;
+    private MapsClient mapsClient;
+    private PriceClient priceClient;
+
+    @Before
+    public void setup() {
+        carRepository = mock(CarRepository.class);
+        mapsClient = mock(MapsClient.class);
+        priceClient = mock(PriceClient.class);
+    }
+
+    /**
+     * Tests that a new car for which no quote can be had is stored without a price,
+     * and that no price is posted or snapshotted for it.
+     */
+    @Test
+    public void createWithoutQuoteLeavesPriceEmpty() {
+        Car car = new Car();
+        car.setCondition(Condition.USED);
+        Location location = new Location(40.730610, -73.935242);
+        location.markResolved(LocalDateTime.now());
+        car.setLocation(location);
+        given(carRepository.save(any())).willAnswer(invocation -> {
+            Car saved = invocation.getArgument(0);
+            saved.setId(1L);
+            return saved;
+        });
+        given(priceClient.setPriceAsync(1L)).willReturn(Mono.empty());
+
+        Car saved = new ReactiveCarService(carRepository, mapsClient, priceClient, new SimpleMeterRegistry(), 1,
+                Duration.ofMinutes(5)).save(car).block();
+
+        assertEquals(Long.valueOf(1), saved.getId());
+        assertNull(saved.getPrice());
+        verify(priceClient, never()).postPriceAsync(any());
+        verify(carRepository, never()).storePriceSnapshot(anyLong(), any(), any());
+    }
+}